@@ -10,26 +10,40 @@ import org.ayosynk.landClaimPlugin.listeners.EventListener;
 import org.ayosynk.landClaimPlugin.listeners.PlayerJoinListener;
 import org.ayosynk.landClaimPlugin.managers.ClaimManager;
 import org.ayosynk.landClaimPlugin.managers.ConfigManager;
+import org.ayosynk.landClaimPlugin.managers.DataLoader;
 import org.ayosynk.landClaimPlugin.managers.HomeManager;
+import org.ayosynk.landClaimPlugin.managers.PermissionManager;
+import org.ayosynk.landClaimPlugin.managers.PlayerDataManager;
 import org.ayosynk.landClaimPlugin.managers.TrustManager;
 import org.ayosynk.landClaimPlugin.managers.VisualizationManager;
 import org.ayosynk.landClaimPlugin.managers.SaveManager;
+import org.ayosynk.landClaimPlugin.storage.ShardedStorage;
+import org.ayosynk.landClaimPlugin.storage.SqliteStorage;
+import org.ayosynk.landClaimPlugin.storage.StorageBackend;
+import org.ayosynk.landClaimPlugin.storage.StorageMigrator;
+import org.ayosynk.landClaimPlugin.storage.YamlStorage;
 import org.ayosynk.landClaimPlugin.utils.ConfigUpdater;
 import org.bstats.bukkit.Metrics;
 import org.bukkit.Bukkit;
+import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 
+import java.io.File;
+import java.io.IOException;
 import java.util.ArrayList;
 import java.util.List;
 
 public class LandClaimPlugin extends JavaPlugin {
 
     private ConfigManager configManager;
+    private PermissionManager permissionManager;
     private ClaimManager claimManager;
     private TrustManager trustManager;
     private VisualizationManager visualizationManager;
     private SaveManager saveManager;
+    private StorageBackend storage;
     private HomeManager homeManager;
+    private PlayerDataManager playerDataManager;
     private CommandHandler commandHandler;
     private EventListener eventListener;
     private BlueMapHook blueMapHook;
@@ -50,24 +64,33 @@ public class LandClaimPlugin extends JavaPlugin {
                 worldGuardEnabled = true;
                 getLogger().info("WorldGuard detected. Enabling region gap protection.");
             }
-            // Initialize managers
+            long enableStart = System.nanoTime();
+
+            // Initialize managers (updates and loads config.yml and messages.yml)
             configManager = new ConfigManager(this);
+            applyConfig();
+            long configDone = System.nanoTime();
+
+            // Save thread first: storage backends hand their writes to it
+            saveManager = new SaveManager(this);
+            storage = openStorage();
+            saveManager.register(storage);
+            long storageDone = System.nanoTime();
+
+            permissionManager = new PermissionManager(configManager);
             claimManager = new ClaimManager(this, configManager);
             trustManager = new TrustManager(this, claimManager, configManager);
+            homeManager = new HomeManager(this, configManager);
+            playerDataManager = new PlayerDataManager(this);
+            saveManager.register(playerDataManager);
 
-            // Load claims and trust data
-            claimManager.initialize();
-            trustManager.initialize();
+            // Read claims, trust, homes and player data in parallel, once
+            String dataTimings = new DataLoader(this).load(true);
+            long dataDone = System.nanoTime();
 
-            // Initialize visualization manager
+            // Initialize visualization manager (reads player data)
             visualizationManager = new VisualizationManager(this, claimManager, configManager);
 
-            // Initialize home manager
-            homeManager = new HomeManager(this, configManager);
-
-            // Initialize save manager with debounced async saves
-            saveManager = new SaveManager(this, claimManager, trustManager, homeManager);
-
             // Register commands
             commandHandler = new CommandHandler(this, claimManager, trustManager, configManager, visualizationManager,
                     homeManager);
@@ -82,7 +105,7 @@ public class LandClaimPlugin extends JavaPlugin {
                     this);
 
             getServer().getPluginManager().registerEvents(
-                    new PlayerJoinListener(this, visualizationManager),
+                    new PlayerJoinListener(this, visualizationManager, permissionManager),
                     this);
 
             // Register GUI listener
@@ -109,12 +132,15 @@ public class LandClaimPlugin extends JavaPlugin {
                 getCommand("uc").setTabCompleter(tabCompleter);
             }
 
-            // Load configuration
-            reloadConfiguration();
-
             // Start debounced auto-save task
             saveManager.startAutoSave();
 
+            // Players already online (plugin reload) get no join event
+            for (Player player : getServer().getOnlinePlayers()) {
+                playerDataManager.handleJoin(player.getUniqueId());
+                visualizationManager.handlePlayerJoin(player);
+            }
+
             // Initialize map integrations (after config is loaded and server finishes
             // enabling)
             Bukkit.getScheduler().runTask(this, () -> {
@@ -130,9 +156,15 @@ public class LandClaimPlugin extends JavaPlugin {
                 }
             });
 
+            long enableDone = System.nanoTime();
             getLogger().info("LandClaim has been enabled! Loaded " +
                     claimManager.getTotalClaims() + " claims and " +
                     trustManager.getTotalTrusts() + " trust relationships");
+            getLogger().info(String.format(
+                    "Enabled in %.1f ms: config %.1f ms, storage %.1f ms, data %.1f ms, listeners %.1f ms",
+                    (enableDone - enableStart) / 1e6, (configDone - enableStart) / 1e6,
+                    (storageDone - configDone) / 1e6, (dataDone - storageDone) / 1e6, (enableDone - dataDone) / 1e6));
+            getLogger().info("Data load: " + dataTimings);
         } catch (Exception e) {
             getLogger().severe("Failed to enable LandClaim: " + e.getMessage());
             e.printStackTrace();
@@ -140,6 +172,52 @@ public class LandClaimPlugin extends JavaPlugin {
         }
     }
 
+    /**
+     * Create and open the backend named by storage-type. A new SQLite
+     * database or data directory is filled from the YAML files on its first
+     * start.
+     */
+    private StorageBackend openStorage() throws IOException {
+        String type = configManager.getStorageType();
+        StorageBackend backend;
+        String description;
+        switch (type) {
+            case "sqlite":
+                backend = new SqliteStorage(this, new File(getDataFolder(), "landclaim.db"));
+                description = "SQLite storage (landclaim.db)";
+                break;
+            case "sharded":
+                backend = new ShardedStorage(this, new File(getDataFolder(), "data"));
+                description = "sharded storage (one file per player in data/)";
+                break;
+            default:
+                if (!type.equals("yaml")) {
+                    getLogger().warning("Unknown storage-type '" + type + "', using yaml");
+                }
+                YamlStorage yaml = new YamlStorage(this, configManager);
+                yaml.open();
+                return yaml;
+        }
+
+        backend.open();
+        if (backend.isNew()) {
+            YamlStorage yaml = new YamlStorage(this, configManager);
+            yaml.open();
+            try {
+                new StorageMigrator(this).migrate(yaml, backend);
+            } catch (IOException e) {
+                // Nothing went live, so the next start migrates again
+                backend.close();
+                throw new IOException("Could not copy the YAML data into " + backend.getName() + " storage: "
+                        + e.getMessage(), e);
+            } finally {
+                yaml.close();
+            }
+        }
+        getLogger().info("Using " + description);
+        return backend;
+    }
+
     public boolean isWorldGuardEnabled() {
         return worldGuardEnabled;
     }
@@ -150,7 +228,22 @@ public class LandClaimPlugin extends JavaPlugin {
 
         // Reload config manager
         configManager.reloadMainConfig();
+        applyConfig();
+
+        // Limits may depend on reloaded config or changed permissions
+        permissionManager.invalidateAll();
+        // Default trust and visitor permissions may have changed
+        trustManager.invalidateAccess();
+
+        // Reload data; pending changes are stored first so the reload sees them
+        storage.saveAll();
+        getLogger().info("Data reload: " + new DataLoader(this).load(false));
+    }
 
+    /**
+     * Settings derived from config.yml that are cached on the plugin
+     */
+    private void applyConfig() {
         // Reload blocked commands and worlds
         blockedCommands = configManager.getBlockedCommands();
         blockedWorlds = configManager.getConfig().getStringList("block-world");
@@ -158,34 +251,23 @@ public class LandClaimPlugin extends JavaPlugin {
         // Convert to lowercase for case-insensitive matching
         blockedCommands = blockedCommands.stream().map(String::toLowerCase).toList();
         blockedWorlds = blockedWorlds.stream().map(String::toLowerCase).toList();
-
-        // Reload claims and trust
-        claimManager.loadClaims();
-        trustManager.loadTrustedPlayers();
-        trustManager.loadPermissions();
-        trustManager.loadMembers();
     }
 
     @Override
     public void onDisable() {
         try {
-            // Save all data synchronously on disable
+            // Save all data on disable; the stores write in parallel and this waits for all of them
             if (saveManager != null) {
                 saveManager.saveAll();
                 getLogger().info("Saved " + claimManager.getTotalClaims() + " claims and " +
                         trustManager.getTotalTrusts() + " trust relationships");
+                saveManager.logMetrics();
             }
-            if (homeManager != null) {
-                homeManager.save();
-                getLogger().info("Saved home data");
+            if (storage != null) {
+                storage.close();
             }
-            if (commandHandler != null) {
-                commandHandler.saveAllPlayerData();
-                getLogger().info("Saved player data (auto-claim states)");
-            }
-            if (visualizationManager != null) {
-                visualizationManager.saveAllPlayerData();
-                getLogger().info("Saved visualization modes");
+            if (saveManager != null) {
+                saveManager.shutdown();
             }
             getLogger().info("LandClaim has been disabled!");
         } catch (Exception e) {
@@ -197,6 +279,10 @@ public class LandClaimPlugin extends JavaPlugin {
         return configManager;
     }
 
+    public PermissionManager getPermissionManager() {
+        return permissionManager;
+    }
+
     public ClaimManager getClaimManager() {
         return claimManager;
     }
@@ -213,10 +299,18 @@ public class LandClaimPlugin extends JavaPlugin {
         return saveManager;
     }
 
+    public StorageBackend getStorage() {
+        return storage;
+    }
+
     public HomeManager getHomeManager() {
         return homeManager;
     }
 
+    public PlayerDataManager getPlayerDataManager() {
+        return playerDataManager;
+    }
+
     public CommandHandler getCommandHandler() {
         return commandHandler;
     }
@@ -29,7 +29,7 @@ public class ClaimTabCompleter implements TabCompleter {
         if (cmd.equals("claim") || cmd.equals("c")) {
             if (args.length == 1) {
                 completions.addAll(Arrays.asList(
-                        "auto", "trust", "untrust", "unstuck",
+                        "auto", "area", "trust", "untrust", "unstuck",
                         "visible", "help", "reload", "admin", "trustlist", "info",
                         "visitor", "member", "list", "sethome", "delhome", "home", "homes"));
             } else if (args.length == 2) {
@@ -40,7 +40,7 @@ public class ClaimTabCompleter implements TabCompleter {
                 } else if (args[0].equalsIgnoreCase("visible")) {
                     completions.addAll(Arrays.asList("always", "off"));
                 } else if (args[0].equalsIgnoreCase("admin")) {
-                    completions.addAll(Arrays.asList("unclaim", "unclaimall"));
+                    completions.addAll(Arrays.asList("unclaim", "unclaimall", "storage"));
                 } else if (args[0].equalsIgnoreCase("visitor")) {
                     completions.add("menu");
                 } else if (args[0].equalsIgnoreCase("member")) {
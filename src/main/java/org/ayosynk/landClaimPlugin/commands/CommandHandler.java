@@ -7,11 +7,14 @@ import net.md_5.bungee.api.chat.TextComponent;
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
 import org.ayosynk.landClaimPlugin.managers.ConfigManager;
 import org.ayosynk.landClaimPlugin.managers.HomeManager;
+import org.ayosynk.landClaimPlugin.managers.SaveManager;
+import org.ayosynk.landClaimPlugin.managers.StoreMetrics;
 import org.ayosynk.landClaimPlugin.managers.TrustManager;
 import org.ayosynk.landClaimPlugin.managers.VisualizationManager;
 import org.ayosynk.landClaimPlugin.managers.VisualizationManager.VisualizationMode;
 import org.ayosynk.landClaimPlugin.managers.ClaimManager;
 import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.ayosynk.landClaimPlugin.storage.PersistentStore;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.Location;
@@ -32,8 +35,6 @@ public class CommandHandler implements CommandExecutor {
     private final ConfigManager configManager;
     private final VisualizationManager visualizationManager;
     private final HomeManager homeManager;
-    private final Map<UUID, Boolean> autoClaimPlayers = new HashMap<>();
-    private final Map<UUID, Boolean> autoUnclaimPlayers = new HashMap<>();
     private final Map<UUID, Long> unstuckCooldowns = new HashMap<>();
 
     public CommandHandler(LandClaimPlugin plugin, ClaimManager claimManager,
@@ -46,9 +47,6 @@ public class CommandHandler implements CommandExecutor {
         this.visualizationManager = visualizationManager;
         this.homeManager = homeManager;
 
-        // Load persisted player data
-        loadPlayerData();
-
         // Safe command registration
         if (plugin.getCommand("claim") != null) {
             plugin.getCommand("claim").setExecutor(this);
@@ -95,6 +93,9 @@ public class CommandHandler implements CommandExecutor {
                 case "auto":
                     toggleAutoClaim(player);
                     break;
+                case "area":
+                    handleAreaCommand(player, args);
+                    break;
                 case "trust":
                     handleTrustCommand(player, args);
                     break;
@@ -240,24 +241,10 @@ public class CommandHandler implements CommandExecutor {
         int startX = origin.getBlockX() >> 4; // Convert to chunk coordinates
         int startZ = origin.getBlockZ() >> 4;
 
-        for (int radius = 1; radius <= 50; radius++) {
-            for (int x = -radius; x <= radius; x++) {
-                for (int z = -radius; z <= radius; z++) {
-                    if (Math.abs(x) != radius && Math.abs(z) != radius)
-                        continue;
-
-                    int chunkX = startX + x;
-                    int chunkZ = startZ + z;
-
-                    ChunkPosition pos = new ChunkPosition(world.getName(), chunkX, chunkZ);
-
-                    if (!claimManager.isChunkClaimed(pos)) {
-                        return findSafeLocation(world, chunkX, chunkZ);
-                    }
-                }
-            }
-        }
-        return null;
+        ChunkPosition pos = claimManager.findNearestUnclaimed(world.getName(), startX, startZ, 50);
+        if (pos == null)
+            return null;
+        return findSafeLocation(world, pos.getX(), pos.getZ());
     }
 
     private Location findSafeLocation(World world, int chunkX, int chunkZ) {
@@ -306,14 +293,16 @@ public class CommandHandler implements CommandExecutor {
                 }
                 adminUnclaimAll(player, args[2]);
                 break;
+            case "storage":
+                showStorageStatus(player);
+                break;
             default:
                 sendMessage(player, "invalid-command");
         }
     }
 
     private void adminUnclaim(Player admin) {
-        Chunk chunk = admin.getLocation().getChunk();
-        ChunkPosition pos = new ChunkPosition(chunk);
+        ChunkPosition pos = new ChunkPosition(admin.getLocation());
 
         if (!claimManager.isChunkClaimed(pos)) {
             sendMessage(admin, "not-owner");
@@ -325,9 +314,8 @@ public class CommandHandler implements CommandExecutor {
         if (ownerName == null)
             ownerName = "Unknown";
 
-        if (claimManager.unclaimChunk(chunk)) {
+        if (claimManager.unclaimChunk(pos)) {
             sendMessage(admin, "admin-unclaimed", "{owner}", ownerName);
-            visualizationManager.invalidateCache(ownerId);
         }
     }
 
@@ -339,15 +327,37 @@ public class CommandHandler implements CommandExecutor {
         }
 
         UUID targetId = target.getUniqueId();
+        long start = System.nanoTime();
         int count = claimManager.unclaimAll(targetId);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
         if (count > 0) {
-            sendMessage(admin, "admin-unclaimed-all", "{player}", targetName, "{count}", String.valueOf(count));
-            visualizationManager.invalidateCache(targetId);
+            sendMessage(admin, "admin-unclaimed-all", "{player}", targetName, "{count}", String.valueOf(count),
+                    "{time}", String.valueOf(elapsedMillis));
+            plugin.getLogger().info(admin.getName() + " unclaimed " + count + " chunks from " + targetName + " in "
+                    + elapsedMillis + " ms");
         } else {
             sendMessage(admin, "no-claims-found");
         }
     }
 
+    private void showStorageStatus(Player admin) {
+        SaveManager saveManager = plugin.getSaveManager();
+        sendMessage(admin, "admin-storage-header");
+        for (PersistentStore store : saveManager.getStores()) {
+            StoreMetrics metrics = saveManager.getMetrics(store);
+            sendMessage(admin, "admin-storage-entry",
+                    "{store}", store.getName(),
+                    "{pending}", String.valueOf(store.getPendingChanges()),
+                    "{flushes}", String.valueOf(metrics.getFlushes()),
+                    "{bytes}", SaveManager.formatBytes(metrics.getBytesWritten()),
+                    "{last}", String.format("%.1f", metrics.getLastFlushNanos() / 1e6),
+                    "{failures}", String.valueOf(metrics.getFailures()));
+            if (metrics.getLastError() != null) {
+                sendMessage(admin, "admin-storage-error", "{error}", metrics.getLastError());
+            }
+        }
+    }
+
     public void showTrustList(Player player) {
         UUID playerId = player.getUniqueId();
         Set<UUID> trusted = trustManager.getTrustedPlayers(playerId);
@@ -445,13 +455,13 @@ public class CommandHandler implements CommandExecutor {
             case "add":
                 if (trustManager.addMember(ownerId, target)) {
                     sendMessage(player, "member-added", "{player}", target.getName());
-                    trustManager.savePermissionsAndMembers();
+                    trustManager.save();
                 }
                 break;
             case "remove":
                 if (trustManager.removeMember(ownerId, target)) {
                     sendMessage(player, "member-removed", "{player}", target.getName());
-                    trustManager.savePermissionsAndMembers();
+                    trustManager.save();
                 } else {
                     sendMessage(player, "not-a-member");
                 }
@@ -483,9 +493,84 @@ public class CommandHandler implements CommandExecutor {
         }
     }
 
+    /**
+     * /claim area <radius> claims the square around the current chunk;
+     * /claim area <x1> <z1> <x2> <z2> claims a rectangle in chunk coordinates.
+     * The whole area is claimed in one transaction or not at all.
+     */
+    private void handleAreaCommand(Player player, String[] args) {
+        if (!player.hasPermission("landclaim.area")) {
+            sendMessage(player, "access-denied");
+            return;
+        }
+
+        int maxArea = configManager.getMaxAreaClaim();
+        int minX, minZ, maxX, maxZ;
+        try {
+            if (args.length == 2) {
+                int radius = Integer.parseInt(args[1]);
+                if (radius < 0) {
+                    sendMessage(player, "area-usage");
+                    return;
+                }
+                // Refuse before the bounds are computed, so a huge radius cannot overflow them
+                long side = 2L * radius + 1;
+                if (side * side > maxArea) {
+                    sendMessage(player, "area-too-large", "{count}", String.valueOf(side * side),
+                            "{max}", String.valueOf(maxArea));
+                    return;
+                }
+                Location location = player.getLocation();
+                int chunkX = location.getBlockX() >> 4;
+                int chunkZ = location.getBlockZ() >> 4;
+                minX = chunkX - radius;
+                minZ = chunkZ - radius;
+                maxX = chunkX + radius;
+                maxZ = chunkZ + radius;
+            } else if (args.length == 5) {
+                int x1 = Integer.parseInt(args[1]);
+                int z1 = Integer.parseInt(args[2]);
+                int x2 = Integer.parseInt(args[3]);
+                int z2 = Integer.parseInt(args[4]);
+                minX = Math.min(x1, x2);
+                minZ = Math.min(z1, z2);
+                maxX = Math.max(x1, x2);
+                maxZ = Math.max(z1, z2);
+            } else {
+                sendMessage(player, "area-usage");
+                return;
+            }
+        } catch (NumberFormatException e) {
+            sendMessage(player, "area-usage");
+            return;
+        }
+
+        // In long: corners near the int limits would overflow the width and depth
+        long width = (long) maxX - minX + 1;
+        long depth = (long) maxZ - minZ + 1;
+        long area = width * depth;
+        if (area > maxArea) {
+            sendMessage(player, "area-too-large", "{count}", String.valueOf(area), "{max}", String.valueOf(maxArea));
+            return;
+        }
+
+        // Count from the corner rather than up to maxX, which may be Integer.MAX_VALUE
+        String worldName = player.getWorld().getName();
+        List<ChunkPosition> positions = new ArrayList<>((int) area);
+        for (int dx = 0; dx < width; dx++) {
+            for (int dz = 0; dz < depth; dz++) {
+                positions.add(new ChunkPosition(worldName, minX + dx, minZ + dz));
+            }
+        }
+
+        int claimed = claimManager.claimChunks(player, positions);
+        if (claimed > 0) {
+            sendMessage(player, "area-claimed", "{count}", String.valueOf(claimed));
+        }
+    }
+
     private void unclaimCurrentChunk(Player player) {
-        Chunk chunk = player.getLocation().getChunk();
-        ChunkPosition pos = new ChunkPosition(chunk);
+        ChunkPosition pos = new ChunkPosition(player.getLocation());
 
         if (!claimManager.isChunkClaimed(pos)) {
             sendMessage(player, "not-owner");
@@ -497,24 +582,20 @@ public class CommandHandler implements CommandExecutor {
             return;
         }
 
-        if (claimManager.unclaimChunk(chunk)) {
+        if (claimManager.unclaimChunk(pos)) {
             sendMessage(player, "chunk-unclaimed");
         }
     }
 
     private void toggleAutoClaim(Player player) {
-        boolean current = autoClaimPlayers.getOrDefault(player.getUniqueId(),
-                configManager.getConfig().getBoolean("auto-claim-default", false));
-        boolean newValue = !current;
-        autoClaimPlayers.put(player.getUniqueId(), newValue);
+        boolean newValue = !isAutoClaimEnabled(player.getUniqueId());
+        plugin.getPlayerDataManager().update(player.getUniqueId(), state -> state.setAutoClaim(newValue));
         sendMessage(player, newValue ? "auto-claim-enabled" : "auto-claim-disabled");
     }
 
     private void toggleAutoUnclaim(Player player) {
-        boolean current = autoUnclaimPlayers.getOrDefault(player.getUniqueId(),
-                configManager.getConfig().getBoolean("auto-unclaim-default", false));
-        boolean newValue = !current;
-        autoUnclaimPlayers.put(player.getUniqueId(), newValue);
+        boolean newValue = !isAutoUnclaimEnabled(player.getUniqueId());
+        plugin.getPlayerDataManager().update(player.getUniqueId(), state -> state.setAutoUnclaim(newValue));
         sendMessage(player, newValue ? "auto-unclaim-enabled" : "auto-unclaim-disabled");
     }
 
@@ -526,7 +607,7 @@ public class CommandHandler implements CommandExecutor {
 
         if (trustManager.addTrustedPlayer(player, targetName)) {
             sendMessage(player, "player-trusted-all", "{player}", targetName);
-            trustManager.saveTrustedPlayers();
+            trustManager.save();
         } else {
             sendMessage(player, "player-not-found");
         }
@@ -535,7 +616,7 @@ public class CommandHandler implements CommandExecutor {
     private void untrustPlayer(Player player, String targetName) {
         if (trustManager.removeTrustedPlayer(player, targetName)) {
             sendMessage(player, "player-untrusted-all", "{player}", targetName);
-            trustManager.saveTrustedPlayers();
+            trustManager.save();
         } else {
             sendMessage(player, "player-not-trusted");
         }
@@ -543,10 +624,12 @@ public class CommandHandler implements CommandExecutor {
 
     private void unclaimAll(Player player) {
         UUID playerId = player.getUniqueId();
+        long start = System.nanoTime();
         int count = claimManager.unclaimAll(playerId);
+        long elapsedMillis = (System.nanoTime() - start) / 1_000_000;
         if (count > 0) {
-            sendMessage(player, "unclaimed-all", "{count}", String.valueOf(count));
-            visualizationManager.invalidateCache(playerId);
+            sendMessage(player, "unclaimed-all", "{count}", String.valueOf(count), "{time}",
+                    String.valueOf(elapsedMillis));
         } else {
             sendMessage(player, "no-claims-found");
         }
@@ -558,6 +641,7 @@ public class CommandHandler implements CommandExecutor {
                 "help-claim",
                 "help-unclaim",
                 "help-claim-auto",
+                "help-claim-area",
                 "help-unclaim-auto",
                 "help-trust",
                 "help-untrust",
@@ -659,9 +743,6 @@ public class CommandHandler implements CommandExecutor {
         }
 
         homeManager.setHome(playerId, name, player.getLocation());
-        if (plugin.getSaveManager() != null) {
-            plugin.getSaveManager().markHomesDirty();
-        }
         sendMessage(player, "home-set", "{name}", name);
     }
 
@@ -680,9 +761,6 @@ public class CommandHandler implements CommandExecutor {
         UUID playerId = player.getUniqueId();
 
         if (homeManager.deleteHome(playerId, name)) {
-            if (plugin.getSaveManager() != null) {
-                plugin.getSaveManager().markHomesDirty();
-            }
             sendMessage(player, "home-deleted", "{name}", name);
         } else {
             sendMessage(player, "home-not-found", "{name}", name);
@@ -755,85 +833,19 @@ public class CommandHandler implements CommandExecutor {
     }
 
     public boolean isAutoClaimEnabled(UUID playerId) {
-        return autoClaimPlayers.getOrDefault(playerId,
-                configManager.getConfig().getBoolean("auto-claim-default", false));
+        Boolean enabled = plugin.getPlayerDataManager().get(playerId).getAutoClaim();
+        return enabled != null ? enabled : configManager.getConfig().getBoolean("auto-claim-default", false);
     }
 
     public boolean isAutoUnclaimEnabled(UUID playerId) {
-        return autoUnclaimPlayers.getOrDefault(playerId,
-                configManager.getConfig().getBoolean("auto-unclaim-default", false));
+        Boolean enabled = plugin.getPlayerDataManager().get(playerId).getAutoUnclaim();
+        return enabled != null ? enabled : configManager.getConfig().getBoolean("auto-unclaim-default", false);
     }
 
     /**
      * Clean up player data when they quit to prevent memory leaks
      */
     public void cleanupPlayer(UUID playerId) {
-        // Save state before removing from memory
-        savePlayerState(playerId);
-        autoClaimPlayers.remove(playerId);
-        autoUnclaimPlayers.remove(playerId);
         unstuckCooldowns.remove(playerId);
     }
-
-    /**
-     * Load persisted player data from playerdata.yml
-     */
-    private void loadPlayerData() {
-        var playerDataConfig = configManager.getPlayerDataConfig();
-        var autoClaimSection = playerDataConfig.getConfigurationSection("auto-claim");
-        var autoUnclaimSection = playerDataConfig.getConfigurationSection("auto-unclaim");
-
-        if (autoClaimSection != null) {
-            for (String uuidStr : autoClaimSection.getKeys(false)) {
-                try {
-                    UUID playerId = UUID.fromString(uuidStr);
-                    autoClaimPlayers.put(playerId, autoClaimSection.getBoolean(uuidStr));
-                } catch (IllegalArgumentException ignored) {
-                }
-            }
-        }
-
-        if (autoUnclaimSection != null) {
-            for (String uuidStr : autoUnclaimSection.getKeys(false)) {
-                try {
-                    UUID playerId = UUID.fromString(uuidStr);
-                    autoUnclaimPlayers.put(playerId, autoUnclaimSection.getBoolean(uuidStr));
-                } catch (IllegalArgumentException ignored) {
-                }
-            }
-        }
-    }
-
-    /**
-     * Save a single player's state to playerdata.yml
-     */
-    private void savePlayerState(UUID playerId) {
-        var playerDataConfig = configManager.getPlayerDataConfig();
-        String uuidStr = playerId.toString();
-
-        if (autoClaimPlayers.containsKey(playerId)) {
-            playerDataConfig.set("auto-claim." + uuidStr, autoClaimPlayers.get(playerId));
-        }
-        if (autoUnclaimPlayers.containsKey(playerId)) {
-            playerDataConfig.set("auto-unclaim." + uuidStr, autoUnclaimPlayers.get(playerId));
-        }
-
-        configManager.savePlayerData();
-    }
-
-    /**
-     * Save all player data (called on plugin disable)
-     */
-    public void saveAllPlayerData() {
-        var playerDataConfig = configManager.getPlayerDataConfig();
-
-        for (Map.Entry<UUID, Boolean> entry : autoClaimPlayers.entrySet()) {
-            playerDataConfig.set("auto-claim." + entry.getKey().toString(), entry.getValue());
-        }
-        for (Map.Entry<UUID, Boolean> entry : autoUnclaimPlayers.entrySet()) {
-            playerDataConfig.set("auto-unclaim." + entry.getKey().toString(), entry.getValue());
-        }
-
-        configManager.savePlayerData();
-    }
-}
\ No newline at end of file
+}
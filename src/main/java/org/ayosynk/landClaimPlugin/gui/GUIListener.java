@@ -2,6 +2,7 @@ package org.ayosynk.landClaimPlugin.gui;
 
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
 import org.ayosynk.landClaimPlugin.managers.TrustManager;
+import org.ayosynk.landClaimPlugin.models.ClaimPermission;
 import org.ayosynk.landClaimPlugin.utils.ChatUtils;
 import org.bukkit.ChatColor;
 import org.bukkit.Material;
@@ -90,7 +91,7 @@ public class GUIListener implements Listener {
             }
             
             if (permissionIndex >= 0 && permissionIndex < VisitorMenuGUI.PERMISSIONS.length) {
-                String permission = VisitorMenuGUI.PERMISSIONS[permissionIndex];
+                ClaimPermission permission = VisitorMenuGUI.PERMISSIONS[permissionIndex];
                 boolean current = trustManager.hasVisitorPermission(
                         player.getUniqueId(),
                         permission
@@ -102,7 +103,7 @@ public class GUIListener implements Listener {
                         !current
                 );
 
-                trustManager.savePermissionsAndMembers();
+                trustManager.save();
 
                 VisitorMenuGUI.open(player, trustManager);
             }
@@ -151,7 +152,7 @@ public class GUIListener implements Listener {
             }
             
             if (permissionIndex >= 0 && permissionIndex < TrustMenuGUI.PERMISSIONS.length) {
-                String permission = TrustMenuGUI.PERMISSIONS[permissionIndex];
+                ClaimPermission permission = TrustMenuGUI.PERMISSIONS[permissionIndex];
                 boolean current = trustManager.hasTrustPermission(
                         player.getUniqueId(),
                         trustedPlayer.getUniqueId(),
@@ -165,7 +166,7 @@ public class GUIListener implements Listener {
                         !current
                 );
 
-                trustManager.savePermissionsAndMembers();
+                trustManager.save();
 
                 TrustMenuGUI.open(player, trustedPlayer, trustManager);
             }
@@ -1,6 +1,7 @@
 package org.ayosynk.landClaimPlugin.gui;
 
 import org.ayosynk.landClaimPlugin.managers.TrustManager;
+import org.ayosynk.landClaimPlugin.models.ClaimPermission;
 import org.ayosynk.landClaimPlugin.utils.ChatUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -17,7 +18,7 @@ import java.util.List;
 import java.util.UUID;
 
 public class TrustMenuGUI {
-    public static final String[] PERMISSIONS = {"BUILD", "INTERACT", "CONTAINER", "TELEPORT"};
+    public static final ClaimPermission[] PERMISSIONS = ClaimPermission.values();
     public static final int[] PERMISSION_SLOTS = {10, 12, 14, 16};
     
     private static final ItemStack BORDER_PANE;
@@ -57,7 +58,7 @@ public class TrustMenuGUI {
 
         // Add permission toggles
         for (int i = 0; i < PERMISSIONS.length; i++) {
-            String permission = PERMISSIONS[i];
+            ClaimPermission permission = PERMISSIONS[i];
             boolean hasPermission = trustManager.hasTrustPermission(ownerId, trustedId, permission);
 
             Material material = getPermissionMaterial(permission, hasPermission);
@@ -66,7 +67,7 @@ public class TrustMenuGUI {
 
             String status = trustManager.getConfigManager().getMessage(
                     hasPermission ? "permission-enabled" : "permission-disabled",
-                    "{permission}", permission
+                    "{permission}", permission.name()
             );
 
             List<String> lore = new ArrayList<>();
@@ -92,24 +93,22 @@ public class TrustMenuGUI {
         owner.openInventory(gui);
     }
     
-    private static Material getPermissionMaterial(String permission, boolean enabled) {
+    private static Material getPermissionMaterial(ClaimPermission permission, boolean enabled) {
         if (!enabled) return Material.GRAY_DYE;
         return switch (permission) {
-            case "BUILD" -> Material.BRICKS;
-            case "INTERACT" -> Material.LEVER;
-            case "CONTAINER" -> Material.CHEST;
-            case "TELEPORT" -> Material.ENDER_PEARL;
-            default -> Material.LIME_DYE;
+            case BUILD -> Material.BRICKS;
+            case INTERACT -> Material.LEVER;
+            case CONTAINER -> Material.CHEST;
+            case TELEPORT -> Material.ENDER_PEARL;
         };
     }
     
-    private static String getPermissionDescription(String permission) {
+    private static String getPermissionDescription(ClaimPermission permission) {
         return switch (permission) {
-            case "BUILD" -> "&7Place and break blocks";
-            case "INTERACT" -> "&7Use doors, buttons, levers";
-            case "CONTAINER" -> "&7Open chests, furnaces, etc.";
-            case "TELEPORT" -> "&7Teleport to this claim";
-            default -> "&7Unknown permission";
+            case BUILD -> "&7Place and break blocks";
+            case INTERACT -> "&7Use doors, buttons, levers";
+            case CONTAINER -> "&7Open chests, furnaces, etc.";
+            case TELEPORT -> "&7Teleport to this claim";
         };
     }
     
@@ -1,6 +1,7 @@
 package org.ayosynk.landClaimPlugin.gui;
 
 import org.ayosynk.landClaimPlugin.managers.TrustManager;
+import org.ayosynk.landClaimPlugin.models.ClaimPermission;
 import org.ayosynk.landClaimPlugin.utils.ChatUtils;
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
@@ -15,7 +16,7 @@ import java.util.List;
 import java.util.UUID;
 
 public class VisitorMenuGUI {
-    public static final String[] PERMISSIONS = {"BUILD", "INTERACT", "CONTAINER", "TELEPORT"};
+    public static final ClaimPermission[] PERMISSIONS = ClaimPermission.values();
     public static final int[] PERMISSION_SLOTS = {10, 12, 14, 16};
     
     private static final ItemStack BORDER_PANE;
@@ -53,7 +54,7 @@ public class VisitorMenuGUI {
 
         // Add permission toggles
         for (int i = 0; i < PERMISSIONS.length; i++) {
-            String permission = PERMISSIONS[i];
+            ClaimPermission permission = PERMISSIONS[i];
             boolean hasPermission = trustManager.hasVisitorPermission(ownerId, permission);
 
             Material material = getPermissionMaterial(permission, hasPermission);
@@ -62,7 +63,7 @@ public class VisitorMenuGUI {
 
             String status = trustManager.getConfigManager().getMessage(
                     hasPermission ? "permission-enabled" : "permission-disabled",
-                    "{permission}", permission
+                    "{permission}", permission.name()
             );
 
             List<String> lore = new ArrayList<>();
@@ -72,7 +73,7 @@ public class VisitorMenuGUI {
             lore.add(ChatUtils.colorize("&eClick to toggle"));
             
             // Warning for dangerous permissions
-            if (permission.equals("BUILD") && hasPermission) {
+            if (permission == ClaimPermission.BUILD && hasPermission) {
                 lore.add("");
                 lore.add(ChatUtils.colorize("&c⚠ Warning: Anyone can build!"));
             }
@@ -94,24 +95,22 @@ public class VisitorMenuGUI {
         owner.openInventory(gui);
     }
     
-    private static Material getPermissionMaterial(String permission, boolean enabled) {
+    private static Material getPermissionMaterial(ClaimPermission permission, boolean enabled) {
         if (!enabled) return Material.GRAY_DYE;
         return switch (permission) {
-            case "BUILD" -> Material.BRICKS;
-            case "INTERACT" -> Material.LEVER;
-            case "CONTAINER" -> Material.CHEST;
-            case "TELEPORT" -> Material.ENDER_PEARL;
-            default -> Material.LIME_DYE;
+            case BUILD -> Material.BRICKS;
+            case INTERACT -> Material.LEVER;
+            case CONTAINER -> Material.CHEST;
+            case TELEPORT -> Material.ENDER_PEARL;
         };
     }
     
-    private static String getPermissionDescription(String permission) {
+    private static String getPermissionDescription(ClaimPermission permission) {
         return switch (permission) {
-            case "BUILD" -> "&7Place and break blocks";
-            case "INTERACT" -> "&7Use doors, buttons, levers";
-            case "CONTAINER" -> "&7Open chests, furnaces, etc.";
-            case "TELEPORT" -> "&7Teleport to this claim";
-            default -> "&7Unknown permission";
+            case BUILD -> "&7Place and break blocks";
+            case INTERACT -> "&7Use doors, buttons, levers";
+            case CONTAINER -> "&7Open chests, furnaces, etc.";
+            case TELEPORT -> "&7Teleport to this claim";
         };
     }
     
@@ -9,6 +9,7 @@ import de.bluecolored.bluemap.api.math.Shape;
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
 import org.ayosynk.landClaimPlugin.managers.ClaimManager;
 import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.ayosynk.landClaimPlugin.models.ClaimRegion;
 import org.bukkit.Bukkit;
 
 import java.util.*;
@@ -29,7 +30,8 @@ public class BlueMapHook {
         BlueMapAPI.onEnable(api -> {
             active = true;
             plugin.getLogger().info("BlueMap integration enabled.");
-            update();
+            // Called on BlueMap's thread; the claim index may only be read on the main thread
+            Bukkit.getScheduler().runTask(plugin, this::update);
         });
 
         BlueMapAPI.onDisable(api -> {
@@ -44,16 +46,12 @@ public class BlueMapHook {
     public void update() {
         BlueMapAPI.getInstance().ifPresent(api -> {
             // Build markers per world
-            // Collect all player claims grouped by world
-            Map<String, Map<UUID, Set<ChunkPosition>>> worldPlayerClaims = new HashMap<>();
-
-            for (UUID playerId : getAllPlayerIds()) {
-                Set<ChunkPosition> claims = claimManager.getPlayerClaims(playerId);
-                for (ChunkPosition pos : claims) {
-                    worldPlayerClaims
-                            .computeIfAbsent(pos.getWorld(), k -> new HashMap<>())
-                            .computeIfAbsent(playerId, k -> new HashSet<>())
-                            .add(pos);
+            // Collect all connected claim regions grouped by world
+            Map<String, List<ClaimRegion>> worldRegions = new HashMap<>();
+
+            for (UUID playerId : claimManager.getClaimOwners()) {
+                for (ClaimRegion region : claimManager.getRegions(playerId)) {
+                    worldRegions.computeIfAbsent(region.getWorld(), k -> new ArrayList<>()).add(region);
                 }
             }
 
@@ -72,19 +70,19 @@ public class BlueMapHook {
                         .build();
 
                 // Find which world name matches this map's world
-                Map<UUID, Set<ChunkPosition>> playerClaimsInWorld = null;
-                for (Map.Entry<String, Map<UUID, Set<ChunkPosition>>> entry : worldPlayerClaims.entrySet()) {
+                List<ClaimRegion> regionsInWorld = null;
+                for (Map.Entry<String, List<ClaimRegion>> entry : worldRegions.entrySet()) {
                     String worldName = entry.getKey();
                     // BlueMap world IDs can vary, try matching by name
                     if (worldId.contains(worldName) || worldName.equals(worldId)) {
-                        playerClaimsInWorld = entry.getValue();
+                        regionsInWorld = entry.getValue();
                         break;
                     }
                 }
 
-                if (playerClaimsInWorld != null) {
-                    for (Map.Entry<UUID, Set<ChunkPosition>> entry : playerClaimsInWorld.entrySet()) {
-                        UUID playerId = entry.getKey();
+                if (regionsInWorld != null) {
+                    for (ClaimRegion region : regionsInWorld) {
+                        UUID playerId = region.getOwner();
                         String playerName = Bukkit.getOfflinePlayer(playerId).getName();
                         if (playerName == null)
                             playerName = "Unknown";
@@ -97,9 +95,8 @@ public class BlueMapHook {
                         Color pFill = new Color(r, g, b, (float) fillOpacity);
                         Color pBorder = new Color(r, g, b, (float) borderOpacity);
 
-                        // Create a merged marker for each contiguous polygon
-                        Set<ChunkPosition> chunks = entry.getValue();
-                        List<double[][]> polygons = createPolygons(chunks);
+                        // Create a merged marker for each polygon of the region
+                        List<double[][]> polygons = createPolygons(region.getChunks());
                         int i = 0;
                         for (double[][] polygon : polygons) {
                             if (polygon[0].length < 3)
@@ -135,7 +132,8 @@ public class BlueMapHook {
                                     .depthTestEnabled(false)
                                     .build();
 
-                            String markerId = playerId.toString() + "_" + i;
+                            // Keyed by region id so markers stay stable while other regions change
+                            String markerId = playerId.toString() + "_" + region.getId() + "_" + i;
                             markerSet.getMarkers().put(markerId, marker);
                             i++;
                         }
@@ -227,19 +225,6 @@ public class BlueMapHook {
         return polygons;
     }
 
-    private Set<UUID> getAllPlayerIds() {
-        Set<UUID> playerIds = new HashSet<>();
-        for (var offlinePlayer : Bukkit.getOfflinePlayers()) {
-            if (offlinePlayer.hasPlayedBefore()) {
-                UUID playerId = offlinePlayer.getUniqueId();
-                if (!claimManager.getPlayerClaims(playerId).isEmpty()) {
-                    playerIds.add(playerId);
-                }
-            }
-        }
-        return playerIds;
-    }
-
     public boolean isActive() {
         return active;
     }
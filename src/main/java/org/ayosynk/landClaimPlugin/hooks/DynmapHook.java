@@ -3,6 +3,7 @@ package org.ayosynk.landClaimPlugin.hooks;
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
 import org.ayosynk.landClaimPlugin.managers.ClaimManager;
 import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.ayosynk.landClaimPlugin.models.ClaimRegion;
 import org.bukkit.Bukkit;
 import org.dynmap.DynmapCommonAPI;
 import org.dynmap.markers.AreaMarker;
@@ -83,29 +84,22 @@ public class DynmapHook {
         int borderColor = parseHexColor(borderColorHex);
 
         // Create markers for all claims
-        for (UUID playerId : getAllPlayerIds()) {
+        for (UUID playerId : claimManager.getClaimOwners()) {
             String playerName = Bukkit.getOfflinePlayer(playerId).getName();
             if (playerName == null)
                 playerName = "Unknown";
 
-            Set<ChunkPosition> claims = claimManager.getPlayerClaims(playerId);
-
-            // Group claims by world before merging
-            Map<String, Set<ChunkPosition>> claimsByWorld = new HashMap<>();
-            for (ChunkPosition pos : claims) {
-                claimsByWorld.computeIfAbsent(pos.getWorld(), k -> new HashSet<>()).add(pos);
-            }
-
-            int i = 0;
-            for (Map.Entry<String, Set<ChunkPosition>> worldEntry : claimsByWorld.entrySet()) {
-                String worldName = worldEntry.getKey();
-                List<double[][]> polygons = createPolygons(worldEntry.getValue());
+            // Regions are already split per world and connected component
+            for (ClaimRegion region : claimManager.getRegions(playerId)) {
+                String worldName = region.getWorld();
+                List<double[][]> polygons = createPolygons(region.getChunks());
 
+                int i = 0;
                 for (double[][] polygon : polygons) {
                     if (polygon[0].length < 3)
                         continue;
 
-                    String markerId = "lc_" + playerId.toString() + "_" + i;
+                    String markerId = "lc_" + playerId.toString() + "_" + region.getId() + "_" + i;
                     String label = playerName + "'s Claim";
 
                     double[] xCorners = polygon[0];
@@ -216,19 +210,6 @@ public class DynmapHook {
         }
     }
 
-    private Set<UUID> getAllPlayerIds() {
-        Set<UUID> playerIds = new HashSet<>();
-        for (var offlinePlayer : Bukkit.getOfflinePlayers()) {
-            if (offlinePlayer.hasPlayedBefore()) {
-                UUID playerId = offlinePlayer.getUniqueId();
-                if (!claimManager.getPlayerClaims(playerId).isEmpty()) {
-                    playerIds.add(playerId);
-                }
-            }
-        }
-        return playerIds;
-    }
-
     public boolean isActive() {
         return active;
     }
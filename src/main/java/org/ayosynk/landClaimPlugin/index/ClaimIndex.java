@@ -0,0 +1,579 @@
+package org.ayosynk.landClaimPlugin.index;
+
+import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.ayosynk.landClaimPlugin.models.ClaimRegion;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-memory index of every claimed chunk.
+ *
+ * Each world keeps an open-addressing map from packed chunk coordinates
+ * ({@link ChunkPosition#pack(int, int)}) to a compact int owner id, so a lookup
+ * is a single probe into a primitive array. The reverse direction (owner to
+ * chunks) is kept as one packed set per owner and world.
+ *
+ * Alongside the hash tables every world and every owner keeps a
+ * {@link TileOccupancy} bitmap, which answers box queries ("anything claimed
+ * here?", "anything claimed by someone else here?") with word operations
+ * instead of one probe per chunk.
+ *
+ * Owner chunks are grouped into connected regions by a {@link RegionTracker},
+ * whose ids stay stable while a region grows, shrinks or absorbs others.
+ *
+ * Mutations are expected on the server thread only.
+ */
+public class ClaimIndex {
+    private static final int NO_OWNER = -1;
+
+    // Ring cell = centre + t * (X_T, Z_T) + r * (X_R, Z_R), one entry per edge half
+    private static final int[] RING_X_T = { 1, -1, 1, -1, 0, 0, 0, 0 };
+    private static final int[] RING_X_R = { 0, 0, 0, 0, -1, -1, 1, 1 };
+    private static final int[] RING_Z_T = { 0, 0, 0, 0, 1, -1, 1, -1 };
+    private static final int[] RING_Z_R = { -1, -1, 1, 1, 0, 0, 0, 0 };
+
+    private final Map<String, WorldClaims> worlds = new ConcurrentHashMap<>();
+    private final Map<UUID, OwnerClaims> owners = new ConcurrentHashMap<>();
+
+    // Owner ids are handed out once and never reused, so stale ids cannot alias
+    private final Map<UUID, Integer> ownerIds = new HashMap<>();
+    private UUID[] ownerTable = new UUID[64];
+    private int ownerCount;
+
+    private int size;
+
+    // Region ids are handed out once and never reused
+    private int nextRegionId;
+    private boolean diagonalConnections;
+
+    public UUID getOwner(String world, int x, int z) {
+        WorldClaims claims = worlds.get(world);
+        if (claims == null)
+            return null;
+        int id = claims.chunks.get(ChunkPosition.pack(x, z));
+        return id == NO_OWNER ? null : ownerTable[id];
+    }
+
+    public boolean isClaimed(String world, int x, int z) {
+        WorldClaims claims = worlds.get(world);
+        return claims != null && claims.chunks.containsKey(ChunkPosition.pack(x, z));
+    }
+
+    /**
+     * Check whether any chunk in the inclusive box is claimed.
+     */
+    public boolean anyClaimInBox(String world, int minX, int minZ, int maxX, int maxZ) {
+        WorldClaims claims = worlds.get(world);
+        return claims != null && claims.occupancy.anyInBox(minX, minZ, maxX, maxZ);
+    }
+
+    /**
+     * Check whether any chunk in the inclusive box is claimed by someone other
+     * than {@code owner}.
+     */
+    public boolean anyOtherOwnerInBox(String world, int minX, int minZ, int maxX, int maxZ, UUID owner) {
+        WorldClaims claims = worlds.get(world);
+        if (claims == null)
+            return false;
+        OwnerClaims ownerClaims = owner != null ? owners.get(owner) : null;
+        OwnerWorldClaims excluded = ownerClaims != null ? ownerClaims.byWorld.get(world) : null;
+        return claims.occupancy.anyInBox(minX, minZ, maxX, maxZ, excluded != null ? excluded.occupancy : null);
+    }
+
+    /**
+     * Find the unclaimed chunk closest to a starting chunk, searching square
+     * rings outward up to {@code maxRadius}. Within a ring the chunk nearest
+     * to the ring's edge midpoints (the smallest euclidean distance) wins.
+     * Each probe is a bitmap test, and the search stops at the first ring
+     * with a free chunk, so its cost follows the claims surrounding the start.
+     *
+     * @return the chunk, or null if everything within the radius is claimed
+     */
+    public ChunkPosition nearestUnclaimed(String world, int x, int z, int maxRadius) {
+        WorldClaims claims = worlds.get(world);
+        if (claims == null || !claims.occupancy.get(x, z))
+            return new ChunkPosition(world, x, z);
+
+        TileOccupancy occupancy = claims.occupancy;
+        for (int r = 1; r <= maxRadius; r++) {
+            for (int t = 0; t <= r; t++) {
+                // The eight ring cells at offset t from the edge midpoints
+                for (int i = 0; i < RING_X_T.length; i++) {
+                    int cx = x + RING_X_T[i] * t + RING_X_R[i] * r;
+                    int cz = z + RING_Z_T[i] * t + RING_Z_R[i] * r;
+                    if (!occupancy.get(cx, cz))
+                        return new ChunkPosition(world, cx, cz);
+                }
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Claimed chunks within a euclidean radius (in chunks), nearest first.
+     */
+    public List<ChunkPosition> claimsWithin(String world, int x, int z, int radius) {
+        WorldClaims claims = worlds.get(world);
+        if (claims == null)
+            return Collections.emptyList();
+
+        long radiusSquared = (long) radius * radius;
+        int worldId = ChunkPosition.worldId(world);
+        List<long[]> found = new ArrayList<>();
+        claims.occupancy.forEachInBox(x - radius, z - radius, x + radius, z + radius, (cx, cz) -> {
+            long distance = distanceSquared(x, z, cx, cz);
+            if (distance <= radiusSquared) {
+                found.add(new long[] { distance, ChunkPosition.pack(cx, cz) });
+            }
+        });
+
+        found.sort(Comparator.comparingLong(entry -> entry[0]));
+        List<ChunkPosition> result = new ArrayList<>(found.size());
+        for (long[] entry : found) {
+            result.add(new ChunkPosition(worldId, ChunkPosition.unpackX(entry[1]), ChunkPosition.unpackZ(entry[1])));
+        }
+        return result;
+    }
+
+    /**
+     * The {@code count} distinct owners whose nearest claim is closest to a
+     * chunk, searching up to {@code maxRadius} chunks. The search box doubles
+     * until enough owners are settled, so only nearby tiles are scanned.
+     */
+    public List<UUID> nearestOwners(String world, int x, int z, int count, int maxRadius) {
+        WorldClaims claims = worlds.get(world);
+        if (claims == null || count <= 0)
+            return Collections.emptyList();
+
+        Map<Integer, Long> bestDistance = new HashMap<>();
+        for (int r = Math.min(8, maxRadius); ; r = Math.min(r << 1, maxRadius)) {
+            bestDistance.clear();
+            claims.occupancy.forEachInBox(x - r, z - r, x + r, z + r, (cx, cz) -> {
+                int id = claims.chunks.get(ChunkPosition.pack(cx, cz));
+                bestDistance.merge(id, distanceSquared(x, z, cx, cz), Math::min);
+            });
+
+            // Anything outside the box is further than r, so owners within r are final
+            long settledSquared = (long) r * r;
+            long settled = bestDistance.values().stream().filter(d -> d <= settledSquared).count();
+            if (settled >= count || r >= maxRadius)
+                break;
+        }
+
+        long limitSquared = (long) maxRadius * maxRadius;
+        List<Map.Entry<Integer, Long>> entries = new ArrayList<>(bestDistance.entrySet());
+        entries.removeIf(entry -> entry.getValue() > limitSquared);
+        entries.sort(Map.Entry.comparingByValue());
+        List<UUID> result = new ArrayList<>(Math.min(count, entries.size()));
+        for (int i = 0; i < entries.size() && i < count; i++) {
+            result.add(ownerTable[entries.get(i).getKey()]);
+        }
+        return result;
+    }
+
+    private static long distanceSquared(int x1, int z1, int x2, int z2) {
+        long dx = x1 - x2;
+        long dz = z1 - z2;
+        return dx * dx + dz * dz;
+    }
+
+    /**
+     * Assign a chunk to an owner, replacing any previous owner.
+     *
+     * @return the previous owner, or null if the chunk was unclaimed
+     */
+    public UUID put(String world, int x, int z, UUID owner) {
+        long key = ChunkPosition.pack(x, z);
+        WorldClaims claims = worlds.computeIfAbsent(world, k -> new WorldClaims());
+        int id = idFor(owner);
+
+        int previousId = claims.chunks.put(key, id);
+        if (previousId == id)
+            return owner;
+
+        UUID previousOwner = null;
+        if (previousId == NO_OWNER) {
+            claims.occupancy.set(x, z);
+            size++;
+        } else {
+            previousOwner = ownerTable[previousId];
+            removeFromOwner(previousOwner, world, key);
+        }
+
+        owners.computeIfAbsent(owner, k -> new OwnerClaims()).add(world, key);
+        return previousOwner;
+    }
+
+    /**
+     * Add every chunk of one owner in one world at once, for loading. When
+     * none of the chunks is claimed and the owner has nothing in that world
+     * yet, the owner's regions are built in a single flood fill instead of
+     * being merged chunk by chunk; otherwise this is {@link #put} per chunk.
+     *
+     * @param keys packed chunk keys (see {@link ChunkPosition#pack(int, int)})
+     */
+    public void putAll(String world, UUID owner, long[] keys) {
+        if (keys.length == 0)
+            return;
+
+        WorldClaims claims = worlds.computeIfAbsent(world, k -> new WorldClaims());
+        OwnerClaims ownerClaims = owners.get(owner);
+        boolean fresh = ownerClaims == null || !ownerClaims.byWorld.containsKey(world);
+        for (int i = 0; fresh && i < keys.length; i++) {
+            fresh = !claims.chunks.containsKey(keys[i]);
+        }
+        if (!fresh) {
+            for (long key : keys) {
+                put(world, ChunkPosition.unpackX(key), ChunkPosition.unpackZ(key), owner);
+            }
+            return;
+        }
+
+        int id = idFor(owner);
+        OwnerWorldClaims worldClaims = new OwnerWorldClaims();
+        worldClaims.regions.addAll(keys);
+        for (long key : keys) {
+            int x = ChunkPosition.unpackX(key);
+            int z = ChunkPosition.unpackZ(key);
+            claims.chunks.put(key, id);
+            claims.occupancy.set(x, z);
+            worldClaims.occupancy.set(x, z);
+        }
+
+        if (ownerClaims == null) {
+            ownerClaims = new OwnerClaims();
+            owners.put(owner, ownerClaims);
+        }
+        ownerClaims.byWorld.put(world, worldClaims);
+        // Duplicate keys collapse in the tracker, so count from there
+        ownerClaims.count += worldClaims.regions.size();
+        size += worldClaims.regions.size();
+    }
+
+    /**
+     * Remove a chunk from the index.
+     *
+     * @return the owner the chunk was removed from, or null if it was unclaimed
+     */
+    public UUID remove(String world, int x, int z) {
+        WorldClaims claims = worlds.get(world);
+        if (claims == null)
+            return null;
+
+        long key = ChunkPosition.pack(x, z);
+        int id = claims.chunks.remove(key);
+        if (id == NO_OWNER)
+            return null;
+
+        claims.occupancy.clear(x, z);
+        size--;
+        UUID owner = ownerTable[id];
+        removeFromOwner(owner, world, key);
+        return owner;
+    }
+
+    /**
+     * Remove every chunk of an owner in one pass, without re-running region
+     * bookkeeping per chunk.
+     *
+     * @return the number of chunks removed
+     */
+    public int removeAll(UUID owner) {
+        OwnerClaims claims = owners.remove(owner);
+        if (claims == null)
+            return 0;
+
+        for (Map.Entry<String, OwnerWorldClaims> entry : claims.byWorld.entrySet()) {
+            WorldClaims worldClaims = worlds.get(entry.getKey());
+            for (LongHashSet members : entry.getValue().regions.regions().values()) {
+                PrimitiveIterator.OfLong it = members.iterator();
+                while (it.hasNext()) {
+                    long key = it.nextLong();
+                    worldClaims.chunks.remove(key);
+                    worldClaims.occupancy.clear(ChunkPosition.unpackX(key), ChunkPosition.unpackZ(key));
+                }
+            }
+        }
+        size -= claims.count;
+        return claims.count;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        worlds.clear();
+        owners.clear();
+        size = 0;
+    }
+
+    /**
+     * Whether diagonally touching chunks belong to the same region. Changing it
+     * regroups every owner's regions.
+     */
+    public void setDiagonalConnections(boolean diagonal) {
+        if (diagonalConnections == diagonal)
+            return;
+        diagonalConnections = diagonal;
+
+        for (OwnerClaims claims : owners.values()) {
+            for (OwnerWorldClaims worldClaims : claims.byWorld.values()) {
+                RegionTracker rebuilt = newRegionTracker();
+                for (LongHashSet members : worldClaims.regions.regions().values()) {
+                    PrimitiveIterator.OfLong it = members.iterator();
+                    while (it.hasNext()) {
+                        rebuilt.add(it.nextLong());
+                    }
+                }
+                worldClaims.regions = rebuilt;
+            }
+        }
+    }
+
+    /**
+     * Id of the owner region containing a chunk, or -1 if it is unclaimed.
+     */
+    public int getRegionId(String world, int x, int z) {
+        OwnerWorldClaims claims = ownerClaimsAt(world, x, z);
+        return claims == null ? RegionTracker.NO_REGION : claims.regions.regionOf(ChunkPosition.pack(x, z));
+    }
+
+    /**
+     * Check whether unclaiming a chunk would split its owner's region in two or
+     * more pieces.
+     */
+    public boolean wouldSplitRegion(String world, int x, int z) {
+        OwnerWorldClaims claims = ownerClaimsAt(world, x, z);
+        return claims != null && claims.regions.wouldSplit(ChunkPosition.pack(x, z));
+    }
+
+    /**
+     * Snapshot of an owner's connected regions in every world.
+     */
+    public List<ClaimRegion> getRegions(UUID owner) {
+        OwnerClaims claims = owners.get(owner);
+        if (claims == null)
+            return Collections.emptyList();
+
+        List<ClaimRegion> result = new ArrayList<>();
+        for (Map.Entry<String, OwnerWorldClaims> entry : claims.byWorld.entrySet()) {
+            int worldId = ChunkPosition.worldId(entry.getKey());
+            for (Map.Entry<Integer, LongHashSet> region : entry.getValue().regions.regions().entrySet()) {
+                Set<ChunkPosition> chunks = new HashSet<>(region.getValue().size() * 2);
+                PrimitiveIterator.OfLong it = region.getValue().iterator();
+                while (it.hasNext()) {
+                    long key = it.nextLong();
+                    chunks.add(new ChunkPosition(worldId, ChunkPosition.unpackX(key), ChunkPosition.unpackZ(key)));
+                }
+                result.add(new ClaimRegion(region.getKey(), owner, entry.getKey(), chunks));
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Live, read-only view of an owner's claims.
+     */
+    public Set<ChunkPosition> getClaims(UUID owner) {
+        return new OwnerClaimView(owner);
+    }
+
+    public int getClaimCount(UUID owner) {
+        OwnerClaims claims = owners.get(owner);
+        return claims == null ? 0 : claims.count;
+    }
+
+    /**
+     * Owners that currently hold at least one claim.
+     */
+    public Set<UUID> getOwners() {
+        return Collections.unmodifiableSet(owners.keySet());
+    }
+
+    /**
+     * Copy every claim into an immutable {@link ClaimSnapshot}.
+     */
+    public ClaimSnapshot snapshot() {
+        Map<UUID, Map<String, long[]>> copy = new HashMap<>(owners.size() * 2);
+        for (Map.Entry<UUID, OwnerClaims> owner : owners.entrySet()) {
+            copy.put(owner.getKey(), copyClaims(owner.getValue()));
+        }
+        return new ClaimSnapshot(copy, size);
+    }
+
+    /**
+     * Copy one owner's claims: world name to packed chunk keys. Empty if the
+     * owner has none.
+     */
+    public Map<String, long[]> snapshot(UUID owner) {
+        OwnerClaims claims = owners.get(owner);
+        return claims == null ? new HashMap<>() : copyClaims(claims);
+    }
+
+    private static Map<String, long[]> copyClaims(OwnerClaims claims) {
+        Map<String, long[]> copy = new HashMap<>(claims.byWorld.size() * 2);
+        for (Map.Entry<String, OwnerWorldClaims> world : claims.byWorld.entrySet()) {
+            RegionTracker regions = world.getValue().regions;
+            long[] keys = new long[regions.size()];
+            int offset = 0;
+            for (LongHashSet members : regions.regions().values()) {
+                offset = members.copyTo(keys, offset);
+            }
+            copy.put(world.getKey(), keys);
+        }
+        return copy;
+    }
+
+    /**
+     * Approximate retained size of the primitive tables in bytes.
+     */
+    public long estimateBytes() {
+        long bytes = (long) ownerTable.length * 4;
+        for (WorldClaims claims : worlds.values()) {
+            bytes += claims.chunks.estimateBytes() + claims.occupancy.estimateBytes();
+        }
+        for (OwnerClaims claims : owners.values()) {
+            for (OwnerWorldClaims worldClaims : claims.byWorld.values()) {
+                bytes += worldClaims.occupancy.estimateBytes();
+                for (LongHashSet members : worldClaims.regions.regions().values()) {
+                    bytes += members.estimateBytes();
+                }
+            }
+        }
+        return bytes;
+    }
+
+    private int idFor(UUID owner) {
+        Integer existing = ownerIds.get(owner);
+        if (existing != null)
+            return existing;
+
+        if (ownerCount == ownerTable.length) {
+            ownerTable = Arrays.copyOf(ownerTable, ownerCount << 1);
+        }
+        int id = ownerCount++;
+        ownerTable[id] = owner;
+        ownerIds.put(owner, id);
+        return id;
+    }
+
+    private OwnerWorldClaims ownerClaimsAt(String world, int x, int z) {
+        UUID owner = getOwner(world, x, z);
+        if (owner == null)
+            return null;
+        OwnerClaims claims = owners.get(owner);
+        return claims == null ? null : claims.byWorld.get(world);
+    }
+
+    private RegionTracker newRegionTracker() {
+        return new RegionTracker(diagonalConnections, () -> nextRegionId++);
+    }
+
+    private void removeFromOwner(UUID owner, String world, long key) {
+        OwnerClaims claims = owners.get(owner);
+        if (claims != null && claims.remove(world, key) && claims.count == 0) {
+            owners.remove(owner);
+        }
+    }
+
+    private static final class WorldClaims {
+        private final LongIntHashMap chunks = new LongIntHashMap(NO_OWNER);
+        private final TileOccupancy occupancy = new TileOccupancy();
+    }
+
+    private final class OwnerWorldClaims {
+        private RegionTracker regions = newRegionTracker();
+        private final TileOccupancy occupancy = new TileOccupancy();
+    }
+
+    private final class OwnerClaims {
+        private final Map<String, OwnerWorldClaims> byWorld = new HashMap<>(2);
+        private int count;
+
+        void add(String world, long key) {
+            OwnerWorldClaims claims = byWorld.computeIfAbsent(world, k -> new OwnerWorldClaims());
+            if (claims.regions.add(key)) {
+                claims.occupancy.set(ChunkPosition.unpackX(key), ChunkPosition.unpackZ(key));
+                count++;
+            }
+        }
+
+        boolean remove(String world, long key) {
+            OwnerWorldClaims claims = byWorld.get(world);
+            if (claims == null || !claims.regions.remove(key))
+                return false;
+            claims.occupancy.clear(ChunkPosition.unpackX(key), ChunkPosition.unpackZ(key));
+            if (claims.regions.isEmpty()) {
+                byWorld.remove(world);
+            }
+            count--;
+            return true;
+        }
+
+        boolean contains(String world, long key) {
+            OwnerWorldClaims claims = byWorld.get(world);
+            return claims != null && claims.regions.contains(key);
+        }
+    }
+
+    private final class OwnerClaimView extends AbstractSet<ChunkPosition> {
+        private final UUID owner;
+
+        OwnerClaimView(UUID owner) {
+            this.owner = owner;
+        }
+
+        @Override
+        public int size() {
+            return getClaimCount(owner);
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof ChunkPosition pos))
+                return false;
+            OwnerClaims claims = owners.get(owner);
+            return claims != null && claims.contains(pos.getWorld(), ChunkPosition.pack(pos.getX(), pos.getZ()));
+        }
+
+        @Override
+        public Iterator<ChunkPosition> iterator() {
+            OwnerClaims claims = owners.get(owner);
+            if (claims == null)
+                return Collections.emptyIterator();
+
+            Iterator<Map.Entry<String, OwnerWorldClaims>> worldIterator = claims.byWorld.entrySet().iterator();
+            return new Iterator<>() {
+                private int worldId;
+                private Iterator<LongHashSet> regionIterator = Collections.emptyIterator();
+                private PrimitiveIterator.OfLong keys;
+
+                @Override
+                public boolean hasNext() {
+                    while (keys == null || !keys.hasNext()) {
+                        if (regionIterator.hasNext()) {
+                            keys = regionIterator.next().iterator();
+                            continue;
+                        }
+                        if (!worldIterator.hasNext())
+                            return false;
+                        Map.Entry<String, OwnerWorldClaims> entry = worldIterator.next();
+                        worldId = ChunkPosition.worldId(entry.getKey());
+                        regionIterator = entry.getValue().regions.regions().values().iterator();
+                    }
+                    return true;
+                }
+
+                @Override
+                public ChunkPosition next() {
+                    if (!hasNext())
+                        throw new NoSuchElementException();
+                    long key = keys.nextLong();
+                    return new ChunkPosition(worldId, ChunkPosition.unpackX(key), ChunkPosition.unpackZ(key));
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package org.ayosynk.landClaimPlugin.index;
+
+import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Immutable point-in-time copy of every claim: owner to world to packed
+ * chunk keys (see {@link ChunkPosition#pack(int, int)}). Taking one costs a
+ * bulk array copy per owner and world, with no per-chunk objects, so it is
+ * cheap enough to capture on the main thread and serialize elsewhere.
+ */
+public final class ClaimSnapshot {
+    private final Map<UUID, Map<String, long[]>> claims;
+    private final int size;
+
+    ClaimSnapshot(Map<UUID, Map<String, long[]>> claims, int size) {
+        this.claims = claims;
+        this.size = size;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public Set<UUID> getOwners() {
+        return Collections.unmodifiableSet(claims.keySet());
+    }
+
+    /**
+     * World name to packed chunk keys. The arrays must not be modified.
+     */
+    public Map<String, long[]> getClaims(UUID owner) {
+        Map<String, long[]> byWorld = claims.get(owner);
+        return byWorld == null ? Collections.emptyMap() : Collections.unmodifiableMap(byWorld);
+    }
+
+    public void forEach(ClaimConsumer consumer) {
+        for (Map.Entry<UUID, Map<String, long[]>> owner : claims.entrySet()) {
+            for (Map.Entry<String, long[]> world : owner.getValue().entrySet()) {
+                for (long key : world.getValue()) {
+                    consumer.accept(owner.getKey(), world.getKey(), ChunkPosition.unpackX(key),
+                            ChunkPosition.unpackZ(key));
+                }
+            }
+        }
+    }
+
+    @FunctionalInterface
+    public interface ClaimConsumer {
+        void accept(UUID owner, String world, int x, int z);
+    }
+}
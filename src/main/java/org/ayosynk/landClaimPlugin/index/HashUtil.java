@@ -0,0 +1,21 @@
+package org.ayosynk.landClaimPlugin.index;
+
+/**
+ * Hash mixing shared by the primitive collections in this package.
+ */
+final class HashUtil {
+    private static final long PHI = 0x9E3779B97F4A7C15L;
+
+    private HashUtil() {
+    }
+
+    /**
+     * Spread a long key so that packed chunk coordinates, which differ mostly in
+     * their low bits, land in different slots.
+     */
+    static int mix(long key) {
+        long h = key * PHI;
+        h ^= h >>> 32;
+        return (int) (h ^ (h >>> 16));
+    }
+}
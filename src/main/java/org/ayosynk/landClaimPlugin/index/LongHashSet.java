@@ -0,0 +1,209 @@
+package org.ayosynk.landClaimPlugin.index;
+
+import java.util.Arrays;
+import java.util.NoSuchElementException;
+import java.util.PrimitiveIterator;
+
+/**
+ * Open-addressing hash set of primitive longs, the set counterpart of
+ * {@link LongIntHashMap}. Not thread-safe.
+ */
+public class LongHashSet {
+    private static final long FREE_KEY = 0L;
+    private static final float LOAD_FACTOR = 0.6f;
+
+    private long[] keys;
+    private int mask;
+    private int size;
+    private int resizeAt;
+    private boolean hasFreeKey;
+
+    public LongHashSet() {
+        this(16);
+    }
+
+    public LongHashSet(int expectedSize) {
+        allocate(LongIntHashMap.capacityFor(expectedSize));
+    }
+
+    public boolean contains(long key) {
+        if (key == FREE_KEY) {
+            return hasFreeKey;
+        }
+        long[] k = keys;
+        int m = mask;
+        int slot = HashUtil.mix(key) & m;
+        long current;
+        while ((current = k[slot]) != FREE_KEY) {
+            if (current == key) {
+                return true;
+            }
+            slot = (slot + 1) & m;
+        }
+        return false;
+    }
+
+    public boolean add(long key) {
+        if (key == FREE_KEY) {
+            if (hasFreeKey) {
+                return false;
+            }
+            hasFreeKey = true;
+            size++;
+            return true;
+        }
+
+        int slot = HashUtil.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                return false;
+            }
+            slot = (slot + 1) & mask;
+        }
+
+        keys[slot] = key;
+        if (++size >= resizeAt) {
+            rehash(keys.length << 1);
+        }
+        return true;
+    }
+
+    public boolean remove(long key) {
+        if (key == FREE_KEY) {
+            if (!hasFreeKey) {
+                return false;
+            }
+            hasFreeKey = false;
+            size--;
+            return true;
+        }
+
+        int slot = HashUtil.mix(key) & mask;
+        long current;
+        while ((current = keys[slot]) != FREE_KEY) {
+            if (current == key) {
+                shiftKeys(slot);
+                size--;
+                return true;
+            }
+            slot = (slot + 1) & mask;
+        }
+        return false;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public void clear() {
+        Arrays.fill(keys, FREE_KEY);
+        hasFreeKey = false;
+        size = 0;
+    }
+
+    /**
+     * Iterate over the keys. The set must not be modified while iterating.
+     */
+    public PrimitiveIterator.OfLong iterator() {
+        return new PrimitiveIterator.OfLong() {
+            private final long[] k = keys;
+            private boolean pendingFreeKey = hasFreeKey;
+            private int index = nextOccupied(0);
+
+            private int nextOccupied(int from) {
+                int i = from;
+                while (i < k.length && k[i] == FREE_KEY) {
+                    i++;
+                }
+                return i;
+            }
+
+            @Override
+            public boolean hasNext() {
+                return pendingFreeKey || index < k.length;
+            }
+
+            @Override
+            public long nextLong() {
+                if (pendingFreeKey) {
+                    pendingFreeKey = false;
+                    return FREE_KEY;
+                }
+                if (index >= k.length) {
+                    throw new NoSuchElementException();
+                }
+                long key = k[index];
+                index = nextOccupied(index + 1);
+                return key;
+            }
+        };
+    }
+
+    /**
+     * Copy every key into {@code destination} starting at {@code offset}.
+     *
+     * @return the offset after the last copied key
+     */
+    public int copyTo(long[] destination, int offset) {
+        if (hasFreeKey) {
+            destination[offset++] = FREE_KEY;
+        }
+        for (long key : keys) {
+            if (key != FREE_KEY) {
+                destination[offset++] = key;
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Approximate retained size of the backing array in bytes.
+     */
+    public long estimateBytes() {
+        return (long) keys.length * Long.BYTES;
+    }
+
+    private void shiftKeys(int gap) {
+        int m = mask;
+        int slot = gap;
+        while (true) {
+            slot = (slot + 1) & m;
+            long current = keys[slot];
+            if (current == FREE_KEY) {
+                keys[gap] = FREE_KEY;
+                return;
+            }
+            int home = HashUtil.mix(current) & m;
+            if (gap <= slot ? (gap >= home || home > slot) : (gap >= home && home > slot)) {
+                keys[gap] = current;
+                gap = slot;
+            }
+        }
+    }
+
+    private void rehash(int newCapacity) {
+        long[] oldKeys = keys;
+        allocate(newCapacity);
+        int m = mask;
+        for (long key : oldKeys) {
+            if (key != FREE_KEY) {
+                int slot = HashUtil.mix(key) & m;
+                while (keys[slot] != FREE_KEY) {
+                    slot = (slot + 1) & m;
+                }
+                keys[slot] = key;
+            }
+        }
+    }
+
+    private void allocate(int capacity) {
+        keys = new long[capacity];
+        mask = capacity - 1;
+        resizeAt = Math.max(1, (int) (capacity * LOAD_FACTOR));
+    }
+}
@@ -0,0 +1,316 @@
+package org.ayosynk.landClaimPlugin.index;
+
+import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+
+import java.util.*;
+import java.util.function.IntSupplier;
+
+/**
+ * Connected regions of one owner's claims in one world.
+ *
+ * Adding a chunk joins the regions of its neighbours; when several meet, the
+ * smaller ones are relabelled into the largest so its id survives. Removing a
+ * chunk runs one breadth-first search per remaining neighbour in lock step:
+ * a search that runs dry without meeting the others has found a detached
+ * piece, which gets a fresh id. Because the smallest piece always finishes
+ * first, the work is bounded by the size of the pieces that split off rather
+ * than by the whole region, and the bulk of the region keeps its id.
+ *
+ * Not thread-safe; mutated together with {@link ClaimIndex}.
+ */
+class RegionTracker {
+    static final int NO_REGION = -1;
+    private static final int UNLABELLED = -2;
+
+    private static final int[] ORTHOGONAL_DX = { 1, -1, 0, 0 };
+    private static final int[] ORTHOGONAL_DZ = { 0, 0, 1, -1 };
+    private static final int[] ALL_DX = { 1, -1, 0, 0, 1, 1, -1, -1 };
+    private static final int[] ALL_DZ = { 0, 0, 1, -1, 1, -1, 1, -1 };
+
+    private final int[] dx;
+    private final int[] dz;
+    private final IntSupplier regionIds;
+
+    private final LongIntHashMap regionOf = new LongIntHashMap(NO_REGION);
+    private final Map<Integer, LongHashSet> regions = new HashMap<>(4);
+
+    RegionTracker(boolean diagonal, IntSupplier regionIds) {
+        this.dx = diagonal ? ALL_DX : ORTHOGONAL_DX;
+        this.dz = diagonal ? ALL_DZ : ORTHOGONAL_DZ;
+        this.regionIds = regionIds;
+    }
+
+    boolean contains(long key) {
+        return regionOf.containsKey(key);
+    }
+
+    int regionOf(long key) {
+        return regionOf.get(key);
+    }
+
+    int size() {
+        return regionOf.size();
+    }
+
+    boolean isEmpty() {
+        return regionOf.isEmpty();
+    }
+
+    /**
+     * Region id to member chunks. Must not be modified by callers.
+     */
+    Map<Integer, LongHashSet> regions() {
+        return regions;
+    }
+
+    boolean add(long key) {
+        if (regionOf.containsKey(key))
+            return false;
+
+        int x = ChunkPosition.unpackX(key);
+        int z = ChunkPosition.unpackZ(key);
+        int target = NO_REGION;
+        LongHashSet targetMembers = null;
+
+        for (int i = 0; i < dx.length; i++) {
+            int region = regionOf.get(ChunkPosition.pack(x + dx[i], z + dz[i]));
+            if (region == NO_REGION || region == target)
+                continue;
+
+            if (target == NO_REGION) {
+                target = region;
+                targetMembers = regions.get(region);
+                continue;
+            }
+
+            // Two regions meet: the larger one keeps its id
+            LongHashSet members = regions.get(region);
+            if (members.size() > targetMembers.size()) {
+                relabel(target, region);
+                target = region;
+                targetMembers = members;
+            } else {
+                relabel(region, target);
+            }
+        }
+
+        if (target == NO_REGION) {
+            target = regionIds.getAsInt();
+            targetMembers = new LongHashSet();
+            regions.put(target, targetMembers);
+        }
+        targetMembers.add(key);
+        regionOf.put(key, target);
+        return true;
+    }
+
+    /**
+     * Fill an empty tracker in one pass. Each connected piece is found by a
+     * single flood fill, so unlike repeated {@link #add} no region is ever
+     * relabelled.
+     */
+    void addAll(long[] keys) {
+        regionOf.ensureCapacity(keys.length);
+        for (long key : keys) {
+            regionOf.put(key, UNLABELLED);
+        }
+
+        long[] queue = new long[keys.length];
+        for (long start : keys) {
+            if (regionOf.get(start) != UNLABELLED)
+                continue;
+
+            int id = regionIds.getAsInt();
+            int head = 0;
+            int tail = 0;
+            queue[tail++] = start;
+            regionOf.put(start, id);
+            while (head < tail) {
+                long node = queue[head++];
+                int x = ChunkPosition.unpackX(node);
+                int z = ChunkPosition.unpackZ(node);
+                for (int i = 0; i < dx.length; i++) {
+                    long next = ChunkPosition.pack(x + dx[i], z + dz[i]);
+                    if (regionOf.get(next) == UNLABELLED) {
+                        regionOf.put(next, id);
+                        queue[tail++] = next;
+                    }
+                }
+            }
+
+            LongHashSet members = new LongHashSet(tail);
+            for (int i = 0; i < tail; i++) {
+                members.add(queue[i]);
+            }
+            regions.put(id, members);
+        }
+    }
+
+    boolean remove(long key) {
+        int region = regionOf.remove(key);
+        if (region == NO_REGION)
+            return false;
+
+        LongHashSet members = regions.get(region);
+        members.remove(key);
+        if (members.isEmpty()) {
+            regions.remove(region);
+            return true;
+        }
+
+        for (LongHashSet piece : detachedPieces(key, region, false)) {
+            int id = regionIds.getAsInt();
+            PrimitiveIterator.OfLong it = piece.iterator();
+            while (it.hasNext()) {
+                long member = it.nextLong();
+                members.remove(member);
+                regionOf.put(member, id);
+            }
+            regions.put(id, piece);
+        }
+        return true;
+    }
+
+    /**
+     * Check whether removing a chunk would split its region in two or more
+     * pieces. Does not modify anything.
+     */
+    boolean wouldSplit(long key) {
+        int region = regionOf.get(key);
+        return region != NO_REGION && !detachedPieces(key, region, true).isEmpty();
+    }
+
+    private void relabel(int from, int into) {
+        LongHashSet source = regions.remove(from);
+        LongHashSet destination = regions.get(into);
+        PrimitiveIterator.OfLong it = source.iterator();
+        while (it.hasNext()) {
+            long member = it.nextLong();
+            destination.add(member);
+            regionOf.put(member, into);
+        }
+    }
+
+    /**
+     * Find the pieces of {@code region} that lose contact with the rest once
+     * {@code removed} is taken out. The piece that is still running when all
+     * others have finished is not reported; it keeps the region id.
+     */
+    private List<LongHashSet> detachedPieces(long removed, int region, boolean stopAtFirst) {
+        int x = ChunkPosition.unpackX(removed);
+        int z = ChunkPosition.unpackZ(removed);
+
+        Search[] searches = new Search[dx.length];
+        int[] parent = new int[dx.length];
+        int count = 0;
+        LongIntHashMap visited = new LongIntHashMap(NO_REGION);
+        for (int i = 0; i < dx.length; i++) {
+            long neighbor = ChunkPosition.pack(x + dx[i], z + dz[i]);
+            if (regionOf.get(neighbor) == region) {
+                searches[count] = new Search(neighbor);
+                parent[count] = count;
+                visited.put(neighbor, count);
+                count++;
+            }
+        }
+        if (count <= 1)
+            return Collections.emptyList();
+
+        List<LongHashSet> pieces = new ArrayList<>(1);
+        int active = count;
+        while (active > 1) {
+            for (int i = 0; i < count && active > 1; i++) {
+                Search search = searches[i];
+                if (search == null)
+                    continue;
+
+                if (search.isDone()) {
+                    // Ran dry without meeting any other search: detached
+                    pieces.add(search.toSet());
+                    searches[i] = null;
+                    active--;
+                    if (stopAtFirst)
+                        return pieces;
+                    continue;
+                }
+
+                long node = search.next();
+                int nx = ChunkPosition.unpackX(node);
+                int nz = ChunkPosition.unpackZ(node);
+                for (int d = 0; d < dx.length; d++) {
+                    long next = ChunkPosition.pack(nx + dx[d], nz + dz[d]);
+                    if (next == removed || regionOf.get(next) != region)
+                        continue;
+
+                    int other = visited.get(next);
+                    if (other == NO_REGION) {
+                        visited.put(next, i);
+                        search.push(next);
+                        continue;
+                    }
+
+                    other = find(parent, other);
+                    if (other != i) {
+                        // Two searches met, so their pieces are still connected
+                        search.absorb(searches[other]);
+                        searches[other] = null;
+                        parent[other] = i;
+                        active--;
+                    }
+                }
+            }
+        }
+        return pieces;
+    }
+
+    private static int find(int[] parent, int i) {
+        while (parent[i] != i) {
+            parent[i] = parent[parent[i]];
+            i = parent[i];
+        }
+        return i;
+    }
+
+    /**
+     * Breadth-first frontier that also remembers every chunk it reached.
+     */
+    private static final class Search {
+        private long[] nodes = new long[16];
+        private int head;
+        private int tail;
+
+        Search(long start) {
+            push(start);
+        }
+
+        boolean isDone() {
+            return head == tail;
+        }
+
+        long next() {
+            return nodes[head++];
+        }
+
+        void push(long key) {
+            if (tail == nodes.length) {
+                nodes = Arrays.copyOf(nodes, tail << 1);
+            }
+            nodes[tail++] = key;
+        }
+
+        void absorb(Search other) {
+            // Already expanded nodes are queued again; they only rediscover visited chunks
+            for (int i = 0; i < other.tail; i++) {
+                push(other.nodes[i]);
+            }
+        }
+
+        LongHashSet toSet() {
+            LongHashSet set = new LongHashSet(tail);
+            for (int i = 0; i < tail; i++) {
+                set.add(nodes[i]);
+            }
+            return set;
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package org.ayosynk.landClaimPlugin.index;
+
+import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+
+import java.util.Arrays;
+
+/**
+ * Occupancy bitmap of claimed chunks, split into 32x32-chunk tiles.
+ *
+ * Every tile is 1024 bits held in 16 longs. Row {@code lz} of a tile occupies
+ * 32 bits of word {@code lz >> 1}, so a row segment can be tested with one
+ * shift and mask. Range questions ("is anything set in this box?") therefore
+ * cost one tile lookup per 32x32 area plus one word operation per row, and
+ * an area with no tile at all answers immediately.
+ *
+ * Not thread-safe; mutated together with {@link ClaimIndex}.
+ */
+public class TileOccupancy {
+    public static final int TILE_SHIFT = 5;
+    public static final int TILE_SIZE = 1 << TILE_SHIFT;
+    private static final int TILE_MASK = TILE_SIZE - 1;
+    private static final int WORDS_PER_TILE = TILE_SIZE * TILE_SIZE / Long.SIZE;
+    private static final long ROW_BITS = 0xFFFFFFFFL;
+    private static final int NO_TILE = -1;
+
+    // Tile coordinates (packed) -> slot in the tiles array
+    private final LongIntHashMap tileSlots = new LongIntHashMap(NO_TILE);
+    private long[][] tiles = new long[4][];
+    private int[] bitCounts = new int[4];
+    private int[] freeSlots = new int[4];
+    private int freeCount;
+    private int slotCount;
+
+    public boolean get(int x, int z) {
+        long[] tile = tileAt(x >> TILE_SHIFT, z >> TILE_SHIFT);
+        if (tile == null)
+            return false;
+        int lz = z & TILE_MASK;
+        return (tile[lz >> 1] & bit(x & TILE_MASK, lz)) != 0;
+    }
+
+    /**
+     * @return true if the bit was newly set
+     */
+    public boolean set(int x, int z) {
+        long tileKey = ChunkPosition.pack(x >> TILE_SHIFT, z >> TILE_SHIFT);
+        int slot = tileSlots.get(tileKey);
+        if (slot == NO_TILE) {
+            slot = allocateSlot();
+            tileSlots.put(tileKey, slot);
+        }
+
+        long[] tile = tiles[slot];
+        int lz = z & TILE_MASK;
+        long mask = bit(x & TILE_MASK, lz);
+        if ((tile[lz >> 1] & mask) != 0)
+            return false;
+        tile[lz >> 1] |= mask;
+        bitCounts[slot]++;
+        return true;
+    }
+
+    /**
+     * @return true if the bit was previously set
+     */
+    public boolean clear(int x, int z) {
+        long tileKey = ChunkPosition.pack(x >> TILE_SHIFT, z >> TILE_SHIFT);
+        int slot = tileSlots.get(tileKey);
+        if (slot == NO_TILE)
+            return false;
+
+        long[] tile = tiles[slot];
+        int lz = z & TILE_MASK;
+        long mask = bit(x & TILE_MASK, lz);
+        if ((tile[lz >> 1] & mask) == 0)
+            return false;
+        tile[lz >> 1] &= ~mask;
+
+        // Release tiles that become empty so the wilderness stays tile-free
+        if (--bitCounts[slot] == 0) {
+            tileSlots.remove(tileKey);
+            releaseSlot(slot);
+        }
+        return true;
+    }
+
+    public boolean isEmpty() {
+        return tileSlots.isEmpty();
+    }
+
+    /**
+     * Check whether any chunk in the inclusive box is set.
+     */
+    public boolean anyInBox(int minX, int minZ, int maxX, int maxZ) {
+        return anyInBox(minX, minZ, maxX, maxZ, null);
+    }
+
+    /**
+     * Check whether any chunk in the inclusive box is set here but not in
+     * {@code excluded}. Passing null excludes nothing.
+     */
+    public boolean anyInBox(int minX, int minZ, int maxX, int maxZ, TileOccupancy excluded) {
+        if (minX > maxX || minZ > maxZ || tileSlots.isEmpty())
+            return false;
+
+        int minTileX = minX >> TILE_SHIFT;
+        int maxTileX = maxX >> TILE_SHIFT;
+        int minTileZ = minZ >> TILE_SHIFT;
+        int maxTileZ = maxZ >> TILE_SHIFT;
+
+        for (int tileX = minTileX; tileX <= maxTileX; tileX++) {
+            int tileBaseX = tileX << TILE_SHIFT;
+            int fromX = Math.max(minX, tileBaseX) - tileBaseX;
+            int toX = Math.min(maxX, tileBaseX + TILE_MASK) - tileBaseX;
+            long rowMask = (ROW_BITS >>> (TILE_MASK - (toX - fromX))) << fromX;
+
+            for (int tileZ = minTileZ; tileZ <= maxTileZ; tileZ++) {
+                long[] tile = tileAt(tileX, tileZ);
+                if (tile == null)
+                    continue;
+                long[] excludedTile = excluded != null ? excluded.tileAt(tileX, tileZ) : null;
+
+                int tileBaseZ = tileZ << TILE_SHIFT;
+                int fromZ = Math.max(minZ, tileBaseZ) - tileBaseZ;
+                int toZ = Math.min(maxZ, tileBaseZ + TILE_MASK) - tileBaseZ;
+                for (int lz = fromZ; lz <= toZ; lz++) {
+                    int word = lz >> 1;
+                    int shift = (lz & 1) << TILE_SHIFT;
+                    long row = (tile[word] >>> shift) & rowMask;
+                    if (excludedTile != null) {
+                        row &= ~(excludedTile[word] >>> shift);
+                    }
+                    if (row != 0)
+                        return true;
+                }
+            }
+        }
+        return false;
+    }
+
+    /**
+     * Visit every set chunk in the inclusive box, tile by tile. Only set bits
+     * are visited, so the cost follows the number of claims rather than the
+     * area of the box.
+     */
+    public void forEachInBox(int minX, int minZ, int maxX, int maxZ, ChunkConsumer consumer) {
+        if (minX > maxX || minZ > maxZ || tileSlots.isEmpty())
+            return;
+
+        for (int tileX = minX >> TILE_SHIFT; tileX <= maxX >> TILE_SHIFT; tileX++) {
+            int tileBaseX = tileX << TILE_SHIFT;
+            int fromX = Math.max(minX, tileBaseX) - tileBaseX;
+            int toX = Math.min(maxX, tileBaseX + TILE_MASK) - tileBaseX;
+            long rowMask = (ROW_BITS >>> (TILE_MASK - (toX - fromX))) << fromX;
+
+            for (int tileZ = minZ >> TILE_SHIFT; tileZ <= maxZ >> TILE_SHIFT; tileZ++) {
+                long[] tile = tileAt(tileX, tileZ);
+                if (tile == null)
+                    continue;
+
+                int tileBaseZ = tileZ << TILE_SHIFT;
+                int fromZ = Math.max(minZ, tileBaseZ) - tileBaseZ;
+                int toZ = Math.min(maxZ, tileBaseZ + TILE_MASK) - tileBaseZ;
+                for (int lz = fromZ; lz <= toZ; lz++) {
+                    long row = (tile[lz >> 1] >>> ((lz & 1) << TILE_SHIFT)) & rowMask;
+                    while (row != 0) {
+                        int lx = Long.numberOfTrailingZeros(row);
+                        consumer.accept(tileBaseX + lx, tileBaseZ + lz);
+                        row &= row - 1;
+                    }
+                }
+            }
+        }
+    }
+
+    public void clearAll() {
+        tileSlots.clear();
+        Arrays.fill(tiles, null);
+        slotCount = 0;
+        freeCount = 0;
+    }
+
+    /**
+     * Approximate retained size in bytes.
+     */
+    public long estimateBytes() {
+        return tileSlots.estimateBytes() + (long) tileSlots.size() * (WORDS_PER_TILE * Long.BYTES + 16)
+                + (long) tiles.length * 12;
+    }
+
+    private long[] tileAt(int tileX, int tileZ) {
+        int slot = tileSlots.get(ChunkPosition.pack(tileX, tileZ));
+        return slot == NO_TILE ? null : tiles[slot];
+    }
+
+    private static long bit(int lx, int lz) {
+        return 1L << (((lz & 1) << TILE_SHIFT) + lx);
+    }
+
+    private int allocateSlot() {
+        if (freeCount > 0) {
+            int slot = freeSlots[--freeCount];
+            tiles[slot] = new long[WORDS_PER_TILE];
+            return slot;
+        }
+        if (slotCount == tiles.length) {
+            tiles = Arrays.copyOf(tiles, slotCount << 1);
+            bitCounts = Arrays.copyOf(bitCounts, slotCount << 1);
+        }
+        tiles[slotCount] = new long[WORDS_PER_TILE];
+        bitCounts[slotCount] = 0;
+        return slotCount++;
+    }
+
+    private void releaseSlot(int slot) {
+        tiles[slot] = null;
+        if (freeCount == freeSlots.length) {
+            freeSlots = Arrays.copyOf(freeSlots, freeCount << 1);
+        }
+        freeSlots[freeCount++] = slot;
+    }
+
+    @FunctionalInterface
+    public interface ChunkConsumer {
+        void accept(int x, int z);
+    }
+}
@@ -0,0 +1,61 @@
+package org.ayosynk.landClaimPlugin.listeners;
+
+import org.ayosynk.landClaimPlugin.managers.ClaimManager;
+
+import java.util.UUID;
+
+/**
+ * Decides whether something at one block may change another: liquids,
+ * growth, spreading blocks, dispensers and pistons. These fire far more
+ * often than any player action, and nearly always within one chunk, so
+ * the chunk coordinates are compared first and the claim index is only
+ * consulted when a chunk boundary is crossed.
+ */
+final class BorderGuard {
+    private final ClaimManager claimManager;
+
+    BorderGuard(ClaimManager claimManager) {
+        this.claimManager = claimManager;
+    }
+
+    /**
+     * Whether a block at (x, z) can reach another chunk with a single step
+     * north, south, east or west
+     */
+    static boolean isOnChunkEdge(int x, int z) {
+        int localX = x & 15;
+        int localZ = z & 15;
+        return localX == 0 || localX == 15 || localZ == 0 || localZ == 15;
+    }
+
+    /**
+     * Whether a change from block (fromX, fromZ) may reach block (toX, toZ):
+     * true within one chunk, into unclaimed land, or between chunks of the
+     * same owner
+     */
+    boolean canReach(String world, int fromX, int fromZ, int toX, int toZ) {
+        int fromChunkX = fromX >> 4;
+        int fromChunkZ = fromZ >> 4;
+        int toChunkX = toX >> 4;
+        int toChunkZ = toZ >> 4;
+        if (fromChunkX == toChunkX && fromChunkZ == toChunkZ)
+            return true;
+
+        UUID targetOwner = claimManager.getChunkOwner(world, toChunkX, toChunkZ);
+        return targetOwner == null || targetOwner.equals(claimManager.getChunkOwner(world, fromChunkX, fromChunkZ));
+    }
+
+    /**
+     * Like {@link #canReach}, with the source owner already known, for
+     * checking many targets from one source
+     */
+    boolean canReach(String world, int fromX, int fromZ, UUID sourceOwner, int toX, int toZ) {
+        int toChunkX = toX >> 4;
+        int toChunkZ = toZ >> 4;
+        if ((fromX >> 4) == toChunkX && (fromZ >> 4) == toChunkZ)
+            return true;
+
+        UUID targetOwner = claimManager.getChunkOwner(world, toChunkX, toChunkZ);
+        return targetOwner == null || targetOwner.equals(sourceOwner);
+    }
+}
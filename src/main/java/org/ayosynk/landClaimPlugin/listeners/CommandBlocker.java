@@ -3,7 +3,6 @@ package org.ayosynk.landClaimPlugin.listeners;
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
 import org.ayosynk.landClaimPlugin.managers.ClaimManager;
 import org.ayosynk.landClaimPlugin.managers.TrustManager;
-import org.ayosynk.landClaimPlugin.models.ChunkPosition;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
@@ -26,7 +25,7 @@ public class CommandBlocker implements Listener {
     @EventHandler
     public void onPlayerCommand(PlayerCommandPreprocessEvent event) {
         Player player = event.getPlayer();
-        if (player.hasPermission("landclaim.admin")) return;
+        if (plugin.getPermissionManager().isAdmin(player)) return;
 
         String command = event.getMessage().split(" ")[0].substring(1).toLowerCase(); // Remove slash
 
@@ -37,13 +36,11 @@ public class CommandBlocker implements Listener {
         }
 
         // Check if player is in a claimed chunk
-        ChunkPosition pos = new ChunkPosition(player.getLocation());
-        if (!claimManager.isChunkClaimed(pos)) {
+        UUID owner = claimManager.getOwnerAt(player.getLocation());
+        if (owner == null) {
             return; // Not in claimed land
         }
 
-        UUID owner = claimManager.getChunkOwner(pos);
-
         // Allow owner and trusted players to use commands
         if (player.getUniqueId().equals(owner) ||
                 trustManager.isTrusted(owner, player)) {
@@ -5,26 +5,36 @@ import net.md_5.bungee.api.chat.TextComponent;
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
 import org.ayosynk.landClaimPlugin.managers.ClaimManager;
 import org.ayosynk.landClaimPlugin.managers.ConfigManager;
+import org.ayosynk.landClaimPlugin.managers.PermissionManager;
 import org.ayosynk.landClaimPlugin.managers.TrustManager;
 import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.ayosynk.landClaimPlugin.models.ClaimPermission;
 import org.ayosynk.landClaimPlugin.utils.ChatUtils;
 import org.bukkit.*;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockFace;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.Directional;
 import org.bukkit.entity.*;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
+import org.bukkit.event.block.BlockDispenseEvent;
 import org.bukkit.event.block.BlockExplodeEvent;
+import org.bukkit.event.block.BlockFromToEvent;
 import org.bukkit.event.block.BlockPistonExtendEvent;
 import org.bukkit.event.block.BlockPistonRetractEvent;
+import org.bukkit.event.block.BlockSpreadEvent;
 import org.bukkit.event.entity.EntityChangeBlockEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityExplodeEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
 import org.bukkit.event.player.PlayerBucketEmptyEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.vehicle.VehicleMoveEvent;
+import org.bukkit.event.world.StructureGrowEvent;
 import org.bukkit.entity.minecart.HopperMinecart;
 import org.bukkit.scheduler.BukkitRunnable;
 
@@ -36,6 +46,10 @@ public class EventListener implements Listener {
     private final ClaimManager claimManager;
     private final TrustManager trustManager;
     private final ConfigManager configManager;
+    private final PermissionManager permissionManager;
+    private final ExplosionGuard explosionGuard;
+    private final BorderGuard borderGuard;
+    private final TransferGuard transferGuard;
     private final Map<UUID, ChunkPosition> lastChunkMap = new HashMap<>();
     private final Map<UUID, String> lastActionBarMap = new HashMap<>();
     private final Map<UUID, Boolean> lastClaimStatusMap = new HashMap<>(); // true = claimed, false = wilderness
@@ -78,6 +92,10 @@ public class EventListener implements Listener {
         this.claimManager = claimManager;
         this.trustManager = trustManager;
         this.configManager = configManager;
+        this.permissionManager = plugin.getPermissionManager();
+        this.explosionGuard = new ExplosionGuard(claimManager);
+        this.borderGuard = new BorderGuard(claimManager);
+        this.transferGuard = new TransferGuard(claimManager);
 
         // Start action bar task
         startActionBarTask();
@@ -97,7 +115,7 @@ public class EventListener implements Listener {
 
     private void updateActionBar(Player player) {
         UUID playerId = player.getUniqueId();
-        ChunkPosition currentPos = new ChunkPosition(player.getLocation().getChunk());
+        ChunkPosition currentPos = new ChunkPosition(player.getLocation());
         ChunkPosition lastPos = lastChunkMap.get(playerId);
 
         boolean isClaimed = claimManager.isChunkClaimed(currentPos);
@@ -134,7 +152,7 @@ public class EventListener implements Listener {
                 } else if (trustManager.isTrusted(ownerId, player)) {
                     message = configManager.getActionBarMessage("actionbar-trusted")
                             .replace("{owner}", ownerName);
-                } else if (player.hasPermission("landclaim.admin")) {
+                } else if (permissionManager.isAdmin(player)) {
                     message = configManager.getActionBarMessage("actionbar-admin")
                             .replace("{owner}", ownerName);
                 } else {
@@ -170,9 +188,14 @@ public class EventListener implements Listener {
         if (to == null)
             return;
 
-        Chunk fromChunk = from.getChunk();
-        Chunk toChunk = to.getChunk();
-        if (fromChunk.equals(toChunk))
+        // Compare chunk coordinates directly instead of resolving Chunk objects
+        int fromChunkX = from.getBlockX() >> 4;
+        int fromChunkZ = from.getBlockZ() >> 4;
+        int toChunkX = to.getBlockX() >> 4;
+        int toChunkZ = to.getBlockZ() >> 4;
+        World fromWorld = from.getWorld();
+        World toWorld = to.getWorld();
+        if (fromChunkX == toChunkX && fromChunkZ == toChunkZ && fromWorld == toWorld)
             return;
 
         Player player = event.getPlayer();
@@ -180,9 +203,8 @@ public class EventListener implements Listener {
 
         // Handle auto claim
         if (plugin.getCommandHandler().isAutoClaimEnabled(playerId)) {
-            ChunkPosition pos = new ChunkPosition(toChunk);
-            if (!claimManager.isChunkClaimed(pos)) {
-                if (claimManager.claimChunk(player, toChunk)) {
+            if (!claimManager.isChunkClaimed(toWorld, toChunkX, toChunkZ)) {
+                if (claimManager.claimChunk(player, to.getChunk())) {
                     player.sendMessage(configManager.getMessage("chunk-claimed"));
                 }
             }
@@ -190,42 +212,34 @@ public class EventListener implements Listener {
 
         // Handle auto unclaim
         if (plugin.getCommandHandler().isAutoUnclaimEnabled(playerId)) {
-            ChunkPosition fromPos = new ChunkPosition(fromChunk);
-            if (claimManager.isChunkClaimed(fromPos) && claimManager.getChunkOwner(fromPos).equals(playerId)) {
-                if (!isConnectedToOtherClaims(fromPos, playerId)) {
-                    claimManager.unclaimChunk(fromChunk);
+            if (playerId.equals(claimManager.getChunkOwner(fromWorld, fromChunkX, fromChunkZ))) {
+                ChunkPosition fromPos = new ChunkPosition(fromWorld.getName(), fromChunkX, fromChunkZ);
+                if (!wouldSplitClaim(fromPos)) {
+                    claimManager.unclaimChunk(fromPos);
                     player.sendMessage(configManager.getMessage("auto-unclaimed"));
                 }
             }
         }
     }
 
-    private boolean isConnectedToOtherClaims(ChunkPosition pos, UUID playerId) {
+    private boolean wouldSplitClaim(ChunkPosition pos) {
         if (!configManager.requireConnectedClaims())
             return false;
 
-        Set<ChunkPosition> claims = claimManager.getPlayerClaims(playerId);
-        if (claims.isEmpty())
-            return false;
-
-        // Check if this chunk is connected to others
-        Set<ChunkPosition> neighbors = new HashSet<>(pos.getNeighbors(configManager.allowDiagonalConnections()));
-        neighbors.retainAll(claims);
-        neighbors.remove(pos);
-
-        return !neighbors.isEmpty();
+        // Keep the remaining claim connected
+        return claimManager.wouldSplitClaim(pos);
     }
 
     @EventHandler
     public void onBlockPlace(BlockPlaceEvent event) {
         // Check the block's location, not player's location
-        checkBlockPermission(event.getPlayer(), event.getBlock(), event, "BUILD");
+        checkBlockPermission(event.getPlayer(), event.getBlock(), event, ClaimPermission.BUILD);
     }
 
     @EventHandler
     public void onBlockBreak(BlockBreakEvent event) {
         // Check the block's location, not player's location
-        checkBlockPermission(event.getPlayer(), event.getBlock(), event, "BUILD");
+        checkBlockPermission(event.getPlayer(), event.getBlock(), event, ClaimPermission.BUILD);
     }
 
     @EventHandler
@@ -238,13 +252,13 @@ public class EventListener implements Listener {
 
         // Check container blocks with CONTAINER permission
         if (CONTAINER_BLOCKS.contains(blockType)) {
-            checkInteractionPermission(event.getPlayer(), event, "CONTAINER");
+            checkInteractionPermission(event.getPlayer(), event, ClaimPermission.CONTAINER);
             return;
         }
 
         // Check interactable blocks with INTERACT permission
         if (INTERACTABLE_BLOCKS.contains(blockType)) {
-            checkInteractionPermission(event.getPlayer(), event, "INTERACT");
+            checkInteractionPermission(event.getPlayer(), event, ClaimPermission.INTERACT);
         }
     }
 
@@ -286,19 +300,15 @@ public class EventListener implements Listener {
             if (damager == null)
                 return;
 
-            Location location = event.getEntity().getLocation();
-            if (isInProtectedChunk(location)) {
-                ChunkPosition pos = new ChunkPosition(location);
-                if (claimManager.isChunkClaimed(pos)) {
-                    UUID owner = claimManager.getChunkOwner(pos);
-                    if (damager.getUniqueId().equals(owner) ||
-                            trustManager.isTrusted(owner, damager)) {
-                        return; // Owner or trusted can harm
-                    }
-
-                    event.setCancelled(true);
-                    damager.sendMessage(configManager.getMessage("harm-entity-denied"));
+            UUID owner = claimManager.getOwnerAt(event.getEntity().getLocation());
+            if (owner != null) {
+                if (damager.getUniqueId().equals(owner) ||
+                        trustManager.isTrusted(owner, damager)) {
+                    return; // Owner or trusted can harm
                 }
+
+                event.setCancelled(true);
+                damager.sendMessage(configManager.getMessage("harm-entity-denied"));
             }
             return;
         }
@@ -347,33 +357,8 @@ public class EventListener implements Listener {
         if (!configManager.preventExplosionDamage())
             return;
 
-        // Get explosion location
-        Location explosionLoc = event.getLocation();
-        ChunkPosition explosionChunk = new ChunkPosition(explosionLoc);
-
-        // Check if explosion is near any claims
-        boolean nearClaim = false;
-        for (int dx = -1; dx <= 1; dx++) {
-            for (int dz = -1; dz <= 1; dz++) {
-                ChunkPosition checkPos = new ChunkPosition(
-                        explosionLoc.getWorld().getName(),
-                        explosionChunk.getX() + dx,
-                        explosionChunk.getZ() + dz);
-                if (claimManager.isChunkClaimed(checkPos)) {
-                    nearClaim = true;
-                    break;
-                }
-            }
-            if (nearClaim)
-                break;
-        }
-
-        // If not near any claim, do nothing
-        if (!nearClaim)
-            return;
-
         // Remove any blocks that are in claimed chunks from the explosion list
-        event.blockList().removeIf(b -> claimManager.isChunkClaimed(new ChunkPosition(b)));
+        explosionGuard.filter(event.getLocation().getWorld(), event.blockList());
     }
 
     @EventHandler
@@ -381,82 +366,154 @@ public class EventListener implements Listener {
         if (!configManager.preventExplosionDamage())
             return;
 
-        // Get explosion location (e.g., respawn anchor)
-        Location explosionLoc = event.getBlock().getLocation();
-        ChunkPosition explosionChunk = new ChunkPosition(explosionLoc);
-
-        // Check if explosion is near any claims
-        boolean nearClaim = false;
-        for (int dx = -1; dx <= 1; dx++) {
-            for (int dz = -1; dz <= 1; dz++) {
-                ChunkPosition checkPos = new ChunkPosition(
-                        explosionLoc.getWorld().getName(),
-                        explosionChunk.getX() + dx,
-                        explosionChunk.getZ() + dz);
-                if (claimManager.isChunkClaimed(checkPos)) {
-                    nearClaim = true;
-                    break;
-                }
-            }
-            if (nearClaim)
-                break;
-        }
-
-        // If not near any claim, do nothing
-        if (!nearClaim)
-            return;
-
-        // Remove any blocks that are in claimed chunks from the explosion list
-        event.blockList().removeIf(b -> claimManager.isChunkClaimed(new ChunkPosition(b)));
+        // Same for block explosions (e.g., respawn anchors and beds)
+        explosionGuard.filter(event.getBlock().getWorld(), event.blockList());
     }
 
     @EventHandler
     public void onPistonExtend(BlockPistonExtendEvent event) {
-        ChunkPosition pistonChunk = new ChunkPosition(event.getBlock());
-        UUID pistonOwner = claimManager.isChunkClaimed(pistonChunk) ? claimManager.getChunkOwner(pistonChunk) : null;
+        Block piston = event.getBlock();
+        String world = piston.getWorld().getName();
+        BlockFace direction = event.getDirection();
 
         for (Block block : event.getBlocks()) {
-            Block pushedTo = block.getRelative(event.getDirection());
-            ChunkPosition targetChunk = new ChunkPosition(pushedTo);
-
-            if (claimManager.isChunkClaimed(targetChunk)) {
-                UUID targetOwner = claimManager.getChunkOwner(targetChunk);
-                if (pistonOwner == null || !pistonOwner.equals(targetOwner)) {
-                    event.setCancelled(true);
-                    return;
-                }
+            // Destination of the pushed block, computed without resolving the relative block
+            int targetX = block.getX() + direction.getModX();
+            int targetZ = block.getZ() + direction.getModZ();
+            if (!borderGuard.canReach(world, piston.getX(), piston.getZ(), targetX, targetZ)) {
+                event.setCancelled(true);
+                return;
             }
         }
     }
 
     @EventHandler
     public void onPistonRetract(BlockPistonRetractEvent event) {
-        ChunkPosition pistonChunk = new ChunkPosition(event.getBlock());
-        UUID pistonOwner = claimManager.isChunkClaimed(pistonChunk) ? claimManager.getChunkOwner(pistonChunk) : null;
+        Block piston = event.getBlock();
+        String world = piston.getWorld().getName();
 
         for (Block block : event.getBlocks()) {
-            ChunkPosition targetChunk = new ChunkPosition(block);
+            if (!borderGuard.canReach(world, piston.getX(), piston.getZ(), block.getX(), block.getZ())) {
+                event.setCancelled(true);
+                return;
+            }
+        }
+    }
 
-            if (claimManager.isChunkClaimed(targetChunk)) {
-                UUID targetOwner = claimManager.getChunkOwner(targetChunk);
-                if (pistonOwner == null || !pistonOwner.equals(targetOwner)) {
-                    event.setCancelled(true);
-                    return;
-                }
+    @EventHandler(ignoreCancelled = true)
+    public void onBlockFromTo(BlockFromToEvent event) {
+        Block source = event.getBlock();
+        int x = source.getX();
+        int z = source.getZ();
+        BlockFace face = event.getFace();
+
+        int targetX;
+        int targetZ;
+        if (face == BlockFace.SELF) {
+            // Dragon eggs teleport up to 15 blocks away
+            Block target = event.getToBlock();
+            targetX = target.getX();
+            targetZ = target.getZ();
+        } else {
+            // Liquids move one block, so only a block on a chunk edge can leave its chunk
+            if (!BorderGuard.isOnChunkEdge(x, z))
+                return;
+            targetX = x + face.getModX();
+            targetZ = z + face.getModZ();
+        }
+
+        if (configManager.protectClaimBorders()
+                && !borderGuard.canReach(source.getWorld().getName(), x, z, targetX, targetZ)) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onBlockSpread(BlockSpreadEvent event) {
+        Block source = event.getSource();
+        Block target = event.getBlock();
+        if ((source.getX() >> 4) == (target.getX() >> 4) && (source.getZ() >> 4) == (target.getZ() >> 4))
+            return;
+
+        if (configManager.protectClaimBorders() && !borderGuard.canReach(target.getWorld().getName(),
+                source.getX(), source.getZ(), target.getX(), target.getZ())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onStructureGrow(StructureGrowEvent event) {
+        Location origin = event.getLocation();
+        int x = origin.getBlockX();
+        int z = origin.getBlockZ();
+        List<BlockState> blocks = event.getBlocks();
+
+        // Most trees stay inside the sapling's chunk
+        boolean crosses = false;
+        for (BlockState state : blocks) {
+            if ((state.getX() >> 4) != (x >> 4) || (state.getZ() >> 4) != (z >> 4)) {
+                crosses = true;
+                break;
             }
         }
+        if (!crosses || !configManager.protectClaimBorders())
+            return;
+
+        // Grow what fits; leaves and branches stop at other owners' claims
+        String world = event.getWorld().getName();
+        UUID sourceOwner = claimManager.getChunkOwner(world, x >> 4, z >> 4);
+        blocks.removeIf(state -> !borderGuard.canReach(world, x, z, sourceOwner, state.getX(), state.getZ()));
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onBlockDispense(BlockDispenseEvent event) {
+        Block dispenser = event.getBlock();
+        int x = dispenser.getX();
+        int z = dispenser.getZ();
+        // A dispenser acts on the block in front of it, so one off a chunk edge stays in its chunk
+        if (!BorderGuard.isOnChunkEdge(x, z) || !configManager.protectClaimBorders())
+            return;
+        if (!(dispenser.getBlockData() instanceof Directional directional))
+            return;
+
+        BlockFace facing = directional.getFacing();
+        if (!borderGuard.canReach(dispenser.getWorld().getName(), x, z, x + facing.getModX(),
+                z + facing.getModZ())) {
+            event.setCancelled(true);
+        }
+    }
+
+    @EventHandler(ignoreCancelled = true)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        // Only a pull takes items out of a container; pushes come from the source's own side
+        if (!configManager.protectClaimBorders() || event.getInitiator() == event.getSource())
+            return;
+
+        // Null for inventories that are not in the world (plugin menus)
+        Location source = event.getSource().getLocation();
+        Location destination = event.getDestination().getLocation();
+        if (source == null || destination == null)
+            return;
+
+        // Stops hoppers outside a claim from draining containers inside it
+        if (!transferGuard.canPull(source, destination)) {
+            event.setCancelled(true);
+        }
     }
 
     @EventHandler
     public void onVehicleMove(VehicleMoveEvent event) {
         // Prevent hopper minecarts from entering claims they didn't originate from
         if (event.getVehicle() instanceof HopperMinecart) {
-            ChunkPosition fromChunk = new ChunkPosition(event.getFrom());
-            ChunkPosition toChunk = new ChunkPosition(event.getTo());
+            Location from = event.getFrom();
+            Location to = event.getTo();
+            if ((from.getBlockX() >> 4) == (to.getBlockX() >> 4)
+                    && (from.getBlockZ() >> 4) == (to.getBlockZ() >> 4))
+                return;
 
-            if (!fromChunk.equals(toChunk) && claimManager.isChunkClaimed(toChunk)) {
-                UUID toOwner = claimManager.getChunkOwner(toChunk);
-                UUID fromOwner = claimManager.isChunkClaimed(fromChunk) ? claimManager.getChunkOwner(fromChunk) : null;
+            UUID toOwner = claimManager.getOwnerAt(to);
+            if (toOwner != null) {
+                UUID fromOwner = claimManager.getOwnerAt(from);
 
                 if (fromOwner == null || !fromOwner.equals(toOwner)) {
                     event.getVehicle().setVelocity(new org.bukkit.util.Vector(0, 0, 0));
@@ -475,100 +532,47 @@ public class EventListener implements Listener {
         EntityType type = event.getEntityType();
         if (type == EntityType.ENDERMAN || type == EntityType.RAVAGER) {
             // Check if block change is in claimed chunk
-            if (isInProtectedChunk(event.getBlock().getLocation())) {
+            if (claimManager.isClaimedAt(event.getBlock())) {
                 event.setCancelled(true);
             }
         }
     }
 
     private boolean isInProtectedChunk(Location location) {
-        ChunkPosition pos = new ChunkPosition(location);
-        return claimManager.isChunkClaimed(pos);
+        return claimManager.isClaimedAt(location);
     }
 
     private void checkBlockPermission(Player player, Block block, org.bukkit.event.Cancellable event,
-            String permission) {
-        if (player.hasPermission("landclaim.admin"))
+            ClaimPermission permission) {
+        if (permissionManager.isAdmin(player))
             return;
 
         // Always check the block's chunk, not the player's chunk
-        ChunkPosition pos = new ChunkPosition(block);
-
-        if (claimManager.isChunkClaimed(pos)) {
-            UUID owner = claimManager.getChunkOwner(pos);
-            if (player.getUniqueId().equals(owner)) {
-                return; // Owner can build
-            }
-
-            // Check if trusted with permission
-            if (trustManager.isTrusted(owner, player)) {
-                if (trustManager.hasTrustPermission(owner, player.getUniqueId(), permission)) {
-                    return; // Trusted with permission
-                }
-            } else {
-                // Check visitor permission
-                if (trustManager.hasVisitorPermission(owner, permission)) {
-                    return; // Visitor permission enabled
-                }
-            }
+        UUID owner = claimManager.getOwnerAt(block);
 
+        // Owner, trusted and visitor rules are resolved once per (owner, player)
+        if (owner != null && !trustManager.canAccess(owner, player.getUniqueId(), permission)) {
             event.setCancelled(true);
             player.sendMessage(configManager.getMessage("access-denied"));
         }
     }
 
     private boolean shouldCancelBucketPlacement(Player player, Block block) {
-        if (player.hasPermission("landclaim.admin")) {
+        if (permissionManager.isAdmin(player)) {
             return false;
         }
 
-        ChunkPosition pos = new ChunkPosition(block);
-
-        if (claimManager.isChunkClaimed(pos)) {
-            UUID owner = claimManager.getChunkOwner(pos);
-            UUID playerId = player.getUniqueId();
-
-            // Allow owner
-            if (playerId.equals(owner))
-                return false;
-
-            // Check if trusted with BUILD permission
-            if (trustManager.isTrusted(owner, player)) {
-                return !trustManager.hasTrustPermission(owner, player.getUniqueId(), "BUILD");
-            }
-
-            // Check visitor permission
-            return !trustManager.hasVisitorPermission(owner, "BUILD");
-        }
-
-        return false;
+        UUID owner = claimManager.getOwnerAt(block);
+        return owner != null && !trustManager.canAccess(owner, player.getUniqueId(), ClaimPermission.BUILD);
     }
 
-    private void checkInteractionPermission(Player player, PlayerInteractEvent event, String permission) {
-        if (player.hasPermission("landclaim.admin"))
+    private void checkInteractionPermission(Player player, PlayerInteractEvent event, ClaimPermission permission) {
+        if (permissionManager.isAdmin(player))
             return;
 
-        Block block = event.getClickedBlock();
-        ChunkPosition pos = new ChunkPosition(block);
-
-        if (claimManager.isChunkClaimed(pos)) {
-            UUID owner = claimManager.getChunkOwner(pos);
-            if (player.getUniqueId().equals(owner)) {
-                return; // Owner can always interact
-            }
-
-            // Check if trusted with permission
-            if (trustManager.isTrusted(owner, player)) {
-                if (trustManager.hasTrustPermission(owner, player.getUniqueId(), permission)) {
-                    return; // Trusted with permission
-                }
-            } else {
-                // Check visitor permission
-                if (trustManager.hasVisitorPermission(owner, permission)) {
-                    return; // Visitor permission enabled
-                }
-            }
+        UUID owner = claimManager.getOwnerAt(event.getClickedBlock());
 
+        if (owner != null && !trustManager.canAccess(owner, player.getUniqueId(), permission)) {
             event.setCancelled(true);
             player.sendMessage(configManager.getMessage("access-denied-interact"));
         }
@@ -0,0 +1,80 @@
+package org.ayosynk.landClaimPlugin.listeners;
+
+import org.ayosynk.landClaimPlugin.managers.ClaimManager;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Removes the blocks in claimed chunks from an explosion's block list, for
+ * both entity and block explosions.
+ *
+ * The chunks the list touches are bounded first, so an explosion of any
+ * radius (withers, beds, charged creepers) is tested against exactly the
+ * area it reaches, and one that reaches no claim costs a single bitmap
+ * test. Otherwise every distinct chunk is looked up once, through a small
+ * grid over that area, while the list is filtered in one pass.
+ */
+final class ExplosionGuard {
+    // Chunks in the largest area resolved through the grid; vanilla blasts span at most a few
+    private static final int MAX_GRID_CHUNKS = 256;
+
+    private static final byte UNKNOWN = 0;
+    private static final byte CLAIMED = 1;
+    private static final byte FREE = 2;
+
+    private final ClaimManager claimManager;
+    // Reused between explosions; main thread only
+    private final byte[] grid = new byte[MAX_GRID_CHUNKS];
+
+    ExplosionGuard(ClaimManager claimManager) {
+        this.claimManager = claimManager;
+    }
+
+    void filter(World world, List<Block> blocks) {
+        if (world == null || blocks.isEmpty())
+            return;
+
+        int minX = Integer.MAX_VALUE;
+        int minZ = Integer.MAX_VALUE;
+        int maxX = Integer.MIN_VALUE;
+        int maxZ = Integer.MIN_VALUE;
+        for (Block block : blocks) {
+            int chunkX = block.getX() >> 4;
+            int chunkZ = block.getZ() >> 4;
+            minX = Math.min(minX, chunkX);
+            minZ = Math.min(minZ, chunkZ);
+            maxX = Math.max(maxX, chunkX);
+            maxZ = Math.max(maxZ, chunkZ);
+        }
+
+        String worldName = world.getName();
+        if (!claimManager.hasClaimInArea(worldName, minX, minZ, maxX, maxZ))
+            return;
+
+        long area = (long) (maxX - minX + 1) * (maxZ - minZ + 1);
+        if (area > MAX_GRID_CHUNKS) {
+            // Only a list put together by another plugin gets this wide
+            blocks.removeIf(block -> claimManager.isChunkClaimed(worldName, block.getX() >> 4, block.getZ() >> 4));
+            return;
+        }
+
+        int originX = minX;
+        int originZ = minZ;
+        int depth = maxZ - minZ + 1;
+        Arrays.fill(grid, 0, (int) area, UNKNOWN);
+        blocks.removeIf(block -> {
+            int chunkX = block.getX() >> 4;
+            int chunkZ = block.getZ() >> 4;
+            int cell = (chunkX - originX) * depth + (chunkZ - originZ);
+            byte state = grid[cell];
+            if (state == UNKNOWN) {
+                state = claimManager.isChunkClaimed(worldName, chunkX, chunkZ) ? CLAIMED : FREE;
+                grid[cell] = state;
+            }
+            return state == CLAIMED;
+        });
+    }
+}
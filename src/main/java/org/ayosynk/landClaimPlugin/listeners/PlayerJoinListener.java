@@ -1,9 +1,13 @@
 package org.ayosynk.landClaimPlugin.listeners;
 
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.managers.PermissionManager;
 import org.ayosynk.landClaimPlugin.managers.VisualizationManager;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
+import org.bukkit.event.player.PlayerChangedWorldEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 
@@ -15,28 +19,54 @@ import java.util.UUID;
 public class PlayerJoinListener implements Listener {
     private final LandClaimPlugin plugin;
     private final VisualizationManager visualizationManager;
+    private final PermissionManager permissionManager;
 
-    public PlayerJoinListener(LandClaimPlugin plugin, VisualizationManager visualizationManager) {
+    public PlayerJoinListener(LandClaimPlugin plugin, VisualizationManager visualizationManager,
+            PermissionManager permissionManager) {
         this.plugin = plugin;
         this.visualizationManager = visualizationManager;
+        this.permissionManager = permissionManager;
     }
 
-    @EventHandler
+    // Read the player's settings off the main thread while they are still logging in
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onAsyncPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() == AsyncPlayerPreLoginEvent.Result.ALLOWED) {
+            plugin.getPlayerDataManager().preload(event.getUniqueId());
+        }
+    }
+
+    // Monitor priority so permission plugins have attached their nodes first
+    @EventHandler(priority = EventPriority.MONITOR)
     public void onPlayerJoin(PlayerJoinEvent event) {
+        plugin.getPlayerDataManager().handleJoin(event.getPlayer().getUniqueId());
+        permissionManager.refresh(event.getPlayer());
         visualizationManager.handlePlayerJoin(event.getPlayer());
     }
 
+    @EventHandler(priority = EventPriority.MONITOR)
+    public void onPlayerChangedWorld(PlayerChangedWorldEvent event) {
+        // Permission plugins may grant different nodes per world
+        permissionManager.refresh(event.getPlayer());
+    }
+
     @EventHandler
     public void onPlayerQuit(PlayerQuitEvent event) {
         UUID playerId = event.getPlayer().getUniqueId();
         
         // Clean up visualization data
         visualizationManager.handlePlayerQuit(playerId);
+
+        // Drop cached permissions
+        permissionManager.invalidate(playerId);
         
         // Clean up command handler data
         plugin.getCommandHandler().cleanupPlayer(playerId);
         
         // Clean up event listener data
         plugin.getEventListener().cleanupPlayer(playerId);
+
+        // Keep settings in the offline cache; changes are written by the next flush
+        plugin.getPlayerDataManager().handleQuit(playerId);
     }
 }
\ No newline at end of file
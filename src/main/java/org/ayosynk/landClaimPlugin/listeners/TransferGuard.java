@@ -0,0 +1,87 @@
+package org.ayosynk.landClaimPlugin.listeners;
+
+import org.ayosynk.landClaimPlugin.managers.ClaimManager;
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.UUID;
+
+/**
+ * Decides whether a hopper or hopper minecart may pull items out of another
+ * inventory: always from unclaimed land, and from a claimed chunk only into
+ * a chunk of the same owner. Like {@link BorderGuard}, it keeps others out
+ * of a claim and never stops items entering one or an owner's own hoppers
+ * feeding the land around it.
+ *
+ * Transfers inside one chunk are answered from the coordinates alone.
+ * Verdicts for pairs across a chunk boundary are kept in a direct-mapped
+ * table keyed by the two block positions, so a hopper line along a border
+ * costs one index lookup per pair rather than per item. Each verdict
+ * records {@link ClaimManager#getClaimVersion()} and is recomputed once any
+ * claim has changed. The table is kept as parallel arrays, so filling a
+ * slot allocates nothing. Main thread only.
+ */
+final class TransferGuard {
+    private static final int SIZE = 2048;
+
+    private final ClaimManager claimManager;
+    // A slot is empty while its world is null
+    private final String[] worlds = new String[SIZE];
+    private final long[] froms = new long[SIZE];
+    private final long[] tos = new long[SIZE];
+    private final int[] versions = new int[SIZE];
+    private final boolean[] verdicts = new boolean[SIZE];
+
+    TransferGuard(ClaimManager claimManager) {
+        this.claimManager = claimManager;
+    }
+
+    /**
+     * Whether the inventory at destination may take items out of the one at
+     * source
+     */
+    boolean canPull(Location source, Location destination) {
+        World world = source.getWorld();
+        if (world == null || world != destination.getWorld())
+            return true;
+
+        int sourceX = source.getBlockX();
+        int sourceZ = source.getBlockZ();
+        int destinationX = destination.getBlockX();
+        int destinationZ = destination.getBlockZ();
+        if ((sourceX >> 4) == (destinationX >> 4) && (sourceZ >> 4) == (destinationZ >> 4))
+            return true;
+
+        String worldName = world.getName();
+        long from = pack(sourceX, source.getBlockY(), sourceZ);
+        long to = pack(destinationX, destination.getBlockY(), destinationZ);
+        int version = claimManager.getClaimVersion();
+        int slot = slot(from, to);
+        if (froms[slot] == from && tos[slot] == to && versions[slot] == version && worldName.equals(worlds[slot]))
+            return verdicts[slot];
+
+        UUID sourceOwner = claimManager.getChunkOwner(worldName, sourceX >> 4, sourceZ >> 4);
+        boolean allowed = sourceOwner == null
+                || sourceOwner.equals(claimManager.getChunkOwner(worldName, destinationX >> 4, destinationZ >> 4));
+        worlds[slot] = worldName;
+        froms[slot] = from;
+        tos[slot] = to;
+        versions[slot] = version;
+        verdicts[slot] = allowed;
+        return allowed;
+    }
+
+    /**
+     * Block position as 26 bits of x, 26 of z and 12 of y, covering the
+     * whole world border and build height
+     */
+    private static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    private static int slot(long from, long to) {
+        long hash = from * 31 + to;
+        hash ^= hash >>> 32;
+        return (int) (hash ^ (hash >>> 16)) & (SIZE - 1);
+    }
+}
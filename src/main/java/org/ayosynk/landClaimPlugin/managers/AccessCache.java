@@ -0,0 +1,76 @@
+package org.ayosynk.landClaimPlugin.managers;
+
+import java.util.Arrays;
+import java.util.UUID;
+
+/**
+ * Resolved {@link org.ayosynk.landClaimPlugin.models.ClaimPermission} masks
+ * per (owner, player), for {@link TrustManager#getEffectivePermissions}.
+ *
+ * A fixed, direct-mapped table: a pair that hashes to an occupied slot
+ * simply replaces it, so the size is bounded without any bookkeeping.
+ * Entries are immutable, so the racy reads and writes are safe. Changes
+ * drop exactly the entries they affect: one pair, one owner or, after a
+ * reload, everything.
+ */
+final class AccessCache {
+    private static final int SIZE = 8192;
+
+    private final Entry[] entries = new Entry[SIZE];
+
+    /**
+     * The cached mask, or -1 if the pair is not cached
+     */
+    int get(UUID owner, UUID player) {
+        Entry entry = entries[slot(owner, player)];
+        if (entry != null && entry.owner.equals(owner) && entry.player.equals(player))
+            return entry.permissions;
+        return -1;
+    }
+
+    void put(UUID owner, UUID player, int permissions) {
+        entries[slot(owner, player)] = new Entry(owner, player, permissions);
+    }
+
+    void invalidate(UUID owner, UUID player) {
+        int slot = slot(owner, player);
+        Entry entry = entries[slot];
+        if (entry != null && entry.owner.equals(owner) && entry.player.equals(player)) {
+            entries[slot] = null;
+        }
+    }
+
+    /**
+     * Drop every entry of an owner. Scans the table, which is cheap next to
+     * how rarely an owner's settings change.
+     */
+    void invalidate(UUID owner) {
+        for (int i = 0; i < SIZE; i++) {
+            Entry entry = entries[i];
+            if (entry != null && entry.owner.equals(owner)) {
+                entries[i] = null;
+            }
+        }
+    }
+
+    void clear() {
+        Arrays.fill(entries, null);
+    }
+
+    private static int slot(UUID owner, UUID player) {
+        int hash = owner.hashCode() * 31 + player.hashCode();
+        return (hash ^ (hash >>> 16)) & (SIZE - 1);
+    }
+
+    private static final class Entry {
+        private final UUID owner;
+        private final UUID player;
+        private final int permissions;
+
+        Entry(UUID owner, UUID player, int permissions) {
+            this.owner = owner;
+            this.player = player;
+            this.permissions = permissions;
+        }
+    }
+}
@@ -1,12 +1,16 @@
 package org.ayosynk.landClaimPlugin.managers;
 
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.index.ClaimIndex;
+import org.ayosynk.landClaimPlugin.index.ClaimSnapshot;
 import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.ayosynk.landClaimPlugin.models.ClaimRegion;
+import org.ayosynk.landClaimPlugin.storage.StorageBackend;
 import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
+import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.block.Block;
 import org.bukkit.entity.Player;
 
 import com.sk89q.worldedit.bukkit.BukkitAdapter;
@@ -16,165 +20,227 @@ import com.sk89q.worldguard.protection.managers.RegionManager;
 import com.sk89q.worldguard.protection.regions.ProtectedRegion;
 import com.sk89q.worldguard.protection.regions.RegionContainer;
 
+import java.io.IOException;
 import java.util.*;
-import java.util.concurrent.ConcurrentHashMap;
 
 public class ClaimManager {
     private final LandClaimPlugin plugin;
     private final ConfigManager configManager;
-    private final Map<ChunkPosition, UUID> claimedChunks = new ConcurrentHashMap<>();
-    private final Map<UUID, Set<ChunkPosition>> playerClaims = new ConcurrentHashMap<>();
+    // Packed per-world chunk index (chunk -> owner, owner -> chunks); replaced whole on load
+    private volatile ClaimIndex claimIndex = new ClaimIndex();
+    // Bumped on every change to the claims; lets caches of claim-derived answers check they are current
+    private volatile int claimVersion;
 
     public ClaimManager(LandClaimPlugin plugin, ConfigManager configManager) {
         this.plugin = plugin;
         this.configManager = configManager;
     }
 
-    public void initialize() {
-        loadClaims();
-    }
-
     public int getTotalClaims() {
-        return claimedChunks.size();
+        return claimIndex.size();
     }
 
-    public void loadClaims() {
-        claimedChunks.clear();
-        playerClaims.clear();
+    /**
+     * Build a new index from the storage backend. Touches no live state, so
+     * it can run on a loader thread; install the result with
+     * {@link #publishIndex(ClaimIndex)}.
+     */
+    public ClaimIndex loadIndex() {
+        ClaimIndex index = new ClaimIndex();
+        index.setDiagonalConnections(configManager.allowDiagonalConnections());
 
-        FileConfiguration config = configManager.getClaimsConfig();
-        ConfigurationSection claimsSection = config.getConfigurationSection("claims");
-        if (claimsSection == null)
-            return;
-
-        for (String playerIdStr : claimsSection.getKeys(false)) {
-            UUID ownerId;
-            try {
-                ownerId = UUID.fromString(playerIdStr);
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().warning("Skipping invalid player UUID: " + playerIdStr);
-                continue;
-            }
+        try {
+            plugin.getStorage().loadClaims(new StorageBackend.ClaimSink() {
+                @Override
+                public void claim(String world, int x, int z, UUID owner) {
+                    UUID previousOwner = index.put(world, x, z, owner);
+                    if (previousOwner != null && !previousOwner.equals(owner)) {
+                        plugin.getLogger().warning("Chunk " + world + "," + x + "," + z + " is claimed by both "
+                                + previousOwner + " and " + owner + ", keeping " + owner);
+                    }
+                }
 
-            List<String> chunkStrings = claimsSection.getStringList(playerIdStr);
-            for (String chunkStr : chunkStrings) {
-                String[] parts = chunkStr.split(",");
-                if (parts.length != 3) {
-                    plugin.getLogger().warning("Skipping invalid chunk entry: " + chunkStr);
-                    continue;
+                @Override
+                public void claims(String world, UUID owner, long[] keys) {
+                    index.putAll(world, owner, keys);
                 }
 
-                try {
-                    String world = parts[0];
-                    int x = Integer.parseInt(parts[1]);
-                    int z = Integer.parseInt(parts[2]);
-                    ChunkPosition pos = new ChunkPosition(world, x, z);
+                @Override
+                public void unclaim(String world, int x, int z) {
+                    index.remove(world, x, z);
+                }
 
-                    claimedChunks.put(pos, ownerId);
-                    playerClaims.computeIfAbsent(ownerId, k -> new HashSet<>()).add(pos);
-                } catch (NumberFormatException e) {
-                    plugin.getLogger().warning("Skipping chunk entry with invalid coordinates: " + chunkStr);
+                @Override
+                public void unclaimAll(UUID owner) {
+                    index.removeAll(owner);
                 }
-            }
+            });
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not load claims: " + e.getMessage());
         }
+        return index;
     }
 
-    public void saveClaims() {
-        FileConfiguration config = configManager.getClaimsConfig();
-        config.set("claims", null);
+    /**
+     * Replace the live index. Main thread only.
+     */
+    public void publishIndex(ClaimIndex index) {
+        claimIndex = index;
+        claimVersion++;
+    }
 
-        ConfigurationSection claimsSection = config.createSection("claims");
-        for (Map.Entry<UUID, Set<ChunkPosition>> entry : playerClaims.entrySet()) {
-            List<String> chunkStrings = new ArrayList<>();
-            for (ChunkPosition pos : entry.getValue()) {
-                chunkStrings.add(pos.toString());
-            }
-            claimsSection.set(entry.getKey().toString(), chunkStrings);
-        }
+    /**
+     * Changes whenever any claim is added or removed
+     */
+    public int getClaimVersion() {
+        return claimVersion;
+    }
+
+    /**
+     * Copy of every claim for the storage backend. Cheap enough to take on the
+     * main thread; serialization happens elsewhere.
+     */
+    public ClaimSnapshot snapshotClaims() {
+        return claimIndex.snapshot();
+    }
 
-        configManager.saveClaimsConfig();
+    /**
+     * Copy of one owner's claims, world name to packed chunk keys
+     */
+    public Map<String, long[]> snapshotClaims(UUID owner) {
+        return claimIndex.snapshot(owner);
     }
 
     public boolean claimChunk(Player player, Chunk chunk) {
-        String worldName = chunk.getWorld().getName();
-        if (configManager.isWorldBlocked(worldName)) {
-            player.sendMessage(configManager.getMessage("world-blocked"));
-            return false;
-        }
+        return claimChunks(player, Collections.singletonList(new ChunkPosition(chunk))) > 0;
+    }
+
+    /**
+     * Claim a set of chunks as one transaction. Every chunk is validated
+     * first; if any check fails the player is told why and nothing is claimed.
+     * Chunks the player already owns are skipped. On success every chunk is
+     * reported to storage and the caches and map markers are refreshed once for the
+     * whole batch.
+     *
+     * @return the number of newly claimed chunks, or 0 if the batch was refused
+     */
+    public int claimChunks(Player player, Collection<ChunkPosition> positions) {
+        UUID playerId = player.getUniqueId();
+        Set<ChunkPosition> toClaim = new LinkedHashSet<>();
+        ChunkPosition alreadyOwned = null;
+
+        for (ChunkPosition pos : positions) {
+            if (configManager.isWorldBlocked(pos.getWorld())) {
+                player.sendMessage(configManager.getMessage("world-blocked"));
+                return 0;
+            }
 
-        ChunkPosition pos = new ChunkPosition(chunk);
-        if (isChunkClaimed(pos)) {
             UUID owner = getChunkOwner(pos);
-            String ownerName = plugin.getServer().getOfflinePlayer(owner).getName();
-            player.sendMessage(
-                    configManager.getMessage("already-claimed", "{owner}", ownerName != null ? ownerName : "Unknown"));
-            return false;
+            if (owner == null) {
+                toClaim.add(pos);
+            } else if (owner.equals(playerId)) {
+                alreadyOwned = pos;
+            } else {
+                sendAlreadyClaimed(player, owner);
+                return 0;
+            }
+        }
+
+        if (toClaim.isEmpty()) {
+            if (alreadyOwned != null) {
+                sendAlreadyClaimed(player, playerId);
+            }
+            return 0;
         }
 
-        UUID playerId = player.getUniqueId();
         int claimLimit = getClaimLimit(player);
-        Set<ChunkPosition> claims = playerClaims.getOrDefault(playerId, new HashSet<>());
-        if (claims.size() >= claimLimit) {
+        int claimCount = claimIndex.getClaimCount(playerId);
+        if ((long) claimCount + toClaim.size() > claimLimit) {
             player.sendMessage(configManager.getMessage("claim-limit-reached", "{limit}", String.valueOf(claimLimit)));
-            return false;
+            return 0;
         }
 
-        if (configManager.requireConnectedClaims() && !claims.isEmpty()) {
-            boolean isConnected = isConnectedToOwnClaims(pos, playerId);
-            if (!isConnected) {
-                player.sendMessage(configManager.getMessage("not-connected"));
-                return false;
-            }
+        if (configManager.requireConnectedClaims() && !isConnectedBatch(toClaim, playerId, claimCount > 0)) {
+            player.sendMessage(configManager.getMessage("not-connected"));
+            return 0;
         }
 
         int worldGuardGap = configManager.getWorldGuardGap();
         if (worldGuardGap > 0) {
-            if (isTooCloseToWorldGuardRegion(pos, worldGuardGap)) {
-                player.sendMessage(
-                        configManager.getMessage("too-close-to-worldguard", "{gap}", String.valueOf(worldGuardGap)));
-                return false;
+            for (ChunkPosition pos : toClaim) {
+                if (isTooCloseToWorldGuardRegion(pos, worldGuardGap)) {
+                    player.sendMessage(
+                            configManager.getMessage("too-close-to-worldguard", "{gap}", String.valueOf(worldGuardGap)));
+                    return 0;
+                }
             }
         }
 
         int minGap = configManager.getMinClaimGap();
         if (minGap > 0) {
-            if (isTooCloseToOtherClaim(worldName, pos, playerId, minGap)) {
-                player.sendMessage(
-                        configManager.getMessage("too-close-to-other-claim", "{gap}", String.valueOf(minGap)));
-                return false;
+            for (ChunkPosition pos : toClaim) {
+                if (isTooCloseToOtherClaim(pos.getWorld(), pos, playerId, minGap)) {
+                    player.sendMessage(
+                            configManager.getMessage("too-close-to-other-claim", "{gap}", String.valueOf(minGap)));
+                    return 0;
+                }
             }
         }
 
-        claimedChunks.put(pos, playerId);
-        claims.add(pos);
-        playerClaims.put(playerId, claims);
+        // Everything validated: commit the whole batch
+        StorageBackend storage = plugin.getStorage();
+        for (ChunkPosition pos : toClaim) {
+            claimIndex.put(pos.getWorld(), pos.getX(), pos.getZ(), playerId);
+            storage.claimAdded(pos.getWorld(), pos.getX(), pos.getZ(), playerId);
+        }
+        claimVersion++;
 
         plugin.getVisualizationManager().invalidateCache(playerId);
 
-        // Mark claims as dirty for debounced save
-        if (plugin.getSaveManager() != null) {
-            plugin.getSaveManager().markClaimsDirty();
-        }
-
         // Refresh map integrations
         plugin.refreshMapHooks();
-        return true;
+        return toClaim.size();
     }
 
-    private boolean isTooCloseToOtherClaim(String worldName, ChunkPosition pos, UUID playerId, int minGap) {
-        for (int dx = -minGap; dx <= minGap; dx++) {
-            for (int dz = -minGap; dz <= minGap; dz++) {
-                if (dx == 0 && dz == 0)
-                    continue;
-                ChunkPosition neighbor = new ChunkPosition(worldName, pos.getX() + dx, pos.getZ() + dz);
-                if (claimedChunks.containsKey(neighbor)) {
-                    UUID owner = claimedChunks.get(neighbor);
-                    if (!owner.equals(playerId))
-                        return true;
+    private void sendAlreadyClaimed(Player player, UUID owner) {
+        String ownerName = plugin.getServer().getOfflinePlayer(owner).getName();
+        player.sendMessage(
+                configManager.getMessage("already-claimed", "{owner}", ownerName != null ? ownerName : "Unknown"));
+    }
+
+    /**
+     * Check that every chunk of a batch can be reached from the player's
+     * existing claims (or, for a first claim, from any chunk of the batch)
+     * by stepping through the batch itself.
+     */
+    private boolean isConnectedBatch(Set<ChunkPosition> batch, UUID playerId, boolean hasClaims) {
+        boolean allowDiagonals = configManager.allowDiagonalConnections();
+        Set<ChunkPosition> reached = new HashSet<>();
+        Deque<ChunkPosition> queue = new ArrayDeque<>();
+
+        for (ChunkPosition pos : batch) {
+            if (!hasClaims || isConnectedToOwnClaims(pos, playerId)) {
+                reached.add(pos);
+                queue.add(pos);
+                if (!hasClaims)
+                    break;
+            }
+        }
+
+        while (!queue.isEmpty()) {
+            for (ChunkPosition neighbor : queue.poll().getNeighbors(allowDiagonals)) {
+                if (batch.contains(neighbor) && reached.add(neighbor)) {
+                    queue.add(neighbor);
                 }
             }
         }
-        return false;
+        return reached.size() == batch.size();
+    }
+
+    private boolean isTooCloseToOtherClaim(String worldName, ChunkPosition pos, UUID playerId, int minGap) {
+        // The centre chunk is known to be unclaimed here, so the whole box can be tested at once
+        return claimIndex.anyOtherOwnerInBox(worldName, pos.getX() - minGap, pos.getZ() - minGap,
+                pos.getX() + minGap, pos.getZ() + minGap, playerId);
     }
 
     private boolean isTooCloseToWorldGuardRegion(ChunkPosition pos, int gap) {
@@ -226,86 +292,236 @@ public class ClaimManager {
         return false;
     }
 
-    private boolean isConnectedToOwnClaims(ChunkPosition pos, UUID playerId) {
-        Set<ChunkPosition> claims = playerClaims.get(playerId);
-        if (claims == null || claims.isEmpty())
+    /**
+     * Check whether a chunk borders another chunk owned by the player, honouring
+     * the diagonal-connection setting
+     */
+    public boolean isConnectedToOwnClaims(ChunkPosition pos, UUID playerId) {
+        if (claimIndex.getClaimCount(playerId) == 0)
             return false;
 
+        String world = pos.getWorld();
+        int x = pos.getX();
+        int z = pos.getZ();
         boolean allowDiagonals = configManager.allowDiagonalConnections();
-        for (ChunkPosition neighbor : pos.getNeighbors(allowDiagonals)) {
-            if (claims.contains(neighbor)) {
-                return true;
+        for (int dx = -1; dx <= 1; dx++) {
+            for (int dz = -1; dz <= 1; dz++) {
+                if (dx == 0 && dz == 0)
+                    continue;
+                if (dx != 0 && dz != 0 && !allowDiagonals)
+                    continue;
+                if (playerId.equals(claimIndex.getOwner(world, x + dx, z + dz)))
+                    return true;
             }
         }
         return false;
     }
 
     public boolean unclaimChunk(Chunk chunk) {
-        ChunkPosition pos = new ChunkPosition(chunk);
-        if (!isChunkClaimed(pos))
-            return false;
+        return unclaimChunk(new ChunkPosition(chunk));
+    }
 
-        UUID owner = claimedChunks.remove(pos);
-        if (owner != null) {
-            Set<ChunkPosition> claims = playerClaims.get(owner);
-            if (claims != null) {
-                claims.remove(pos);
-                if (claims.isEmpty()) {
-                    playerClaims.remove(owner);
-                }
-            }
-            plugin.getVisualizationManager().invalidateCache(owner);
+    /**
+     * Unclaim a chunk by position. Never loads the chunk.
+     */
+    public boolean unclaimChunk(ChunkPosition pos) {
+        return unclaimChunks(Collections.singletonList(pos)) > 0;
+    }
 
-            // Mark claims as dirty for debounced save
-            if (plugin.getSaveManager() != null) {
-                plugin.getSaveManager().markClaimsDirty();
+    /**
+     * Unclaim a batch of chunks by position without touching the world.
+     * Each chunk is reported to storage; caches and map markers are refreshed once for
+     * the batch.
+     *
+     * @return the number of chunks that were claimed and are now free
+     */
+    public int unclaimChunks(Collection<ChunkPosition> positions) {
+        StorageBackend storage = plugin.getStorage();
+        Set<UUID> affectedOwners = new HashSet<>();
+        int count = 0;
+        for (ChunkPosition pos : positions) {
+            UUID owner = claimIndex.remove(pos.getWorld(), pos.getX(), pos.getZ());
+            if (owner != null) {
+                storage.claimRemoved(pos.getWorld(), pos.getX(), pos.getZ(), owner);
+                affectedOwners.add(owner);
+                count++;
             }
+        }
 
-            // Refresh map integrations
-            plugin.refreshMapHooks();
-            return true;
+        if (count > 0) {
+            claimVersion++;
+            onClaimsRemoved(affectedOwners);
         }
-        return false;
+        return count;
     }
 
+    /**
+     * Remove every claim of a player without loading any chunk.
+     *
+     * @return the number of chunks unclaimed
+     */
     public int unclaimAll(UUID playerId) {
-        Set<ChunkPosition> claims = playerClaims.getOrDefault(playerId, new HashSet<>());
-        if (claims.isEmpty())
-            return 0;
-
-        Set<ChunkPosition> toRemove = new HashSet<>(claims);
-        int count = 0;
-        for (ChunkPosition pos : toRemove) {
-            World world = Bukkit.getWorld(pos.getWorld());
-            if (world != null) {
-                Chunk chunk = world.getChunkAt(pos.getX(), pos.getZ());
-                if (unclaimChunk(chunk)) {
-                    count++;
-                }
-            }
+        int count = claimIndex.removeAll(playerId);
+        if (count > 0) {
+            // One record instead of one per chunk
+            plugin.getStorage().claimsCleared(playerId);
+            claimVersion++;
+            onClaimsRemoved(Collections.singleton(playerId));
         }
         return count;
     }
 
+    private void onClaimsRemoved(Collection<UUID> owners) {
+        for (UUID owner : owners) {
+            plugin.getVisualizationManager().invalidateCache(owner);
+        }
+
+        // Refresh map integrations
+        plugin.refreshMapHooks();
+    }
+
     public boolean isChunkClaimed(ChunkPosition pos) {
-        return claimedChunks.containsKey(pos);
+        return claimIndex.isClaimed(pos.getWorld(), pos.getX(), pos.getZ());
     }
 
     public UUID getChunkOwner(ChunkPosition pos) {
-        return claimedChunks.get(pos);
+        return claimIndex.getOwner(pos.getWorld(), pos.getX(), pos.getZ());
+    }
+
+    public UUID getChunkOwner(String world, int chunkX, int chunkZ) {
+        return claimIndex.getOwner(world, chunkX, chunkZ);
+    }
+
+    public UUID getChunkOwner(World world, int chunkX, int chunkZ) {
+        return claimIndex.getOwner(world.getName(), chunkX, chunkZ);
+    }
+
+    public boolean isChunkClaimed(World world, int chunkX, int chunkZ) {
+        return claimIndex.isClaimed(world.getName(), chunkX, chunkZ);
+    }
+
+    public boolean isChunkClaimed(String world, int chunkX, int chunkZ) {
+        return claimIndex.isClaimed(world, chunkX, chunkZ);
+    }
+
+    /**
+     * Check whether any chunk in the inclusive box of chunk coordinates is
+     * claimed, from the occupancy bitmaps
+     */
+    public boolean hasClaimInArea(String world, int minChunkX, int minChunkZ, int maxChunkX, int maxChunkZ) {
+        return claimIndex.anyClaimInBox(world, minChunkX, minChunkZ, maxChunkX, maxChunkZ);
     }
 
+    /**
+     * Check whether any chunk within {@code radius} chunks (square) of the given
+     * chunk is claimed. Answers from the occupancy bitmaps, so it is cheap in
+     * the wilderness.
+     */
+    public boolean hasClaimNear(World world, int chunkX, int chunkZ, int radius) {
+        if (world == null)
+            return false;
+        return claimIndex.anyClaimInBox(world.getName(), chunkX - radius, chunkZ - radius, chunkX + radius,
+                chunkZ + radius);
+    }
+
+    /**
+     * Nearest unclaimed chunk to the given chunk, searching up to
+     * {@code maxRadius} chunks away
+     *
+     * @return the chunk, or null if the whole search area is claimed
+     */
+    public ChunkPosition findNearestUnclaimed(String world, int chunkX, int chunkZ, int maxRadius) {
+        return claimIndex.nearestUnclaimed(world, chunkX, chunkZ, maxRadius);
+    }
+
+    /**
+     * Claimed chunks within a radius (in chunks) of the given chunk, nearest first
+     */
+    public List<ChunkPosition> getClaimsWithin(String world, int chunkX, int chunkZ, int radius) {
+        return claimIndex.claimsWithin(world, chunkX, chunkZ, radius);
+    }
+
+    /**
+     * Up to {@code count} distinct claim owners nearest to the given chunk,
+     * nearest first
+     */
+    public List<UUID> getNearestOwners(String world, int chunkX, int chunkZ, int count, int maxRadius) {
+        return claimIndex.nearestOwners(world, chunkX, chunkZ, count, maxRadius);
+    }
+
+    /**
+     * Owner of the chunk containing a block, without loading the chunk or
+     * allocating a ChunkPosition
+     */
+    public UUID getOwnerAt(Block block) {
+        return claimIndex.getOwner(block.getWorld().getName(), block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    /**
+     * Owner of the chunk containing a location, without loading the chunk or
+     * allocating a ChunkPosition
+     */
+    public UUID getOwnerAt(Location location) {
+        World world = location.getWorld();
+        if (world == null)
+            return null;
+        return claimIndex.getOwner(world.getName(), location.getBlockX() >> 4, location.getBlockZ() >> 4);
+    }
+
+    public boolean isClaimedAt(Block block) {
+        return claimIndex.isClaimed(block.getWorld().getName(), block.getX() >> 4, block.getZ() >> 4);
+    }
+
+    public boolean isClaimedAt(Location location) {
+        return getOwnerAt(location) != null;
+    }
+
+    /**
+     * Live, read-only view of a player's claims
+     */
     public Set<ChunkPosition> getPlayerClaims(UUID playerId) {
-        return playerClaims.getOrDefault(playerId, Collections.emptySet());
+        return claimIndex.getClaims(playerId);
+    }
+
+    public int getClaimCount(UUID playerId) {
+        return claimIndex.getClaimCount(playerId);
+    }
+
+    /**
+     * Check whether unclaiming a chunk would split its owner's claim into
+     * disconnected parts
+     */
+    public boolean wouldSplitClaim(ChunkPosition pos) {
+        return claimIndex.wouldSplitRegion(pos.getWorld(), pos.getX(), pos.getZ());
+    }
+
+    /**
+     * Stable id of the connected region a claimed chunk belongs to, or -1
+     */
+    public int getRegionId(ChunkPosition pos) {
+        return claimIndex.getRegionId(pos.getWorld(), pos.getX(), pos.getZ());
+    }
+
+    /**
+     * Connected regions of a player's claims, one per world and component
+     */
+    public List<ClaimRegion> getRegions(UUID playerId) {
+        return claimIndex.getRegions(playerId);
+    }
+
+    /**
+     * Owners that currently hold at least one claim
+     */
+    public Set<UUID> getClaimOwners() {
+        return claimIndex.getOwners();
     }
 
     public int getClaimLimit(Player player) {
-        if (player.hasPermission("landclaim.admin"))
+        PermissionManager.PermissionSnapshot permissions = plugin.getPermissionManager().getSnapshot(player);
+        if (permissions.isAdmin())
             return Integer.MAX_VALUE;
-        for (int i = 100; i > 0; i--) {
-            if (player.hasPermission("landclaim.limit." + i))
-                return i;
-        }
+        if (permissions.getClaimLimit() > 0)
+            return permissions.getClaimLimit();
         return configManager.getConfig().getInt("chunk-claim-limit", 5);
     }
 }
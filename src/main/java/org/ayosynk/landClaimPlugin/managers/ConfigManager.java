@@ -1,6 +1,7 @@
 package org.ayosynk.landClaimPlugin.managers;
 
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.models.ClaimPermission;
 import org.ayosynk.landClaimPlugin.utils.ChatUtils;
 import org.ayosynk.landClaimPlugin.utils.ConfigUpdater;
 import org.bukkit.Color;
@@ -16,17 +17,16 @@ public class ConfigManager {
     private FileConfiguration config;
     private File configFile;
 
-    private FileConfiguration claimsConfig;
     private File claimsFile;
-
-    private FileConfiguration trustConfig;
     private File trustFile;
 
     private FileConfiguration messagesConfig;
     private File messagesFile;
 
-    private FileConfiguration playerDataConfig;
-    private File playerDataFile;
+    // Default permission masks, read on load and reload (checked on every protection event)
+    private int defaultTrustPermissions;
+    private int defaultVisitorPermissions;
+
 
     public ConfigManager(LandClaimPlugin plugin) {
         this.plugin = plugin;
@@ -42,20 +42,17 @@ public class ConfigManager {
         // Load main config
         plugin.saveDefaultConfig();
         config = plugin.getConfig();
+        readDefaultPermissions();
 
-        // Claims data
+        // Claims and trust data; parsed by the storage backend during the data load
         claimsFile = new File(plugin.getDataFolder(), "claims.yml");
         if (!claimsFile.exists()) {
             createEmptyFile(claimsFile);
         }
-        claimsConfig = YamlConfiguration.loadConfiguration(claimsFile);
-
-        // Trust data
         trustFile = new File(plugin.getDataFolder(), "trust.yml");
         if (!trustFile.exists()) {
             createEmptyFile(trustFile);
         }
-        trustConfig = YamlConfiguration.loadConfiguration(trustFile);
 
         // Messages
         messagesFile = new File(plugin.getDataFolder(), "messages.yml");
@@ -63,13 +60,6 @@ public class ConfigManager {
             plugin.saveResource("messages.yml", false);
         }
         messagesConfig = YamlConfiguration.loadConfiguration(messagesFile);
-
-        // Player data (auto-claim, visualization modes, etc.)
-        playerDataFile = new File(plugin.getDataFolder(), "playerdata.yml");
-        if (!playerDataFile.exists()) {
-            createEmptyFile(playerDataFile);
-        }
-        playerDataConfig = YamlConfiguration.loadConfiguration(playerDataFile);
     }
 
     private void createEmptyFile(File file) {
@@ -85,6 +75,7 @@ public class ConfigManager {
     public void reloadMainConfig() {
         plugin.reloadConfig();
         config = plugin.getConfig();
+        readDefaultPermissions();
         // Reload messages.yml as well
         messagesConfig = YamlConfiguration.loadConfiguration(messagesFile);
     }
@@ -93,33 +84,63 @@ public class ConfigManager {
         return config;
     }
 
-    public FileConfiguration getClaimsConfig() {
-        return claimsConfig;
+    public File getClaimsFile() {
+        return claimsFile;
     }
 
-    public FileConfiguration getTrustConfig() {
-        return trustConfig;
+    public File getTrustFile() {
+        return trustFile;
     }
 
-    public FileConfiguration getPlayerDataConfig() {
-        return playerDataConfig;
+    public boolean requireConnectedClaims() {
+        return getConfig().getBoolean("require-connected-claims", false);
     }
 
-    public void savePlayerData() {
-        try {
-            playerDataConfig.save(playerDataFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Failed to save playerdata.yml");
-            e.printStackTrace();
-        }
+    public long getPermissionRefreshMillis() {
+        return getConfig().getLong("permission-refresh-interval", 30) * 1000L;
     }
 
-    public void reloadPlayerData() {
-        playerDataConfig = YamlConfiguration.loadConfiguration(playerDataFile);
+    /**
+     * Storage backend name, "yaml", "sqlite" or "sharded". Read once at startup.
+     */
+    public String getStorageType() {
+        return getConfig().getString("storage-type", "yaml").toLowerCase();
     }
 
-    public boolean requireConnectedClaims() {
-        return getConfig().getBoolean("require-connected-claims", false);
+    /**
+     * Whether claim snapshots are written to claims.dat instead of claims.yml
+     */
+    public boolean useBinaryClaimSnapshot() {
+        return getConfig().getString("claim-snapshot-format", "yaml").equalsIgnoreCase("binary");
+    }
+
+    public int getJournalCompactThreshold() {
+        return Math.max(1, getConfig().getInt("journal-compact-threshold", 50000));
+    }
+
+    /**
+     * Seconds between autosaves of a store that has changes
+     */
+    public int getAutoSaveInterval() {
+        return Math.max(1, getConfig().getInt("autosave-interval", 60));
+    }
+
+    /**
+     * Pending changes that trigger an early save, or 0 for no limit
+     */
+    public int getAutoSaveMaxPendingChanges() {
+        return Math.max(0, getConfig().getInt("autosave-max-pending-changes", 1000));
+    }
+
+    /**
+     * Estimated size of pending changes that triggers an early save, or 0 for no limit
+     */
+    public long getAutoSaveMaxPendingBytes() {
+        return Math.max(0, getConfig().getLong("autosave-max-pending-kb", 1024)) * 1024;
+    }
+
+    public int getMaxAreaClaim() {
+        return getConfig().getInt("max-area-claim", 256);
     }
 
     public boolean allowDiagonalConnections() {
@@ -138,6 +159,14 @@ public class ConfigManager {
         return getConfig().getBoolean("prevent-explosion-damage", true);
     }
 
+    /**
+     * Stop liquids, growth, spreading blocks and dispensers from reaching
+     * into another owner's claim, and hoppers from moving items across one
+     */
+    public boolean protectClaimBorders() {
+        return getConfig().getBoolean("protect-claim-borders", true);
+    }
+
     public boolean preventHarmEntities() {
         return getConfig().getBoolean("prevent-harm-entities", true);
     }
@@ -176,12 +205,33 @@ public class ConfigManager {
         return getConfig().getInt("visualization.update-interval", 20);
     }
 
-    public boolean getDefaultTrustPermission(String permission) {
-        return getConfig().getBoolean("default-trust-permissions." + permission, true);
+    private void readDefaultPermissions() {
+        defaultTrustPermissions = 0;
+        defaultVisitorPermissions = 0;
+        for (ClaimPermission permission : ClaimPermission.values()) {
+            if (config.getBoolean("default-trust-permissions." + permission.name(), true)) {
+                defaultTrustPermissions |= permission.bit();
+            }
+            if (config.getBoolean("default-visitor-permissions." + permission.name(), false)) {
+                defaultVisitorPermissions |= permission.bit();
+            }
+        }
     }
 
-    public boolean getDefaultVisitorPermission(String permission) {
-        return getConfig().getBoolean("default-visitor-permissions." + permission, false);
+    /**
+     * Permissions of a newly trusted player, and of trusted players of an
+     * owner who never set any, as a {@link ClaimPermission} mask
+     */
+    public int getDefaultTrustPermissions() {
+        return defaultTrustPermissions;
+    }
+
+    /**
+     * Visitor permissions of an owner who never set any, as a
+     * {@link ClaimPermission} mask
+     */
+    public int getDefaultVisitorPermissions() {
+        return defaultVisitorPermissions;
     }
 
     public int getWorldGuardGap() {
@@ -204,22 +254,6 @@ public class ConfigManager {
         return getConfig().getInt("actionbar-update-interval", 20);
     }
 
-    public void saveClaimsConfig() {
-        try {
-            claimsConfig.save(claimsFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save claims.yml: " + e.getMessage());
-        }
-    }
-
-    public void saveTrustConfig() {
-        try {
-            trustConfig.save(trustFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Could not save trust.yml: " + e.getMessage());
-        }
-    }
-
     public String getMessage(String key, String... replacements) {
         String prefix = getConfig().getString("prefix", "&8[&6LandClaim&8]&r ");
         String message = messagesConfig.getString(key, "&cMessage not found: " + key);
@@ -0,0 +1,138 @@
+package org.ayosynk.landClaimPlugin.managers;
+
+import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.index.ClaimIndex;
+import org.ayosynk.landClaimPlugin.storage.StoredHome;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Loads claims, trust data and homes in parallel, one task per source (plus
+ * a one-off split of the old playerdata.yml at startup), then publishes the
+ * results on the calling (main) thread. Each manager's state is built once
+ * per load and swapped in whole, so nothing reads a half-loaded index.
+ */
+public class DataLoader {
+    private final LandClaimPlugin plugin;
+
+    public DataLoader(LandClaimPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    /**
+     * Load and publish everything. Player data itself is read per player on
+     * login; on {@code startup} the old playerdata.yml is migrated if it is
+     * still there.
+     *
+     * @return a timing breakdown for the log
+     */
+    public String load(boolean startup) {
+        long start = System.nanoTime();
+        int tasks = startup ? 4 : 3;
+        int threads = Math.max(1, Math.min(tasks, Runtime.getRuntime().availableProcessors()));
+        AtomicInteger threadNumber = new AtomicInteger();
+        ExecutorService pool = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "LandClaim-Load-" + threadNumber.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+
+        try {
+            ClaimManager claimManager = plugin.getClaimManager();
+            TrustManager trustManager = plugin.getTrustManager();
+            HomeManager homeManager = plugin.getHomeManager();
+            PlayerDataManager playerDataManager = plugin.getPlayerDataManager();
+
+            List<Task<?>> all = new ArrayList<>(tasks);
+            Task<ClaimIndex> claims = submit(pool, all, "claims", claimManager::loadIndex);
+            Task<TrustManager.TrustData> trust = submit(pool, all, "trust", trustManager::loadData);
+            Task<Map<UUID, Map<String, StoredHome>>> homes = submit(pool, all, "homes", homeManager::loadData);
+            Task<Integer> playerData = startup
+                    ? submit(pool, all, "player data", playerDataManager::migrateLegacyFile)
+                    : null;
+
+            // Publish in a fixed order as each result arrives; only the swap counts as publish time
+            long publishNanos = 0;
+            ClaimIndex index = claims.get();
+            long publishStart = System.nanoTime();
+            claimManager.publishIndex(index);
+            publishNanos += System.nanoTime() - publishStart;
+
+            TrustManager.TrustData trustData = trust.get();
+            publishStart = System.nanoTime();
+            trustManager.publish(trustData);
+            publishNanos += System.nanoTime() - publishStart;
+
+            Map<UUID, Map<String, StoredHome>> homeData = homes.get();
+            publishStart = System.nanoTime();
+            homeManager.publish(homeData);
+            publishNanos += System.nanoTime() - publishStart;
+
+            if (playerData != null) {
+                int migrated = playerData.get();
+                if (migrated > 0) {
+                    plugin.getLogger().info("Moved " + migrated + " players from playerdata.yml to playerdata/");
+                }
+            }
+
+            StringBuilder timings = new StringBuilder();
+            long loadedAt = start;
+            for (Task<?> task : all) {
+                timings.append(task.name).append(' ').append(millis(task.nanos)).append(", ");
+                loadedAt = Math.max(loadedAt, task.finishedAt);
+            }
+            return String.format("%sread in %s on %d thread%s, publish %s, total %s", timings,
+                    millis(loadedAt - start), threads, threads == 1 ? "" : "s", millis(publishNanos),
+                    millis(System.nanoTime() - start));
+        } finally {
+            pool.shutdown();
+        }
+    }
+
+    private static String millis(long nanos) {
+        return String.format("%.1f ms", nanos / 1e6);
+    }
+
+    private static <T> Task<T> submit(ExecutorService pool, List<Task<?>> all, String name, Callable<T> work) {
+        Task<T> task = new Task<>(name);
+        task.future = pool.submit(() -> {
+            long start = System.nanoTime();
+            try {
+                return work.call();
+            } finally {
+                task.finishedAt = System.nanoTime();
+                task.nanos = task.finishedAt - start;
+            }
+        });
+        all.add(task);
+        return task;
+    }
+
+    private static final class Task<T> {
+        private final String name;
+        private Future<T> future;
+        private volatile long nanos;
+        private volatile long finishedAt;
+
+        Task(String name) {
+            this.name = name;
+        }
+
+        T get() {
+            try {
+                return future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while loading " + name, e);
+            } catch (ExecutionException e) {
+                throw new IllegalStateException("Could not load " + name + ": " + e.getCause().getMessage(),
+                        e.getCause());
+            }
+        }
+    }
+}
@@ -1,21 +1,18 @@
 package org.ayosynk.landClaimPlugin.managers;
 
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.storage.StoredHome;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
-import org.bukkit.configuration.file.YamlConfiguration;
 import org.bukkit.entity.Player;
 
-import java.io.File;
 import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
 /**
- * Manages multiple named homes per player, persisted in homes.yml.
+ * Manages multiple named homes per player, persisted by the storage backend.
  * Home limits can be overridden with landclaim.homes.limit.<n> permissions.
  */
 public class HomeManager {
@@ -23,103 +20,82 @@ public class HomeManager {
     private final ConfigManager configManager;
     private final Map<UUID, Map<String, Location>> playerHomes = new ConcurrentHashMap<>();
 
-    private FileConfiguration homesConfig;
-    private File homesFile;
-
     public HomeManager(LandClaimPlugin plugin, ConfigManager configManager) {
         this.plugin = plugin;
         this.configManager = configManager;
+    }
 
-        homesFile = new File(plugin.getDataFolder(), "homes.yml");
-        if (!homesFile.exists()) {
-            try {
-                homesFile.getParentFile().mkdirs();
-                homesFile.createNewFile();
-            } catch (IOException e) {
-                plugin.getLogger().severe("Failed to create homes.yml");
-                e.printStackTrace();
-            }
+    /**
+     * Read every home from the storage backend. Touches no live state, so it
+     * can run on a loader thread; install the result with {@link #publish(Map)}.
+     */
+    public Map<UUID, Map<String, StoredHome>> loadData() {
+        Map<UUID, Map<String, StoredHome>> homes = new HashMap<>();
+        try {
+            plugin.getStorage().loadHomes((playerId, name, home) -> homes
+                    .computeIfAbsent(playerId, k -> new HashMap<>()).put(name.toLowerCase(), home));
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not load homes: " + e.getMessage());
         }
-        homesConfig = YamlConfiguration.loadConfiguration(homesFile);
-        load();
+        return homes;
     }
 
-    public void load() {
+    /**
+     * Replace the live homes, resolving worlds by name. Homes in worlds that
+     * are not loaded are skipped. Main thread only.
+     */
+    public void publish(Map<UUID, Map<String, StoredHome>> stored) {
         playerHomes.clear();
-        ConfigurationSection playersSection = homesConfig.getConfigurationSection("homes");
-        if (playersSection == null)
-            return;
-
-        for (String uuidStr : playersSection.getKeys(false)) {
-            UUID playerId;
-            try {
-                playerId = UUID.fromString(uuidStr);
-            } catch (IllegalArgumentException e) {
-                plugin.getLogger().warning("Skipping invalid UUID in homes.yml: " + uuidStr);
-                continue;
-            }
-
-            ConfigurationSection homesSection = playersSection.getConfigurationSection(uuidStr);
-            if (homesSection == null)
-                continue;
-
+        for (Map.Entry<UUID, Map<String, StoredHome>> entry : stored.entrySet()) {
             Map<String, Location> homes = new HashMap<>();
-            for (String homeName : homesSection.getKeys(false)) {
-                ConfigurationSection homeData = homesSection.getConfigurationSection(homeName);
-                if (homeData == null)
-                    continue;
-
-                String worldName = homeData.getString("world");
-                World world = worldName != null ? Bukkit.getWorld(worldName) : null;
+            for (Map.Entry<String, StoredHome> homeEntry : entry.getValue().entrySet()) {
+                StoredHome home = homeEntry.getValue();
+                World world = Bukkit.getWorld(home.getWorld());
                 if (world == null)
                     continue;
-
-                double x = homeData.getDouble("x");
-                double y = homeData.getDouble("y");
-                double z = homeData.getDouble("z");
-                float yaw = (float) homeData.getDouble("yaw", 0);
-                float pitch = (float) homeData.getDouble("pitch", 0);
-
-                homes.put(homeName.toLowerCase(), new Location(world, x, y, z, yaw, pitch));
+                homes.put(homeEntry.getKey(),
+                        new Location(world, home.getX(), home.getY(), home.getZ(), home.getYaw(), home.getPitch()));
             }
-
             if (!homes.isEmpty()) {
-                playerHomes.put(playerId, homes);
+                playerHomes.put(entry.getKey(), homes);
             }
         }
     }
 
-    public void save() {
-        homesConfig.set("homes", null);
-        ConfigurationSection playersSection = homesConfig.createSection("homes");
-
+    /**
+     * Copy every home for a storage backend to write off the main thread.
+     * Must be called on the main thread.
+     */
+    public Map<UUID, Map<String, StoredHome>> captureSnapshot() {
+        Map<UUID, Map<String, StoredHome>> copy = new HashMap<>(playerHomes.size() * 2);
         for (Map.Entry<UUID, Map<String, Location>> entry : playerHomes.entrySet()) {
-            ConfigurationSection playerSection = playersSection.createSection(entry.getKey().toString());
-
+            Map<String, StoredHome> homes = new LinkedHashMap<>();
             for (Map.Entry<String, Location> homeEntry : entry.getValue().entrySet()) {
-                ConfigurationSection homeData = playerSection.createSection(homeEntry.getKey());
-                Location loc = homeEntry.getValue();
-
-                homeData.set("world", loc.getWorld().getName());
-                homeData.set("x", loc.getX());
-                homeData.set("y", loc.getY());
-                homeData.set("z", loc.getZ());
-                homeData.set("yaw", loc.getYaw());
-                homeData.set("pitch", loc.getPitch());
+                homes.put(homeEntry.getKey(), new StoredHome(homeEntry.getValue()));
             }
+            copy.put(entry.getKey(), homes);
         }
+        return copy;
+    }
 
-        try {
-            homesConfig.save(homesFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Failed to save homes.yml");
-            e.printStackTrace();
+    /**
+     * Copy one player's homes. Must be called on the main thread.
+     */
+    public Map<String, StoredHome> captureSnapshot(UUID playerId) {
+        Map<String, StoredHome> homes = new LinkedHashMap<>();
+        Map<String, Location> live = playerHomes.get(playerId);
+        if (live != null) {
+            for (Map.Entry<String, Location> homeEntry : live.entrySet()) {
+                homes.put(homeEntry.getKey(), new StoredHome(homeEntry.getValue()));
+            }
         }
+        return homes;
     }
 
     public boolean setHome(UUID playerId, String name, Location location) {
         Map<String, Location> homes = playerHomes.computeIfAbsent(playerId, k -> new HashMap<>());
         homes.put(name.toLowerCase(), location);
+        plugin.getStorage().homeSet(playerId, name.toLowerCase(), new StoredHome(location));
         return true;
     }
 
@@ -127,7 +103,10 @@ public class HomeManager {
         Map<String, Location> homes = playerHomes.get(playerId);
         if (homes == null)
             return false;
-        return homes.remove(name.toLowerCase()) != null;
+        if (homes.remove(name.toLowerCase()) == null)
+            return false;
+        plugin.getStorage().homeDeleted(playerId, name.toLowerCase());
+        return true;
     }
 
     public Location getHome(UUID playerId, String name) {
@@ -146,12 +125,11 @@ public class HomeManager {
      * in descending order (like claim limits), falling back to config max-homes.
      */
     public int getHomeLimit(Player player) {
-        if (player.hasPermission("landclaim.admin"))
+        PermissionManager.PermissionSnapshot permissions = plugin.getPermissionManager().getSnapshot(player);
+        if (permissions.isAdmin())
             return Integer.MAX_VALUE;
-        for (int i = 100; i > 0; i--) {
-            if (player.hasPermission("landclaim.homes.limit." + i))
-                return i;
-        }
+        if (permissions.getHomeLimit() > 0)
+            return permissions.getHomeLimit();
         return configManager.getConfig().getInt("max-homes", 3);
     }
 
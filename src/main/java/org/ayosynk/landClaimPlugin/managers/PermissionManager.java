@@ -0,0 +1,118 @@
+package org.ayosynk.landClaimPlugin.managers;
+
+import org.bukkit.entity.Player;
+import org.bukkit.permissions.PermissionAttachmentInfo;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Caches the permission-derived values the plugin asks for on hot paths
+ * (admin bypass, claim limit, home limit).
+ *
+ * A snapshot is built from the player's effective permissions in a single
+ * pass, so numeric limit nodes of any size are picked up without probing
+ * landclaim.limit.1..N one by one. Snapshots are rebuilt on join, world
+ * change and reload, on demand through {@link #refresh(Player)}, and after
+ * permission-refresh-interval seconds to pick up changes made by permission
+ * plugins (Bukkit has no event for permission recalculation).
+ */
+public class PermissionManager {
+    public static final String ADMIN_PERMISSION = "landclaim.admin";
+    private static final String CLAIM_LIMIT_PREFIX = "landclaim.limit.";
+    private static final String HOME_LIMIT_PREFIX = "landclaim.homes.limit.";
+
+    private final ConfigManager configManager;
+    private final Map<UUID, PermissionSnapshot> snapshots = new ConcurrentHashMap<>();
+
+    public PermissionManager(ConfigManager configManager) {
+        this.configManager = configManager;
+    }
+
+    public PermissionSnapshot getSnapshot(Player player) {
+        PermissionSnapshot snapshot = snapshots.get(player.getUniqueId());
+        long now = System.currentTimeMillis();
+        if (snapshot == null || now - snapshot.createdAt > configManager.getPermissionRefreshMillis()) {
+            snapshot = refresh(player);
+        }
+        return snapshot;
+    }
+
+    /**
+     * Rebuild a player's snapshot from their current effective permissions
+     */
+    public PermissionSnapshot refresh(Player player) {
+        int claimLimit = -1;
+        int homeLimit = -1;
+        for (PermissionAttachmentInfo info : player.getEffectivePermissions()) {
+            if (!info.getValue())
+                continue;
+
+            String permission = info.getPermission();
+            if (permission.regionMatches(true, 0, CLAIM_LIMIT_PREFIX, 0, CLAIM_LIMIT_PREFIX.length())) {
+                claimLimit = Math.max(claimLimit, parseLimit(permission, CLAIM_LIMIT_PREFIX.length()));
+            } else if (permission.regionMatches(true, 0, HOME_LIMIT_PREFIX, 0, HOME_LIMIT_PREFIX.length())) {
+                homeLimit = Math.max(homeLimit, parseLimit(permission, HOME_LIMIT_PREFIX.length()));
+            }
+        }
+
+        // Admin goes through hasPermission so op defaults and wildcard parents are honoured
+        boolean admin = player.hasPermission(ADMIN_PERMISSION);
+        PermissionSnapshot snapshot = new PermissionSnapshot(admin, claimLimit, homeLimit,
+                System.currentTimeMillis());
+        snapshots.put(player.getUniqueId(), snapshot);
+        return snapshot;
+    }
+
+    public boolean isAdmin(Player player) {
+        return getSnapshot(player).isAdmin();
+    }
+
+    public void invalidate(UUID playerId) {
+        snapshots.remove(playerId);
+    }
+
+    public void invalidateAll() {
+        snapshots.clear();
+    }
+
+    private int parseLimit(String permission, int offset) {
+        try {
+            return Integer.parseInt(permission.substring(offset));
+        } catch (NumberFormatException e) {
+            // Wildcards and other non-numeric suffixes carry no limit
+            return -1;
+        }
+    }
+
+    /**
+     * Immutable view of a player's permission-derived values. Limits are -1
+     * when no limit node is granted.
+     */
+    public static final class PermissionSnapshot {
+        private final boolean admin;
+        private final int claimLimit;
+        private final int homeLimit;
+        private final long createdAt;
+
+        PermissionSnapshot(boolean admin, int claimLimit, int homeLimit, long createdAt) {
+            this.admin = admin;
+            this.claimLimit = claimLimit;
+            this.homeLimit = homeLimit;
+            this.createdAt = createdAt;
+        }
+
+        public boolean isAdmin() {
+            return admin;
+        }
+
+        public int getClaimLimit() {
+            return claimLimit;
+        }
+
+        public int getHomeLimit() {
+            return homeLimit;
+        }
+    }
+}
@@ -0,0 +1,336 @@
+package org.ayosynk.landClaimPlugin.managers;
+
+import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.storage.PersistentStore;
+import org.ayosynk.landClaimPlugin.utils.AtomicFiles;
+import org.bukkit.configuration.ConfigurationSection;
+import org.bukkit.configuration.file.FileConfiguration;
+import org.bukkit.configuration.file.YamlConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Consumer;
+
+/**
+ * Per-player settings (auto-claim, auto-unclaim, visualization mode), one
+ * small file per player in playerdata/.
+ *
+ * A player's file is read when they log in (on the async pre-login thread
+ * where possible) and kept while they are online; after they quit the entry
+ * stays in a small LRU so rejoining costs nothing. Changes only mark the
+ * player dirty; on each autosave the dirty players are captured on the main
+ * thread and their files rewritten on a save thread, so a mass quit costs
+ * one batch of small writes instead of a full-file rewrite per player.
+ */
+public class PlayerDataManager implements PersistentStore {
+    // Offline players kept in memory after they quit
+    private static final int OFFLINE_CACHE_SIZE = 256;
+    // Rough size of one player's file, for the pending-size estimate
+    private static final int STATE_SIZE = 128;
+
+    private final LandClaimPlugin plugin;
+    private final File directory;
+    private final File legacyFile;
+
+    private final Map<UUID, PlayerState> online = new ConcurrentHashMap<>();
+    // Guarded by itself; access order makes it an LRU
+    private final Map<UUID, PlayerState> offline = new LinkedHashMap<>(16, 0.75f, true) {
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<UUID, PlayerState> eldest) {
+            return size() > OFFLINE_CACHE_SIZE;
+        }
+    };
+    // Changed since the last flush; holds the live objects so eviction loses nothing
+    private final Map<UUID, PlayerState> dirty = new ConcurrentHashMap<>();
+    // Captured by a flush but not written yet, with the copy being written
+    private final Map<UUID, PlayerState> writing = new ConcurrentHashMap<>();
+
+    public PlayerDataManager(LandClaimPlugin plugin) {
+        this.plugin = plugin;
+        this.directory = new File(plugin.getDataFolder(), "playerdata");
+        this.legacyFile = new File(plugin.getDataFolder(), "playerdata.yml");
+    }
+
+    /**
+     * Split an old playerdata.yml into per-player files, once. Safe to call
+     * off the main thread before anything else uses this manager.
+     *
+     * @return the number of players migrated
+     */
+    public int migrateLegacyFile() throws IOException {
+        if (directory.exists() || !legacyFile.exists())
+            return 0;
+
+        FileConfiguration legacy = YamlConfiguration.loadConfiguration(legacyFile);
+        Map<UUID, PlayerState> states = new HashMap<>();
+        readLegacySection(legacy.getConfigurationSection("auto-claim"), states,
+                (state, section, key) -> state.autoClaim = section.getBoolean(key));
+        readLegacySection(legacy.getConfigurationSection("auto-unclaim"), states,
+                (state, section, key) -> state.autoUnclaim = section.getBoolean(key));
+        readLegacySection(legacy.getConfigurationSection("visualization-modes"), states,
+                (state, section, key) -> state.visualizationMode = section.getString(key));
+
+        directory.mkdirs();
+        for (Map.Entry<UUID, PlayerState> entry : states.entrySet()) {
+            write(entry.getKey(), entry.getValue());
+        }
+        File migrated = new File(legacyFile.getParentFile(), legacyFile.getName() + ".migrated");
+        Files.move(legacyFile.toPath(), migrated.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        return states.size();
+    }
+
+    private void readLegacySection(ConfigurationSection section, Map<UUID, PlayerState> states,
+            LegacyReader reader) {
+        if (section == null)
+            return;
+
+        for (String uuidStr : section.getKeys(false)) {
+            try {
+                UUID playerId = UUID.fromString(uuidStr);
+                reader.read(states.computeIfAbsent(playerId, k -> new PlayerState()), section, uuidStr);
+            } catch (IllegalArgumentException ignored) {
+            }
+        }
+    }
+
+    /**
+     * Read a player's state ahead of their join. Called from the async
+     * pre-login thread, so the main thread does not touch the disk for it.
+     * The state goes to the offline LRU, so a login that is refused later
+     * leaves nothing behind.
+     */
+    public void preload(UUID playerId) {
+        if (online.containsKey(playerId) || dirty.containsKey(playerId))
+            return;
+        synchronized (offline) {
+            if (offline.containsKey(playerId))
+                return;
+        }
+
+        PlayerState state = load(playerId);
+        synchronized (offline) {
+            offline.putIfAbsent(playerId, state);
+        }
+    }
+
+    public void handleJoin(UUID playerId) {
+        online.computeIfAbsent(playerId, this::takeOrLoad);
+    }
+
+    /**
+     * Move a player's state to the offline LRU. Nothing is written here;
+     * pending changes go out with the next autosave.
+     */
+    public void handleQuit(UUID playerId) {
+        PlayerState state = online.remove(playerId);
+        if (state != null) {
+            synchronized (offline) {
+                offline.put(playerId, state);
+            }
+        }
+    }
+
+    /**
+     * The state of a player, loaded from disk if it is not cached. Main thread.
+     */
+    public PlayerState get(UUID playerId) {
+        PlayerState state = online.get(playerId);
+        if (state != null)
+            return state;
+
+        state = takeOrLoad(playerId);
+        synchronized (offline) {
+            offline.put(playerId, state);
+        }
+        return state;
+    }
+
+    /**
+     * Change a player's state and schedule it for writing. Main thread.
+     */
+    public void update(UUID playerId, Consumer<PlayerState> change) {
+        PlayerState state = get(playerId);
+        change.accept(state);
+        dirty.put(playerId, state);
+    }
+
+    private PlayerState takeOrLoad(UUID playerId) {
+        PlayerState state = dirty.get(playerId);
+        if (state != null)
+            return state;
+        synchronized (offline) {
+            state = offline.remove(playerId);
+        }
+        if (state != null)
+            return state;
+        return load(playerId);
+    }
+
+    private PlayerState load(UUID playerId) {
+        PlayerState captured = writing.get(playerId);
+        if (captured != null) {
+            // The file on disk is about to be replaced with this
+            return captured.copy();
+        }
+        return read(playerId);
+    }
+
+    @Override
+    public String getName() {
+        return "player data";
+    }
+
+    /**
+     * Players whose file needs rewriting
+     */
+    @Override
+    public int getPendingChanges() {
+        return dirty.size();
+    }
+
+    @Override
+    public long getPendingBytes() {
+        return (long) dirty.size() * STATE_SIZE;
+    }
+
+    @Override
+    public void autoSave() {
+        saveAllAsync();
+    }
+
+    /**
+     * Write every dirty player's file. Captures on the calling (main)
+     * thread, writes on a save thread.
+     */
+    @Override
+    public CompletableFuture<Void> saveAllAsync() {
+        if (dirty.isEmpty())
+            return CompletableFuture.completedFuture(null);
+
+        return plugin.getSaveManager().save(this, "Player data", () -> {
+            Map<UUID, PlayerState> live = new HashMap<>(dirty);
+            Map<UUID, PlayerState> copies = new HashMap<>(live.size() * 2);
+            for (Map.Entry<UUID, PlayerState> entry : live.entrySet()) {
+                // In writing before leaving dirty, so a concurrent preload always finds it
+                PlayerState copy = entry.getValue().copy();
+                writing.put(entry.getKey(), copy);
+                dirty.remove(entry.getKey());
+                copies.put(entry.getKey(), copy);
+            }
+            return () -> {
+                IOException failure = null;
+                long bytes = 0;
+                for (Map.Entry<UUID, PlayerState> entry : copies.entrySet()) {
+                    UUID playerId = entry.getKey();
+                    try {
+                        bytes += write(playerId, entry.getValue());
+                    } catch (IOException e) {
+                        // Retried with the next flush
+                        dirty.putIfAbsent(playerId, live.get(playerId));
+                        failure = e;
+                    } finally {
+                        // A later flush may have captured the player again meanwhile
+                        writing.remove(playerId, entry.getValue());
+                    }
+                }
+                if (failure != null)
+                    throw failure;
+                return bytes;
+            };
+        });
+    }
+
+    private File fileFor(UUID playerId) {
+        return new File(directory, playerId + ".yml");
+    }
+
+    private PlayerState read(UUID playerId) {
+        PlayerState state = new PlayerState();
+        File file = fileFor(playerId);
+        if (!file.exists())
+            return state;
+
+        FileConfiguration config = YamlConfiguration.loadConfiguration(file);
+        if (config.contains("auto-claim")) {
+            state.autoClaim = config.getBoolean("auto-claim");
+        }
+        if (config.contains("auto-unclaim")) {
+            state.autoUnclaim = config.getBoolean("auto-unclaim");
+        }
+        state.visualizationMode = config.getString("visualization-mode");
+        return state;
+    }
+
+    private long write(UUID playerId, PlayerState state) throws IOException {
+        File file = fileFor(playerId);
+        if (state.isEmpty()) {
+            Files.deleteIfExists(file.toPath());
+            return 0;
+        }
+
+        YamlConfiguration config = new YamlConfiguration();
+        config.set("auto-claim", state.autoClaim);
+        config.set("auto-unclaim", state.autoUnclaim);
+        config.set("visualization-mode", state.visualizationMode);
+        return AtomicFiles.write(file, config.saveToString());
+    }
+
+    @FunctionalInterface
+    private interface LegacyReader {
+        void read(PlayerState state, ConfigurationSection section, String key);
+    }
+
+    /**
+     * One player's settings. Unset values fall back to the config defaults.
+     * Read and changed on the main thread only.
+     */
+    public static final class PlayerState {
+        private Boolean autoClaim;
+        private Boolean autoUnclaim;
+        private String visualizationMode;
+
+        public Boolean getAutoClaim() {
+            return autoClaim;
+        }
+
+        public void setAutoClaim(Boolean autoClaim) {
+            this.autoClaim = autoClaim;
+        }
+
+        public Boolean getAutoUnclaim() {
+            return autoUnclaim;
+        }
+
+        public void setAutoUnclaim(Boolean autoUnclaim) {
+            this.autoUnclaim = autoUnclaim;
+        }
+
+        /**
+         * Name of a {@code VisualizationManager.VisualizationMode}, or null for off
+         */
+        public String getVisualizationMode() {
+            return visualizationMode;
+        }
+
+        public void setVisualizationMode(String visualizationMode) {
+            this.visualizationMode = visualizationMode;
+        }
+
+        boolean isEmpty() {
+            return autoClaim == null && autoUnclaim == null && visualizationMode == null;
+        }
+
+        PlayerState copy() {
+            PlayerState copy = new PlayerState();
+            copy.autoClaim = autoClaim;
+            copy.autoUnclaim = autoUnclaim;
+            copy.visualizationMode = visualizationMode;
+            return copy;
+        }
+    }
+}
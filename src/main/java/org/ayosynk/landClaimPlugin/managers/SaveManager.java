@@ -1,35 +1,71 @@
 package org.ayosynk.landClaimPlugin.managers;
 
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.storage.DataSnapshot;
+import org.ayosynk.landClaimPlugin.storage.PersistentStore;
 import org.bukkit.scheduler.BukkitRunnable;
 
-import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 /**
  * Manages async and debounced save operations to prevent main thread blocking
  * and reduce disk I/O from frequent saves.
+ *
+ * Every save is split in two: the main thread only captures an immutable
+ * snapshot of the manager's state, and a background thread serializes it and
+ * atomically replaces the file. Each save name (one file or set of files)
+ * has its own writer thread, so saves of the same file stay in the order
+ * they were captured while different files are written side by side.
+ *
+ * Registered stores are flushed when the first of these is reached: the
+ * autosave interval, a number of pending changes, or an estimated size of
+ * the pending changes (see the autosave settings in config.yml).
  */
 public class SaveManager {
     private final LandClaimPlugin plugin;
-    private final ClaimManager claimManager;
-    private final TrustManager trustManager;
-    private final HomeManager homeManager;
+    private final Map<String, ExecutorService> writers = new ConcurrentHashMap<>();
+    private final Map<PersistentStore, StoreMetrics> metrics = new ConcurrentHashMap<>();
 
-    // Debounce flags - mark data as dirty, save on next cycle
-    private final AtomicBoolean claimsDirty = new AtomicBoolean(false);
-    private final AtomicBoolean trustDirty = new AtomicBoolean(false);
-    private final AtomicBoolean permissionsDirty = new AtomicBoolean(false);
-    private final AtomicBoolean homesDirty = new AtomicBoolean(false);
+    // Main thread only; registration order, with the time of each store's last autosave
+    private final Map<PersistentStore, Long> stores = new LinkedHashMap<>();
+    private final Set<String> pendingSaves = new HashSet<>();
 
-    // Save interval in ticks (default: 60 seconds = 1200 ticks)
-    private static final int SAVE_INTERVAL = 1200;
+    // Ticks between checks of the flush conditions (1 second)
+    private static final int CHECK_INTERVAL = 20;
+    // Ticks a requested save waits so that rapid changes share one write (2 seconds)
+    private static final int SAVE_DELAY = 40;
 
-    public SaveManager(LandClaimPlugin plugin, ClaimManager claimManager, TrustManager trustManager,
-            HomeManager homeManager) {
+    public SaveManager(LandClaimPlugin plugin) {
         this.plugin = plugin;
-        this.claimManager = claimManager;
-        this.trustManager = trustManager;
-        this.homeManager = homeManager;
+    }
+
+    /**
+     * Put a store on the autosave schedule and flush it in {@link #saveAll()}
+     */
+    public void register(PersistentStore store) {
+        stores.put(store, System.nanoTime());
+        metricsFor(store);
+    }
+
+    public List<PersistentStore> getStores() {
+        return new ArrayList<>(stores.keySet());
+    }
+
+    public StoreMetrics getMetrics(PersistentStore store) {
+        return metricsFor(store);
+    }
+
+    private StoreMetrics metricsFor(PersistentStore store) {
+        return metrics.computeIfAbsent(store, k -> new StoreMetrics());
     }
 
     /**
@@ -39,112 +75,201 @@ public class SaveManager {
         new BukkitRunnable() {
             @Override
             public void run() {
-                saveIfDirty();
+                checkStores();
             }
-        }.runTaskTimerAsynchronously(plugin, SAVE_INTERVAL, SAVE_INTERVAL);
+        }.runTaskTimer(plugin, CHECK_INTERVAL, CHECK_INTERVAL);
+    }
+
+    private void checkStores() {
+        ConfigManager config = plugin.getConfigManager();
+        long interval = TimeUnit.SECONDS.toNanos(config.getAutoSaveInterval());
+        int maxChanges = config.getAutoSaveMaxPendingChanges();
+        long maxBytes = config.getAutoSaveMaxPendingBytes();
+        long now = System.nanoTime();
+
+        for (Map.Entry<PersistentStore, Long> entry : stores.entrySet()) {
+            PersistentStore store = entry.getKey();
+            // A limit of 0 turns that condition off
+            boolean due = now - entry.getValue() >= interval
+                    || (maxChanges > 0 && store.getPendingChanges() >= maxChanges)
+                    || (maxBytes > 0 && store.getPendingBytes() >= maxBytes);
+            if (!due)
+                continue;
+
+            entry.setValue(now);
+            try {
+                // Stores only capture state here and hand writes to background threads
+                store.autoSave();
+            } catch (RuntimeException e) {
+                plugin.getLogger().severe("Autosave of " + store.getName() + " failed: " + e.getMessage());
+                metricsFor(store).recordFailure(e.getMessage());
+            }
+        }
     }
 
     /**
-     * Mark claims data as needing to be saved
+     * Run {@code save} on the main thread {@link #SAVE_DELAY} ticks after the
+     * first request for {@code key}. Further requests for the same key before
+     * then are folded into that run, so a burst of changes costs one write
+     * and none waits longer than the delay. Main thread only.
      */
-    public void markClaimsDirty() {
-        claimsDirty.set(true);
+    public void requestSave(String key, Runnable save) {
+        if (!pendingSaves.add(key))
+            return;
+
+        new BukkitRunnable() {
+            @Override
+            public void run() {
+                pendingSaves.remove(key);
+                save.run();
+            }
+        }.runTaskLater(plugin, SAVE_DELAY);
     }
 
     /**
-     * Mark trust data as needing to be saved
+     * Capture a snapshot on the calling thread (normally the main thread) and
+     * write it on the writer thread for {@code name}. The flush is counted
+     * towards {@code store}'s metrics, and the completion log reports the
+     * time spent on the calling thread separately from the total.
      */
-    public void markTrustDirty() {
-        trustDirty.set(true);
+    public CompletableFuture<Void> save(PersistentStore store, String name, Supplier<DataSnapshot> capture) {
+        long start = System.nanoTime();
+        DataSnapshot snapshot = capture.get();
+        long captureNanos = System.nanoTime() - start;
+
+        CompletableFuture<Void> result = new CompletableFuture<>();
+        writer(name).execute(() -> {
+            try {
+                long writeStart = System.nanoTime();
+                long bytes = snapshot.write();
+                long end = System.nanoTime();
+                recordFlush(store, captureNanos + end - writeStart, bytes);
+                logSaved(name, captureNanos, end - start, bytes);
+                result.complete(null);
+            } catch (Exception e) {
+                plugin.getLogger().severe("Could not save " + name.toLowerCase() + ": " + e.getMessage());
+                recordFailure(store, e.getMessage());
+                result.completeExceptionally(e);
+            }
+        });
+        return result;
+    }
+
+    private ExecutorService writer(String name) {
+        return writers.computeIfAbsent(name, k -> Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LandClaim-Save (" + name + ")");
+            thread.setDaemon(true);
+            return thread;
+        }));
     }
 
     /**
-     * Mark permissions data as needing to be saved
+     * Count a flush a store did on its own thread. Safe to call from any thread.
      */
-    public void markPermissionsDirty() {
-        permissionsDirty.set(true);
+    public void recordFlush(PersistentStore store, long nanos, long bytes) {
+        metricsFor(store).recordFlush(nanos, bytes);
     }
 
     /**
-     * Mark homes data as needing to be saved
+     * Count a failed flush. Safe to call from any thread.
      */
-    public void markHomesDirty() {
-        homesDirty.set(true);
+    public void recordFailure(PersistentStore store, String error) {
+        metricsFor(store).recordFailure(error);
     }
 
     /**
-     * Save all dirty data asynchronously
+     * Log a finished save when autosave messages are enabled
      */
-    private void saveIfDirty() {
-        if (claimsDirty.compareAndSet(true, false)) {
-            // Run file I/O on async thread, but access Bukkit API on main thread
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    claimManager.saveClaims();
-                    if (plugin.getConfigManager().logAutoSaveMessage()) {
-                        plugin.getLogger().info("Claims auto-saved.");
-                    }
-                }
-            }.runTask(plugin);
+    public void logSaved(String name, long captureNanos, long totalNanos, long bytes) {
+        if (plugin.getConfigManager().logAutoSaveMessage()) {
+            plugin.getLogger().info(String.format("%s saved in %.1f ms (%.2f ms on main thread, %s).",
+                    name, totalNanos / 1e6, captureNanos / 1e6, formatBytes(bytes)));
         }
+    }
 
-        if (trustDirty.compareAndSet(true, false)) {
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    trustManager.saveTrustedPlayers();
-                    if (plugin.getConfigManager().logAutoSaveMessage()) {
-                        plugin.getLogger().info("Trust data auto-saved.");
-                    }
-                }
-            }.runTask(plugin);
+    /**
+     * Log the counters of every store, e.g. on disable
+     */
+    public void logMetrics() {
+        for (PersistentStore store : stores.keySet()) {
+            StoreMetrics storeMetrics = metricsFor(store);
+            plugin.getLogger().info(String.format(
+                    "Storage %s: %d flushes, %s written, last flush %.1f ms, %d pending changes, %d failures",
+                    store.getName(), storeMetrics.getFlushes(), formatBytes(storeMetrics.getBytesWritten()),
+                    storeMetrics.getLastFlushNanos() / 1e6, store.getPendingChanges(),
+                    storeMetrics.getFailures()));
         }
+    }
 
-        if (permissionsDirty.compareAndSet(true, false)) {
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    trustManager.savePermissionsAndMembers();
-                    if (plugin.getConfigManager().logAutoSaveMessage()) {
-                        plugin.getLogger().info("Permissions auto-saved.");
-                    }
-                }
-            }.runTask(plugin);
-        }
+    public static String formatBytes(long bytes) {
+        if (bytes < 1024)
+            return bytes + " B";
+        if (bytes < 1024 * 1024)
+            return String.format("%.1f KB", bytes / 1024.0);
+        return String.format("%.1f MB", bytes / (1024.0 * 1024.0));
+    }
 
-        if (homesDirty.compareAndSet(true, false)) {
-            new BukkitRunnable() {
-                @Override
-                public void run() {
-                    homeManager.save();
-                    if (plugin.getConfigManager().logAutoSaveMessage()) {
-                        plugin.getLogger().info("Homes auto-saved.");
-                    }
-                }
-            }.runTask(plugin);
+    /**
+     * Force save all data and wait for the writes (for plugin disable). Every
+     * store captures its state in turn on this thread; the writes then run
+     * in parallel.
+     */
+    public void saveAll() {
+        List<CompletableFuture<Void>> writes = new ArrayList<>(stores.size());
+        for (PersistentStore store : stores.keySet()) {
+            try {
+                writes.add(store.saveAllAsync());
+            } catch (RuntimeException e) {
+                plugin.getLogger().severe("Could not save " + store.getName() + ": " + e.getMessage());
+                metricsFor(store).recordFailure(e.getMessage());
+            }
+        }
+        try {
+            CompletableFuture.allOf(writes.toArray(CompletableFuture<?>[]::new)).join();
+        } catch (CompletionException e) {
+            // Already logged and counted by the store that failed
         }
+        flush();
     }
 
     /**
-     * Force save all data immediately (for plugin disable)
+     * Block until every save queued so far has been written.
      */
-    public void saveAll() {
-        claimManager.saveClaims();
-        trustManager.saveTrustedPlayers();
-        trustManager.savePermissionsAndMembers();
-        homeManager.save();
+    public void flush() {
+        List<Future<?>> markers = new ArrayList<>();
+        for (ExecutorService writer : writers.values()) {
+            markers.add(writer.submit(() -> {
+            }));
+        }
+        for (Future<?> marker : markers) {
+            try {
+                marker.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (ExecutionException e) {
+                plugin.getLogger().severe("Could not flush pending saves: " + e.getCause().getMessage());
+            }
+        }
     }
 
     /**
-     * Save all data asynchronously
+     * Finish pending writes and stop the save threads.
      */
-    public void saveAllAsync() {
-        new BukkitRunnable() {
-            @Override
-            public void run() {
-                saveAll();
+    public void shutdown() {
+        for (ExecutorService writer : writers.values()) {
+            writer.shutdown();
+        }
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(30);
+        try {
+            for (ExecutorService writer : writers.values()) {
+                if (!writer.awaitTermination(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                    plugin.getLogger().warning("Timed out waiting for pending saves to finish");
+                    return;
+                }
             }
-        }.runTaskAsynchronously(plugin);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
     }
 }
@@ -0,0 +1,68 @@
+package org.ayosynk.landClaimPlugin.managers;
+
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Flush counters of one {@link org.ayosynk.landClaimPlugin.storage.PersistentStore}.
+ * Written by the threads that do the writing, read by the admin command.
+ */
+public class StoreMetrics {
+    private final AtomicInteger flushes = new AtomicInteger();
+    private final AtomicInteger failures = new AtomicInteger();
+    private final AtomicLong bytesWritten = new AtomicLong();
+    private volatile long lastFlushNanos;
+    private volatile long lastFlushBytes;
+    private volatile long lastFlushTime;
+    private volatile String lastError;
+
+    void recordFlush(long nanos, long bytes) {
+        flushes.incrementAndGet();
+        bytesWritten.addAndGet(bytes);
+        lastFlushNanos = nanos;
+        lastFlushBytes = bytes;
+        lastFlushTime = System.currentTimeMillis();
+    }
+
+    void recordFailure(String error) {
+        failures.incrementAndGet();
+        lastError = error;
+    }
+
+    public int getFlushes() {
+        return flushes.get();
+    }
+
+    public int getFailures() {
+        return failures.get();
+    }
+
+    /**
+     * Total since the plugin was enabled
+     */
+    public long getBytesWritten() {
+        return bytesWritten.get();
+    }
+
+    public long getLastFlushNanos() {
+        return lastFlushNanos;
+    }
+
+    public long getLastFlushBytes() {
+        return lastFlushBytes;
+    }
+
+    /**
+     * Wall-clock time of the last successful flush, or 0 if there was none
+     */
+    public long getLastFlushTime() {
+        return lastFlushTime;
+    }
+
+    /**
+     * Message of the last failure, or null
+     */
+    public String getLastError() {
+        return lastError;
+    }
+}
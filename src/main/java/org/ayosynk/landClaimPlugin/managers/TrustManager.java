@@ -1,12 +1,14 @@
 package org.ayosynk.landClaimPlugin.managers;
 
 import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.models.ClaimPermission;
+import org.ayosynk.landClaimPlugin.storage.StorageBackend;
+import org.ayosynk.landClaimPlugin.storage.TrustSnapshot;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
-import org.bukkit.configuration.ConfigurationSection;
-import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.entity.Player;
 
+import java.io.IOException;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -16,9 +18,11 @@ public class TrustManager {
     private final ConfigManager configManager;
     private final Map<UUID, Set<UUID>> trustedPlayers = new ConcurrentHashMap<>(); // Owner -> Trusted Players
 
-    private final Map<UUID, Map<UUID, Set<String>>> trustPermissions = new ConcurrentHashMap<>(); // Owner -> Trusted Player -> Permissions
-    private final Map<UUID, Map<String, Boolean>> visitorPermissions = new ConcurrentHashMap<>(); // Owner -> Permission -> Enabled
+    // Permission sets are ClaimPermission masks; boxed values that small are shared Integer instances
+    private final Map<UUID, Map<UUID, Integer>> trustPermissions = new ConcurrentHashMap<>(); // Owner -> Trusted Player -> Permissions
+    private final Map<UUID, Integer> visitorPermissions = new ConcurrentHashMap<>(); // Owner -> Enabled permissions
     private final Map<UUID, Set<UUID>> claimMembers = new ConcurrentHashMap<>(); // Owner -> Members
+    private final AccessCache accessCache = new AccessCache();
 
     public TrustManager(LandClaimPlugin plugin, ClaimManager claimManager, ConfigManager configManager) {
         this.plugin = plugin;
@@ -34,12 +38,6 @@ public class TrustManager {
         return configManager;
     }
 
-    public void initialize() {
-        loadTrustedPlayers();
-        loadPermissions();
-        loadMembers();
-    }
-
     public int getTotalTrusts() {
         int count = 0;
         for (Set<UUID> trustedSet : trustedPlayers.values()) {
@@ -48,132 +46,144 @@ public class TrustManager {
         return count;
     }
 
-    public void loadTrustedPlayers() {
-        trustedPlayers.clear();
-        FileConfiguration config = configManager.getTrustConfig();
-        ConfigurationSection trustSection = config.getConfigurationSection("trust");
-        if (trustSection == null) return;
-
-        for (String ownerIdStr : trustSection.getKeys(false)) {
-            try {
-                UUID owner = UUID.fromString(ownerIdStr);
-                List<String> trustedIds = trustSection.getStringList(ownerIdStr);
-                Set<UUID> trustedSet = new HashSet<>();
-                for (String id : trustedIds) {
-                    trustedSet.add(UUID.fromString(id));
+    /**
+     * Read trust, permission and member data from the storage backend into
+     * new maps. Touches no live state, so it can run on a loader thread;
+     * install the result with {@link #publish(TrustData)}.
+     */
+    public TrustData loadData() {
+        TrustData data = new TrustData();
+        try {
+            plugin.getStorage().loadTrust(new StorageBackend.TrustSink() {
+                @Override
+                public void trusted(UUID owner, UUID player) {
+                    data.trustedPlayers.computeIfAbsent(owner, k -> new HashSet<>()).add(player);
                 }
-                trustedPlayers.put(owner, trustedSet);
-            } catch (Exception e) {
-                plugin.getLogger().warning("Skipping invalid trust entry: " + ownerIdStr);
-            }
-        }
-    }
 
-    public void loadPermissions() {
-        trustPermissions.clear();
-        visitorPermissions.clear();
-
-        FileConfiguration config = configManager.getTrustConfig();
-        ConfigurationSection permissionsSection = config.getConfigurationSection("permissions");
-        if (permissionsSection == null) return;
-
-        for (String ownerIdStr : permissionsSection.getKeys(false)) {
-            UUID owner = UUID.fromString(ownerIdStr);
-            ConfigurationSection ownerSection = permissionsSection.getConfigurationSection(ownerIdStr);
+                @Override
+                public void trustPermissions(UUID owner, UUID player, Set<String> permissions) {
+                    data.trustPermissions.computeIfAbsent(owner, k -> new HashMap<>())
+                            .put(player, ClaimPermission.toMask(permissions));
+                }
 
-            ConfigurationSection trustSection = ownerSection.getConfigurationSection("trust");
-            if (trustSection != null) {
-                for (String trustedIdStr : trustSection.getKeys(false)) {
-                    UUID trustedId = UUID.fromString(trustedIdStr);
-                    Set<String> permissions = new HashSet<>(trustSection.getStringList(trustedIdStr));
-                    trustPermissions.computeIfAbsent(owner, k -> new HashMap<>()).put(trustedId, permissions);
+                @Override
+                public void visitorPermission(UUID owner, String permission, boolean enabled) {
+                    // An owner with any setting stored no longer gets the defaults, as before
+                    ClaimPermission known = ClaimPermission.fromName(permission);
+                    int bit = known != null ? known.bit() : 0;
+                    data.visitorPermissions.merge(owner, enabled ? bit : 0,
+                            (mask, ignored) -> enabled ? mask | bit : mask & ~bit);
                 }
-            }
 
-            ConfigurationSection visitorSection = ownerSection.getConfigurationSection("visitor");
-            if (visitorSection != null) {
-                Map<String, Boolean> perms = new HashMap<>();
-                for (String perm : visitorSection.getKeys(false)) {
-                    perms.put(perm, visitorSection.getBoolean(perm));
+                @Override
+                public void member(UUID owner, UUID member) {
+                    data.claimMembers.computeIfAbsent(owner, k -> new HashSet<>()).add(member);
                 }
-                visitorPermissions.put(owner, perms);
-            }
+            });
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not load trust data: " + e.getMessage());
         }
+        return data;
     }
 
-    public void loadMembers() {
+    /**
+     * Replace the live trust data. Main thread only.
+     */
+    public void publish(TrustData data) {
+        trustedPlayers.clear();
+        trustedPlayers.putAll(data.trustedPlayers);
+        trustPermissions.clear();
+        trustPermissions.putAll(data.trustPermissions);
+        visitorPermissions.clear();
+        visitorPermissions.putAll(data.visitorPermissions);
         claimMembers.clear();
-        FileConfiguration config = configManager.getTrustConfig();
-        ConfigurationSection membersSection = config.getConfigurationSection("members");
-        if (membersSection == null) return;
-
-        for (String ownerIdStr : membersSection.getKeys(false)) {
-            UUID owner = UUID.fromString(ownerIdStr);
-            List<String> memberIds = membersSection.getStringList(ownerIdStr);
-            Set<UUID> memberSet = new HashSet<>();
-            for (String id : memberIds) {
-                memberSet.add(UUID.fromString(id));
-            }
-            claimMembers.put(owner, memberSet);
-        }
+        claimMembers.putAll(data.claimMembers);
+        accessCache.clear();
     }
 
-    public void saveTrustedPlayers() {
-        FileConfiguration config = configManager.getTrustConfig();
-        config.set("trust", null);
+    /**
+     * Persist trust changes shortly rather than on the next autosave. Calls
+     * in quick succession (e.g. clicking through a permission menu) are
+     * coalesced into one write.
+     */
+    public void save() {
+        plugin.getSaveManager().requestSave("trust", plugin.getStorage()::flushTrust);
+    }
 
-        ConfigurationSection trustSection = config.createSection("trust");
-        for (Map.Entry<UUID, Set<UUID>> entry : trustedPlayers.entrySet()) {
-            List<String> trustedIds = new ArrayList<>();
-            for (UUID id : entry.getValue()) {
-                trustedIds.add(id.toString());
-            }
-            trustSection.set(entry.getKey().toString(), trustedIds);
+    /**
+     * Copy trust, permission and member data for a storage backend to write
+     * off the main thread. Must be called on the main thread.
+     */
+    public TrustSnapshot captureSnapshot() {
+        Map<UUID, List<UUID>> trusted = copyOf(trustedPlayers);
+        Map<UUID, Map<UUID, List<String>>> permissions = new HashMap<>(trustPermissions.size() * 2);
+        for (Map.Entry<UUID, Map<UUID, Integer>> ownerEntry : trustPermissions.entrySet()) {
+            permissions.put(ownerEntry.getKey(), permissionNames(ownerEntry.getValue()));
+        }
+        Map<UUID, Map<String, Boolean>> visitor = new HashMap<>(visitorPermissions.size() * 2);
+        for (Map.Entry<UUID, Integer> ownerEntry : visitorPermissions.entrySet()) {
+            visitor.put(ownerEntry.getKey(), visitorSettings(ownerEntry.getValue()));
         }
+        Map<UUID, List<UUID>> members = copyOf(claimMembers);
 
-        configManager.saveTrustConfig();
+        return new TrustSnapshot(trusted, permissions, visitor, members);
     }
 
-    public void savePermissionsAndMembers() {
-        FileConfiguration config = configManager.getTrustConfig();
-
-        // Save permissions
-        config.set("permissions", null);
-        ConfigurationSection permissionsSection = config.createSection("permissions");
-
-        for (Map.Entry<UUID, Map<UUID, Set<String>>> ownerEntry : trustPermissions.entrySet()) {
-            ConfigurationSection ownerSection = permissionsSection.createSection(ownerEntry.getKey().toString());
-            ConfigurationSection trustSection = ownerSection.createSection("trust");
-
-            for (Map.Entry<UUID, Set<String>> trustEntry : ownerEntry.getValue().entrySet()) {
-                trustSection.set(trustEntry.getKey().toString(), new ArrayList<>(trustEntry.getValue()));
-            }
+    /**
+     * Like {@link #captureSnapshot()}, but only the entries of one owner.
+     * Must be called on the main thread.
+     */
+    public TrustSnapshot captureSnapshot(UUID owner) {
+        Map<UUID, List<UUID>> trusted = new HashMap<>();
+        Set<UUID> trustedSet = trustedPlayers.get(owner);
+        if (trustedSet != null) {
+            trusted.put(owner, new ArrayList<>(trustedSet));
+        }
+        Map<UUID, Map<UUID, List<String>>> permissions = new HashMap<>();
+        Map<UUID, Integer> ownerPermissions = trustPermissions.get(owner);
+        if (ownerPermissions != null) {
+            permissions.put(owner, permissionNames(ownerPermissions));
+        }
+        Map<UUID, Map<String, Boolean>> visitor = new HashMap<>();
+        Integer ownerVisitor = visitorPermissions.get(owner);
+        if (ownerVisitor != null) {
+            visitor.put(owner, visitorSettings(ownerVisitor));
+        }
+        Map<UUID, List<UUID>> members = new HashMap<>();
+        Set<UUID> memberSet = claimMembers.get(owner);
+        if (memberSet != null) {
+            members.put(owner, new ArrayList<>(memberSet));
         }
 
-        for (Map.Entry<UUID, Map<String, Boolean>> ownerEntry : visitorPermissions.entrySet()) {
-            ConfigurationSection ownerSection = permissionsSection.getConfigurationSection(ownerEntry.getKey().toString());
-            if (ownerSection == null) {
-                ownerSection = permissionsSection.createSection(ownerEntry.getKey().toString());
-            }
+        return new TrustSnapshot(trusted, permissions, visitor, members);
+    }
 
-            ConfigurationSection visitorSection = ownerSection.createSection("visitor");
-            for (Map.Entry<String, Boolean> permEntry : ownerEntry.getValue().entrySet()) {
-                visitorSection.set(permEntry.getKey(), permEntry.getValue());
-            }
+    private static Map<UUID, List<String>> permissionNames(Map<UUID, Integer> masks) {
+        Map<UUID, List<String>> names = new HashMap<>(masks.size() * 2);
+        for (Map.Entry<UUID, Integer> entry : masks.entrySet()) {
+            names.put(entry.getKey(), ClaimPermission.toNames(entry.getValue()));
         }
+        return names;
+    }
 
-        config.set("members", null);
-        ConfigurationSection membersSection = config.createSection("members");
-
-        for (Map.Entry<UUID, Set<UUID>> entry : claimMembers.entrySet()) {
-            List<String> memberIds = new ArrayList<>();
-            for (UUID id : entry.getValue()) {
-                memberIds.add(id.toString());
-            }
-            membersSection.set(entry.getKey().toString(), memberIds);
+    /**
+     * Every permission with its state. A permission missing from a stored
+     * owner's settings reads as disabled, so the result means the same.
+     */
+    private static Map<String, Boolean> visitorSettings(int mask) {
+        Map<String, Boolean> settings = new LinkedHashMap<>();
+        for (ClaimPermission permission : ClaimPermission.values()) {
+            settings.put(permission.name(), permission.isIn(mask));
         }
+        return settings;
+    }
 
-        configManager.saveTrustConfig();
+    private static Map<UUID, List<UUID>> copyOf(Map<UUID, Set<UUID>> source) {
+        Map<UUID, List<UUID>> copy = new HashMap<>(source.size() * 2);
+        for (Map.Entry<UUID, Set<UUID>> entry : source.entrySet()) {
+            copy.put(entry.getKey(), new ArrayList<>(entry.getValue()));
+        }
+        return copy;
     }
 
     public boolean addTrustedPlayer(Player owner, String targetName) {
@@ -198,15 +208,19 @@ public class TrustManager {
 
     public boolean addTrustedPlayer(Player owner, UUID trustedId) {
         UUID ownerId = owner.getUniqueId();
-        trustedPlayers.computeIfAbsent(ownerId, k -> new HashSet<>()).add(trustedId);
+        if (trustedPlayers.computeIfAbsent(ownerId, k -> new HashSet<>()).add(trustedId)) {
+            accessCache.invalidate(ownerId, trustedId);
+            plugin.getStorage().trustChanged(ownerId, trustedId, true);
+        }
 
         setDefaultPermissions(ownerId, trustedId);
         return true;
     }
 
     private void setDefaultPermissions(UUID ownerId, UUID trustedId) {
-        for (String permission : new String[]{"BUILD", "INTERACT", "CONTAINER", "TELEPORT"}) {
-            if (configManager.getDefaultTrustPermission(permission)) {
+        int defaults = configManager.getDefaultTrustPermissions();
+        for (ClaimPermission permission : ClaimPermission.values()) {
+            if (permission.isIn(defaults)) {
                 setTrustPermission(ownerId, trustedId, permission, true);
             }
         }
@@ -231,8 +245,10 @@ public class TrustManager {
     public boolean removeTrustedPlayer(Player owner, UUID trustedId) {
         UUID ownerId = owner.getUniqueId();
         Set<UUID> trustedSet = trustedPlayers.get(ownerId);
-        if (trustedSet != null) {
-            return trustedSet.remove(trustedId);
+        if (trustedSet != null && trustedSet.remove(trustedId)) {
+            accessCache.invalidate(ownerId, trustedId);
+            plugin.getStorage().trustChanged(ownerId, trustedId, false);
+            return true;
         }
         return false;
     }
@@ -246,14 +262,17 @@ public class TrustManager {
     }
 
     public boolean addMember(UUID ownerId, OfflinePlayer member) {
-        claimMembers.computeIfAbsent(ownerId, k -> new HashSet<>()).add(member.getUniqueId());
+        if (claimMembers.computeIfAbsent(ownerId, k -> new HashSet<>()).add(member.getUniqueId())) {
+            plugin.getStorage().memberChanged(ownerId, member.getUniqueId(), true);
+        }
         return true;
     }
 
     public boolean removeMember(UUID ownerId, OfflinePlayer member) {
         Set<UUID> members = claimMembers.get(ownerId);
-        if (members != null) {
-            return members.remove(member.getUniqueId());
+        if (members != null && members.remove(member.getUniqueId())) {
+            plugin.getStorage().memberChanged(ownerId, member.getUniqueId(), false);
+            return true;
         }
         return false;
     }
@@ -267,41 +286,110 @@ public class TrustManager {
         return claimMembers.getOrDefault(ownerId, Collections.emptySet());
     }
 
-    public void setTrustPermission(UUID ownerId, UUID trustedId, String permission, boolean enabled) {
-        Map<UUID, Set<String>> ownerPermissions = trustPermissions.computeIfAbsent(ownerId, k -> new HashMap<>());
-        Set<String> permissions = ownerPermissions.computeIfAbsent(trustedId, k -> new HashSet<>());
-
-        if (enabled) {
-            permissions.add(permission);
-        } else {
-            permissions.remove(permission);
+    public void setTrustPermission(UUID ownerId, UUID trustedId, ClaimPermission permission, boolean enabled) {
+        Map<UUID, Integer> ownerPermissions = trustPermissions.get(ownerId);
+        if (ownerPermissions == null) {
+            // The owner's trusted players stop getting the defaults
+            ownerPermissions = new HashMap<>();
+            trustPermissions.put(ownerId, ownerPermissions);
+            accessCache.invalidate(ownerId);
+        }
+        int mask = ownerPermissions.getOrDefault(trustedId, 0);
+        int updated = enabled ? mask | permission.bit() : mask & ~permission.bit();
+        ownerPermissions.put(trustedId, updated);
+        if (updated != mask) {
+            accessCache.invalidate(ownerId, trustedId);
+            plugin.getStorage().trustPermissionsChanged(ownerId, trustedId,
+                    new HashSet<>(ClaimPermission.toNames(updated)));
         }
     }
 
-    public boolean hasTrustPermission(UUID ownerId, UUID trustedId, String permission) {
-        Map<UUID, Set<String>> ownerPermissions = trustPermissions.get(ownerId);
+    /**
+     * The {@link ClaimPermission} mask of a trusted player; the configured
+     * defaults if the owner never set any permissions
+     */
+    public int getTrustPermissions(UUID ownerId, UUID trustedId) {
+        Map<UUID, Integer> ownerPermissions = trustPermissions.get(ownerId);
         if (ownerPermissions == null) {
-            return configManager.getDefaultTrustPermission(permission);
+            return configManager.getDefaultTrustPermissions();
         }
+        return ownerPermissions.getOrDefault(trustedId, 0);
+    }
+
+    public boolean hasTrustPermission(UUID ownerId, UUID trustedId, ClaimPermission permission) {
+        return permission.isIn(getTrustPermissions(ownerId, trustedId));
+    }
+
+    public void setVisitorPermission(UUID ownerId, ClaimPermission permission, boolean enabled) {
+        Integer previous = visitorPermissions.get(ownerId);
+        int mask = previous != null ? previous : 0;
+        int updated = enabled ? mask | permission.bit() : mask & ~permission.bit();
+        visitorPermissions.put(ownerId, updated);
+        if (previous == null || updated != mask) {
+            accessCache.invalidate(ownerId);
+            plugin.getStorage().visitorPermissionChanged(ownerId, permission.name(), enabled);
+        }
+    }
 
-        Set<String> permissions = ownerPermissions.get(trustedId);
-        return permissions != null && permissions.contains(permission);
+    /**
+     * The {@link ClaimPermission} mask of visitors; the configured defaults
+     * if the owner never changed a visitor permission
+     */
+    public int getVisitorPermissions(UUID ownerId) {
+        Integer mask = visitorPermissions.get(ownerId);
+        return mask != null ? mask : configManager.getDefaultVisitorPermissions();
     }
 
-    public void setVisitorPermission(UUID ownerId, String permission, boolean enabled) {
-        Map<String, Boolean> permissions = visitorPermissions.computeIfAbsent(ownerId, k -> new HashMap<>());
-        permissions.put(permission, enabled);
+    public boolean hasVisitorPermission(UUID ownerId, ClaimPermission permission) {
+        return permission.isIn(getVisitorPermissions(ownerId));
     }
 
-    public boolean hasVisitorPermission(UUID ownerId, String permission) {
-        Map<String, Boolean> permissions = visitorPermissions.get(ownerId);
-        if (permissions == null) {
-            return configManager.getDefaultVisitorPermission(permission);
+    /**
+     * What {@code player} may do in {@code ownerId}'s claims, as a
+     * {@link ClaimPermission} mask: everything for the owner, the trust
+     * permissions for a trusted player and the visitor permissions for
+     * anyone else. Admin bypass is not included. Cached until the trust or
+     * visitor settings involved change.
+     */
+    public int getEffectivePermissions(UUID ownerId, UUID player) {
+        int permissions = accessCache.get(ownerId, player);
+        if (permissions >= 0)
+            return permissions;
+
+        if (player.equals(ownerId)) {
+            permissions = ClaimPermission.ALL;
+        } else if (getTrustedPlayers(ownerId).contains(player)) {
+            permissions = getTrustPermissions(ownerId, player);
+        } else {
+            permissions = getVisitorPermissions(ownerId);
         }
-        return permissions.getOrDefault(permission, false);
+        accessCache.put(ownerId, player, permissions);
+        return permissions;
+    }
+
+    public boolean canAccess(UUID ownerId, UUID player, ClaimPermission permission) {
+        return permission.isIn(getEffectivePermissions(ownerId, player));
+    }
+
+    /**
+     * Drop every cached decision, e.g. after the default permissions in
+     * config.yml were reloaded
+     */
+    public void invalidateAccess() {
+        accessCache.clear();
     }
 
     public boolean canManageTrust(UUID ownerId, Player player) {
         return player.getUniqueId().equals(ownerId) || isMember(ownerId, player);
     }
-}
\ No newline at end of file
+
+    /**
+     * Trust data read by {@link #loadData()}, not yet installed
+     */
+    public static final class TrustData {
+        private final Map<UUID, Set<UUID>> trustedPlayers = new HashMap<>();
+        private final Map<UUID, Map<UUID, Integer>> trustPermissions = new HashMap<>();
+        private final Map<UUID, Integer> visitorPermissions = new HashMap<>();
+        private final Map<UUID, Set<UUID>> claimMembers = new HashMap<>();
+    }
+}
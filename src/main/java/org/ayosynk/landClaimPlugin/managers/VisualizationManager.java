@@ -22,7 +22,7 @@ public class VisualizationManager {
     private final Map<UUID, Map<String, Set<Edge>>> mergedEdgesCache = new ConcurrentHashMap<>();
     private final AtomicInteger cacheSize = new AtomicInteger(0);
 
-    // Visualization modes: PlayerID -> Mode
+    // Visualization modes of online players: PlayerID -> Mode (persisted by PlayerDataManager)
     private final Map<UUID, VisualizationMode> visualizationModes = new ConcurrentHashMap<>();
 
     public enum VisualizationMode {
@@ -33,7 +33,6 @@ public class VisualizationManager {
         this.plugin = plugin;
         this.claimManager = claimManager;
         this.configManager = configManager;
-        loadPlayerData();
         startVisualizationTask();
     }
 
@@ -205,6 +204,8 @@ public class VisualizationManager {
         } else {
             visualizationModes.put(playerId, mode);
         }
+        plugin.getPlayerDataManager().update(playerId,
+                state -> state.setVisualizationMode(mode == null ? null : mode.name()));
     }
 
     public VisualizationMode getVisualizationMode(UUID playerId) {
@@ -213,72 +214,21 @@ public class VisualizationManager {
 
     // Add player join handler
     public void handlePlayerJoin(Player player) {
-        if (!visualizationModes.containsKey(player.getUniqueId())) {
-            String defaultMode = configManager.getDefaultVisualizationMode();
-            if ("ALWAYS".equalsIgnoreCase(defaultMode)) {
-                visualizationModes.put(player.getUniqueId(), VisualizationMode.ALWAYS);
-            }
+        String savedMode = plugin.getPlayerDataManager().get(player.getUniqueId()).getVisualizationMode();
+        String mode = savedMode != null ? savedMode : configManager.getDefaultVisualizationMode();
+        if ("ALWAYS".equalsIgnoreCase(mode)) {
+            visualizationModes.put(player.getUniqueId(), VisualizationMode.ALWAYS);
         }
     }
 
     /**
-     * Clean up player data when they quit to prevent memory leaks
+     * Clean up player data when they quit to prevent memory leaks. The mode
+     * itself is already stored by {@link PlayerDataManager}.
      */
     public void handlePlayerQuit(UUID playerId) {
-        // Save state before removing
-        savePlayerState(playerId);
         visualizationModes.remove(playerId);
         if (mergedEdgesCache.remove(playerId) != null) {
             cacheSize.decrementAndGet();
         }
     }
-
-    /**
-     * Load persisted visualization modes from playerdata.yml
-     */
-    private void loadPlayerData() {
-        var playerDataConfig = configManager.getPlayerDataConfig();
-        var vizSection = playerDataConfig.getConfigurationSection("visualization-modes");
-
-        if (vizSection != null) {
-            for (String uuidStr : vizSection.getKeys(false)) {
-                try {
-                    UUID playerId = UUID.fromString(uuidStr);
-                    String modeStr = vizSection.getString(uuidStr);
-                    if ("ALWAYS".equalsIgnoreCase(modeStr)) {
-                        visualizationModes.put(playerId, VisualizationMode.ALWAYS);
-                    }
-                } catch (IllegalArgumentException ignored) {}
-            }
-        }
-    }
-
-    /**
-     * Save a single player's visualization state
-     */
-    private void savePlayerState(UUID playerId) {
-        var playerDataConfig = configManager.getPlayerDataConfig();
-        String uuidStr = playerId.toString();
-
-        if (visualizationModes.containsKey(playerId)) {
-            playerDataConfig.set("visualization-modes." + uuidStr, visualizationModes.get(playerId).name());
-        } else {
-            playerDataConfig.set("visualization-modes." + uuidStr, null);
-        }
-
-        configManager.savePlayerData();
-    }
-
-    /**
-     * Save all player visualization data (called on plugin disable)
-     */
-    public void saveAllPlayerData() {
-        var playerDataConfig = configManager.getPlayerDataConfig();
-
-        for (Map.Entry<UUID, VisualizationMode> entry : visualizationModes.entrySet()) {
-            playerDataConfig.set("visualization-modes." + entry.getKey().toString(), entry.getValue().name());
-        }
-
-        configManager.savePlayerData();
-    }
-}
\ No newline at end of file
+}
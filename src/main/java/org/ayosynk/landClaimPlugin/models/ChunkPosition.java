@@ -5,80 +5,126 @@ import org.bukkit.Location;
 import org.bukkit.block.Block;
 
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
 import java.util.Objects;
 import java.util.concurrent.ConcurrentHashMap;
 
-public class ChunkPosition {
-    // Cache for frequently accessed chunk positions (flyweight pattern)
-    private static final int MAX_CACHE_SIZE = 1000;
-    private static final Map<String, ChunkPosition> cache = new ConcurrentHashMap<>();
-    
-    private final String world;
+/**
+ * Immutable chunk coordinate. The world is stored as an interned int id, the
+ * hash is computed once, and the "world,x,z" string is only built on demand.
+ */
+public final class ChunkPosition {
+    // Interned world names; ids are never reused
+    private static final Map<String, Integer> worldIds = new ConcurrentHashMap<>();
+    private static volatile String[] worldNames = new String[8];
+    private static int worldCount;
+
+    // Direct-mapped pool for of(); a colliding entry is simply overwritten
+    private static final int POOL_SIZE = 4096;
+    private static final ChunkPosition[] pool = new ChunkPosition[POOL_SIZE];
+
+    private final int worldId;
     private final int x;
     private final int z;
-    private final String cacheKey; // Pre-computed for faster lookups
+    private final int hash;
+    private String string; // Built lazily by toString()
 
     public ChunkPosition(Chunk chunk) {
-        this.world = chunk.getWorld().getName();
-        this.x = chunk.getX();
-        this.z = chunk.getZ();
-        this.cacheKey = world + "," + x + "," + z;
+        this(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
     }
 
     public ChunkPosition(String world, int x, int z) {
-        this.world = world;
+        this(worldId(world), x, z);
+    }
+
+    public ChunkPosition(int worldId, int x, int z) {
+        this.worldId = worldId;
         this.x = x;
         this.z = z;
-        this.cacheKey = world + "," + x + "," + z;
+        this.hash = hash(worldId, x, z);
     }
 
+    /**
+     * Position of the chunk containing a block; does not touch the chunk itself
+     */
     public ChunkPosition(Block block) {
-        this(block.getChunk());
+        this(block.getWorld().getName(), block.getX() >> 4, block.getZ() >> 4);
     }
 
+    /**
+     * Position of the chunk containing a location; does not load the chunk
+     */
     public ChunkPosition(Location location) {
-        this(location.getChunk());
+        this(Objects.requireNonNull(location.getWorld(), "location world").getName(),
+                location.getBlockX() >> 4, location.getBlockZ() >> 4);
     }
-    
+
     /**
-     * Get a cached ChunkPosition instance (flyweight pattern)
-     * Reduces object creation in hot paths
+     * Get a pooled ChunkPosition instance. Repeated lookups of nearby chunks
+     * (neighbour checks, movement) reuse the same objects without building a
+     * key.
      */
     public static ChunkPosition of(String world, int x, int z) {
-        String key = world + "," + x + "," + z;
-        ChunkPosition cached = cache.get(key);
-        if (cached != null) {
+        return of(worldId(world), x, z);
+    }
+
+    public static ChunkPosition of(int worldId, int x, int z) {
+        int slot = hash(worldId, x, z) & (POOL_SIZE - 1);
+        ChunkPosition cached = pool[slot];
+        if (cached != null && cached.worldId == worldId && cached.x == x && cached.z == z) {
             return cached;
         }
-        
-        // Evict if cache is too large
-        if (cache.size() >= MAX_CACHE_SIZE) {
-            // Simple eviction: clear half the cache
-            int toRemove = MAX_CACHE_SIZE / 2;
-            var iterator = cache.keySet().iterator();
-            while (iterator.hasNext() && toRemove > 0) {
-                iterator.next();
-                iterator.remove();
-                toRemove--;
-            }
-        }
-        
-        ChunkPosition pos = new ChunkPosition(world, x, z);
-        cache.put(key, pos);
+
+        // Instances are immutable with final fields, so a racy publish is safe
+        ChunkPosition pos = new ChunkPosition(worldId, x, z);
+        pool[slot] = pos;
         return pos;
     }
-    
+
     /**
-     * Get a cached ChunkPosition from a Chunk
+     * Get a pooled ChunkPosition from a Chunk
      */
     public static ChunkPosition of(Chunk chunk) {
         return of(chunk.getWorld().getName(), chunk.getX(), chunk.getZ());
     }
 
+    /**
+     * Interned id for a world name
+     */
+    public static int worldId(String world) {
+        Integer id = worldIds.get(Objects.requireNonNull(world, "world"));
+        return id != null ? id : registerWorld(world);
+    }
+
+    public static String worldName(int worldId) {
+        return worldNames[worldId];
+    }
+
+    private static synchronized int registerWorld(String world) {
+        Integer existing = worldIds.get(world);
+        if (existing != null)
+            return existing;
+
+        // Publish the name before the id so any reader holding the id can resolve it
+        String[] names = worldNames;
+        if (worldCount == names.length) {
+            names = Arrays.copyOf(names, worldCount << 1);
+        }
+        int id = worldCount++;
+        names[id] = world;
+        worldNames = names;
+        worldIds.put(world, id);
+        return id;
+    }
+
     public String getWorld() {
-        return world;
+        return worldNames[worldId];
+    }
+
+    public int getWorldId() {
+        return worldId;
     }
 
     public int getX() {
@@ -89,41 +135,72 @@ public class ChunkPosition {
         return z;
     }
 
+    /**
+     * Pack this position's coordinates into a single long (see {@link #pack(int, int)})
+     */
+    public long getKey() {
+        return pack(x, z);
+    }
+
+    /**
+     * Pack chunk coordinates into a single long: x in the high 32 bits, z in the low 32 bits
+     */
+    public static long pack(int x, int z) {
+        return ((long) x << 32) | (z & 0xFFFFFFFFL);
+    }
+
+    public static int unpackX(long key) {
+        return (int) (key >> 32);
+    }
+
+    public static int unpackZ(long key) {
+        return (int) key;
+    }
+
     public List<ChunkPosition> getNeighbors(boolean includeDiagonals) {
-        List<ChunkPosition> neighbors = new ArrayList<>();
+        List<ChunkPosition> neighbors = new ArrayList<>(includeDiagonals ? 8 : 4);
 
-        // Orthogonal neighbors - use cached instances
-        neighbors.add(ChunkPosition.of(world, x + 1, z));
-        neighbors.add(ChunkPosition.of(world, x - 1, z));
-        neighbors.add(ChunkPosition.of(world, x, z + 1));
-        neighbors.add(ChunkPosition.of(world, x, z - 1));
+        // Orthogonal neighbors - use pooled instances
+        neighbors.add(ChunkPosition.of(worldId, x + 1, z));
+        neighbors.add(ChunkPosition.of(worldId, x - 1, z));
+        neighbors.add(ChunkPosition.of(worldId, x, z + 1));
+        neighbors.add(ChunkPosition.of(worldId, x, z - 1));
 
         // Diagonal neighbors
         if (includeDiagonals) {
-            neighbors.add(ChunkPosition.of(world, x + 1, z + 1));
-            neighbors.add(ChunkPosition.of(world, x + 1, z - 1));
-            neighbors.add(ChunkPosition.of(world, x - 1, z + 1));
-            neighbors.add(ChunkPosition.of(world, x - 1, z - 1));
+            neighbors.add(ChunkPosition.of(worldId, x + 1, z + 1));
+            neighbors.add(ChunkPosition.of(worldId, x + 1, z - 1));
+            neighbors.add(ChunkPosition.of(worldId, x - 1, z + 1));
+            neighbors.add(ChunkPosition.of(worldId, x - 1, z - 1));
         }
 
         return neighbors;
     }
 
+    private static int hash(int worldId, int x, int z) {
+        long h = (pack(x, z) + worldId) * 0x9E3779B97F4A7C15L;
+        return (int) (h ^ (h >>> 32));
+    }
+
     @Override
     public boolean equals(Object o) {
         if (this == o) return true;
-        if (o == null || getClass() != o.getClass()) return false;
-        ChunkPosition that = (ChunkPosition) o;
-        return x == that.x && z == that.z && Objects.equals(world, that.world);
+        if (!(o instanceof ChunkPosition that)) return false;
+        return hash == that.hash && x == that.x && z == that.z && worldId == that.worldId;
     }
 
     @Override
     public int hashCode() {
-        return Objects.hash(world, x, z);
+        return hash;
     }
 
     @Override
     public String toString() {
-        return cacheKey;
+        String s = string;
+        if (s == null) {
+            s = getWorld() + "," + x + "," + z;
+            string = s;
+        }
+        return s;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,70 @@
+package org.ayosynk.landClaimPlugin.models;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+/**
+ * What a trusted player or a visitor may do in a claim. A set of permissions
+ * is kept as an int with one bit per constant; the names are the ones used
+ * in trust.yml and config.yml.
+ */
+public enum ClaimPermission {
+    BUILD,
+    INTERACT,
+    CONTAINER,
+    TELEPORT;
+
+    private static final ClaimPermission[] VALUES = values();
+
+    /** Mask with every permission set */
+    public static final int ALL = (1 << VALUES.length) - 1;
+
+    private final int bit = 1 << ordinal();
+
+    public int bit() {
+        return bit;
+    }
+
+    public boolean isIn(int mask) {
+        return (mask & bit) != 0;
+    }
+
+    /**
+     * The constant with this name, ignoring case, or null if there is none
+     */
+    public static ClaimPermission fromName(String name) {
+        for (ClaimPermission permission : VALUES) {
+            if (permission.name().equalsIgnoreCase(name))
+                return permission;
+        }
+        return null;
+    }
+
+    /**
+     * Mask of the named permissions; unknown names are ignored
+     */
+    public static int toMask(Collection<String> names) {
+        int mask = 0;
+        for (String name : names) {
+            ClaimPermission permission = fromName(name);
+            if (permission != null) {
+                mask |= permission.bit;
+            }
+        }
+        return mask;
+    }
+
+    /**
+     * Names of the permissions in a mask, in declaration order
+     */
+    public static List<String> toNames(int mask) {
+        List<String> names = new ArrayList<>(Integer.bitCount(mask));
+        for (ClaimPermission permission : VALUES) {
+            if (permission.isIn(mask)) {
+                names.add(permission.name());
+            }
+        }
+        return names;
+    }
+}
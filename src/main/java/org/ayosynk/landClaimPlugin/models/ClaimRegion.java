@@ -0,0 +1,40 @@
+package org.ayosynk.landClaimPlugin.models;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Snapshot of one connected group of an owner's claims in a single world.
+ * The id stays the same for as long as the region exists, so it can be used
+ * to key map markers and cached outlines.
+ */
+public class ClaimRegion {
+    private final int id;
+    private final UUID owner;
+    private final String world;
+    private final Set<ChunkPosition> chunks;
+
+    public ClaimRegion(int id, UUID owner, String world, Set<ChunkPosition> chunks) {
+        this.id = id;
+        this.owner = owner;
+        this.world = world;
+        this.chunks = Collections.unmodifiableSet(chunks);
+    }
+
+    public int getId() {
+        return id;
+    }
+
+    public UUID getOwner() {
+        return owner;
+    }
+
+    public String getWorld() {
+        return world;
+    }
+
+    public Set<ChunkPosition> getChunks() {
+        return chunks;
+    }
+}
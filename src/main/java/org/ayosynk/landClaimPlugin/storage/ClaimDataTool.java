@@ -0,0 +1,650 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import org.ayosynk.landClaimPlugin.index.ClaimIndex;
+import org.ayosynk.landClaimPlugin.index.ClaimSnapshot;
+import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.Reader;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+import java.util.logging.Handler;
+import java.util.logging.Level;
+import java.util.logging.LogRecord;
+import java.util.logging.Logger;
+
+/**
+ * Inspects and converts a LandClaim data folder without a server.
+ *
+ * <pre>
+ * java -cp LandClaimPlugin.jar:snakeyaml.jar org.ayosynk.landClaimPlugin.storage.ClaimDataTool &lt;command&gt;
+ *
+ *   stats    &lt;folder&gt; [--owners]            claims per world and owner, trust and home counts
+ *   validate &lt;folder&gt;                       chunks listed under two owners, unreadable entries
+ *   compact  &lt;folder&gt;                       fold claims.journal into the claim snapshot
+ *   convert  &lt;folder&gt; &lt;format&gt; &lt;output&gt;     write the data to an empty folder in another format
+ * </pre>
+ *
+ * Formats are yaml, binary (claims.dat next to trust.yml and homes.yml),
+ * sharded and sqlite. The source format comes from the folder's config.yml
+ * unless {@code --from <format>} is given. SnakeYAML ships with the server
+ * and has to be put on the class path, as does the SQLite driver for sqlite.
+ * Stop the server first: the files are read and written directly.
+ */
+public final class ClaimDataTool {
+    private static final Set<String> FORMATS = Set.of("yaml", "binary", "sharded", "sqlite");
+    private static final int LISTED_DUPLICATES = 50;
+    private static final int LISTED_OWNERS = 10;
+
+    private final Logger logger;
+    private final AtomicInteger warnings = new AtomicInteger();
+    private final ExecutorService pool;
+
+    private ClaimDataTool() {
+        logger = Logger.getLogger("ClaimDataTool");
+        logger.setUseParentHandlers(false);
+        logger.addHandler(new Handler() {
+            @Override
+            public void publish(LogRecord record) {
+                if (record.getLevel().intValue() >= Level.WARNING.intValue()) {
+                    warnings.incrementAndGet();
+                }
+                System.err.println(record.getLevel() + ": " + record.getMessage());
+            }
+
+            @Override
+            public void flush() {
+            }
+
+            @Override
+            public void close() {
+            }
+        });
+        pool = Executors.newFixedThreadPool(Runtime.getRuntime().availableProcessors(), runnable -> {
+            Thread thread = new Thread(runnable, "ClaimDataTool");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    public static void main(String[] args) {
+        List<String> arguments = new ArrayList<>(Arrays.asList(args));
+        String from = option(arguments, "--from");
+        boolean listOwners = arguments.remove("--owners");
+        if (arguments.size() < 2 || (from != null && !FORMATS.contains(from))) {
+            usage();
+            System.exit(2);
+        }
+
+        File folder = new File(arguments.get(1));
+        if (!folder.isDirectory()) {
+            System.err.println(folder + " is not a directory");
+            System.exit(2);
+        }
+
+        ClaimDataTool tool = new ClaimDataTool();
+        int status;
+        try {
+            String format = from != null ? from : tool.detectFormat(folder);
+            switch (arguments.get(0)) {
+                case "stats" -> status = tool.stats(folder, format, listOwners);
+                case "validate" -> status = tool.validate(folder, format);
+                case "compact" -> status = tool.compact(folder, format);
+                case "convert" -> {
+                    if (arguments.size() < 4 || !FORMATS.contains(arguments.get(2))) {
+                        usage();
+                        status = 2;
+                    } else {
+                        status = tool.convert(folder, format, arguments.get(2), new File(arguments.get(3)));
+                    }
+                }
+                default -> {
+                    usage();
+                    status = 2;
+                }
+            }
+        } catch (IOException | SQLException e) {
+            System.err.println("Failed: " + e.getMessage());
+            status = 1;
+        } finally {
+            tool.pool.shutdown();
+        }
+        System.exit(status);
+    }
+
+    private static String option(List<String> arguments, String name) {
+        int index = arguments.indexOf(name);
+        if (index < 0 || index + 1 >= arguments.size())
+            return null;
+        String value = arguments.get(index + 1).toLowerCase();
+        arguments.subList(index, index + 2).clear();
+        return value;
+    }
+
+    private static void usage() {
+        System.err.println("Usage: ClaimDataTool <command> <folder> [--from yaml|binary|sharded|sqlite]");
+        System.err.println("  stats <folder> [--owners]           claims per world and owner, trust and home counts");
+        System.err.println("  validate <folder>                   chunks listed under two owners, unreadable entries");
+        System.err.println("  compact <folder>                    fold claims.journal into the claim snapshot");
+        System.err.println("  convert <folder> <format> <output>  write the data to an empty folder in another format");
+    }
+
+    /**
+     * storage-type and claim-snapshot-format from the folder's config.yml
+     */
+    private String detectFormat(File folder) throws IOException {
+        File configFile = new File(folder, "config.yml");
+        if (!configFile.exists())
+            return "yaml";
+
+        Map<String, Object> config;
+        try (Reader in = Files.newBufferedReader(configFile.toPath())) {
+            config = new Yaml(new LoaderOptions()).load(in);
+        }
+        if (config == null)
+            return "yaml";
+        String type = String.valueOf(config.getOrDefault("storage-type", "yaml")).toLowerCase();
+        if (type.equals("sqlite") || type.equals("sharded"))
+            return type;
+        return "binary".equalsIgnoreCase(String.valueOf(config.get("claim-snapshot-format"))) ? "binary" : "yaml";
+    }
+
+    // Commands
+
+    private int stats(File folder, String format, boolean listOwners) throws IOException, SQLException {
+        Data data = load(folder, format);
+        ClaimSnapshot snapshot = data.claims.snapshot();
+
+        Map<String, Integer> perWorld = new TreeMap<>();
+        Map<UUID, Integer> perOwner = new HashMap<>();
+        for (UUID owner : snapshot.getOwners()) {
+            for (Map.Entry<String, long[]> world : snapshot.getClaims(owner).entrySet()) {
+                perWorld.merge(world.getKey(), world.getValue().length, Integer::sum);
+                perOwner.merge(owner, world.getValue().length, Integer::sum);
+            }
+        }
+
+        System.out.printf("Claims: %d in %d worlds, %d owners%n", snapshot.size(), perWorld.size(), perOwner.size());
+        for (Map.Entry<String, Integer> world : perWorld.entrySet()) {
+            System.out.printf("  %-24s %10d%n", world.getKey(), world.getValue());
+        }
+
+        List<Map.Entry<UUID, Integer>> owners = new ArrayList<>(perOwner.entrySet());
+        owners.sort(Map.Entry.<UUID, Integer>comparingByValue().reversed());
+        System.out.println(listOwners ? "Owners:" : "Largest owners (--owners lists all):");
+        for (Map.Entry<UUID, Integer> owner : listOwners ? owners
+                : owners.subList(0, Math.min(LISTED_OWNERS, owners.size()))) {
+            StringBuilder worlds = new StringBuilder();
+            for (Map.Entry<String, long[]> world : snapshot.getClaims(owner.getKey()).entrySet()) {
+                worlds.append(worlds.length() == 0 ? "" : ", ").append(world.getKey()).append(' ')
+                        .append(world.getValue().length);
+            }
+            System.out.printf("  %s %10d  (%s)%n", owner.getKey(), owner.getValue(), worlds);
+        }
+
+        System.out.printf("Trust: %d trusted players, %d permission sets, %d visitor settings, %d members%n",
+                countValues(data.trusted), countValues(data.permissions), countValues(data.visitorPermissions),
+                countValues(data.members));
+        System.out.printf("Homes: %d homes of %d players%n", countValues(data.homes), data.homes.size());
+        System.out.printf("Duplicate chunks: %d, warnings: %d%n", data.duplicates, warnings.get());
+        return 0;
+    }
+
+    private int validate(File folder, String format) throws IOException, SQLException {
+        Data data = load(folder, format);
+        for (String duplicate : data.duplicateList) {
+            System.out.println("Duplicate: " + duplicate);
+        }
+        if (data.duplicates > data.duplicateList.size()) {
+            System.out.println("... and " + (data.duplicates - data.duplicateList.size()) + " more");
+        }
+        System.out.printf("%d claims, %d chunks listed under more than one owner, %d warnings%n",
+                data.claims.size(), data.duplicates, warnings.get());
+        // The server keeps the owner read last, as listed above
+        return data.duplicates > 0 || warnings.get() > 0 ? 1 : 0;
+    }
+
+    private int compact(File folder, String format) throws IOException, SQLException {
+        switch (format) {
+            case "yaml", "binary" -> {
+                Data data = new Data();
+                long start = System.nanoTime();
+                loadYamlClaims(folder, data);
+                ClaimSnapshot snapshot = data.claims.snapshot();
+                long bytes = format.equals("binary")
+                        ? ClaimSnapshotFile.write(new File(folder, "claims.dat"), snapshot)
+                        : YamlStorage.writeClaimsFile(new File(folder, "claims.yml"), snapshot);
+                Files.deleteIfExists(new File(folder, "claims.journal").toPath());
+                System.out.printf("Wrote %d claims (%d bytes) and cleared claims.journal in %.0f ms%n",
+                        snapshot.size(), bytes, (System.nanoTime() - start) / 1e6);
+            }
+            case "sqlite" -> {
+                try (Connection connection = openDatabase(new File(folder, "landclaim.db"))) {
+                    connection.createStatement().execute("VACUUM");
+                }
+                System.out.println("Vacuumed landclaim.db");
+            }
+            default -> System.out.println("Sharded storage has no journal; nothing to compact");
+        }
+        return 0;
+    }
+
+    private int convert(File folder, String format, String target, File output) throws IOException, SQLException {
+        String[] existing = output.list();
+        if (existing != null && existing.length > 0) {
+            System.err.println(output + " is not empty");
+            return 2;
+        }
+        output.mkdirs();
+
+        Data data = load(folder, format);
+        long start = System.nanoTime();
+        ClaimSnapshot snapshot = data.claims.snapshot();
+        TrustSnapshot trust = data.trustSnapshot();
+        switch (target) {
+            case "yaml" -> parallel(
+                    () -> YamlStorage.writeClaimsFile(new File(output, "claims.yml"), snapshot),
+                    () -> YamlStorage.writeTrustFile(new File(output, "trust.yml"), trust),
+                    () -> YamlStorage.writeHomesFile(new File(output, "homes.yml"), data.homes));
+            case "binary" -> parallel(
+                    () -> {
+                        // The plugin only prefers claims.dat over a claims.yml that is not newer
+                        YamlStorage.writeClaimsFile(new File(output, "claims.yml"), new ClaimIndex().snapshot());
+                        ClaimSnapshotFile.write(new File(output, "claims.dat"), snapshot);
+                    },
+                    () -> YamlStorage.writeTrustFile(new File(output, "trust.yml"), trust),
+                    () -> YamlStorage.writeHomesFile(new File(output, "homes.yml"), data.homes));
+            case "sharded" -> writeShards(new File(output, "data"), data, snapshot);
+            default -> writeDatabase(new File(output, "landclaim.db"), data, snapshot);
+        }
+        System.out.printf("Wrote %d claims as %s to %s in %.0f ms%n", snapshot.size(), target, output,
+                (System.nanoTime() - start) / 1e6);
+        System.out.println("Set storage-type" + (target.equals("binary") ? " to yaml and claim-snapshot-format to binary"
+                : " to " + target) + " in config.yml before using the converted data.");
+        return 0;
+    }
+
+    // Loading
+
+    private Data load(File folder, String format) throws IOException, SQLException {
+        Data data = new Data();
+        long start = System.nanoTime();
+        switch (format) {
+            case "yaml", "binary" -> parallel(
+                    () -> loadYamlClaims(folder, data),
+                    () -> YamlEventReader.readTrust(new File(folder, "trust.yml"), data.trustSink(), logger),
+                    () -> YamlEventReader.readHomes(new File(folder, "homes.yml"), data.homeSink(), logger));
+            case "sharded" -> loadShards(new File(folder, "data"), data);
+            default -> {
+                try (Connection connection = openDatabase(new File(folder, "landclaim.db"))) {
+                    Consumer<String> skipped = error -> logger.warning("Skipping invalid row: " + error);
+                    SqliteStorage.readClaims(connection, data.claimSink(), skipped);
+                    SqliteStorage.readTrust(connection, data.trustSink(), skipped);
+                    SqliteStorage.readHomes(connection, data.homeSink(), skipped);
+                }
+            }
+        }
+        System.out.printf("Loaded %s data from %s in %.0f ms%n", format, folder, (System.nanoTime() - start) / 1e6);
+        return data;
+    }
+
+    /**
+     * The newer of claims.dat and claims.yml, then claims.journal, as the plugin reads them
+     */
+    private void loadYamlClaims(File folder, Data data) throws IOException {
+        File yamlFile = new File(folder, "claims.yml");
+        File binaryFile = new File(folder, "claims.dat");
+        StorageBackend.ClaimSink sink = data.claimSink();
+        if (binaryFile.exists() && binaryFile.lastModified() >= yamlFile.lastModified()) {
+            ClaimSnapshotFile.read(binaryFile, sink);
+        } else {
+            YamlEventReader.readClaims(yamlFile, sink, logger);
+        }
+        try {
+            ClaimJournal.read(new File(folder, "claims.journal"), sink);
+        } catch (IOException e) {
+            logger.warning("Could not read claims.journal: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read every shard on the pool. Claims are collected per shard and added
+     * to the index in file order afterwards; trust and homes go straight to
+     * their synchronized sinks.
+     */
+    private void loadShards(File directory, Data data) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".dat"));
+        if (files == null)
+            return;
+        Arrays.sort(files);
+
+        StorageBackend.TrustSink trust = data.trustSink();
+        StorageBackend.HomeSink homes = data.homeSink();
+        List<CompletableFuture<Map<String, long[]>>> reads = new ArrayList<>(files.length);
+        List<UUID> owners = new ArrayList<>(files.length);
+        for (File file : files) {
+            String name = file.getName();
+            UUID owner;
+            try {
+                owner = UUID.fromString(name.substring(0, name.length() - 4));
+            } catch (IllegalArgumentException e) {
+                logger.warning("Skipping " + name + ": not a player UUID");
+                continue;
+            }
+            owners.add(owner);
+            reads.add(CompletableFuture.supplyAsync(() -> {
+                Map<String, long[]> claims = new HashMap<>();
+                try {
+                    OwnerShardFile.read(file, owner, new CollectingClaimSink(claims), trust, homes);
+                } catch (IOException e) {
+                    logger.warning("Could not read " + name + ": " + e.getMessage());
+                }
+                return claims;
+            }, pool));
+        }
+
+        StorageBackend.ClaimSink sink = data.claimSink();
+        for (int i = 0; i < reads.size(); i++) {
+            for (Map.Entry<String, long[]> world : reads.get(i).join().entrySet()) {
+                sink.claims(world.getKey(), owners.get(i), world.getValue());
+            }
+        }
+    }
+
+    private static Connection openDatabase(File file) throws IOException, SQLException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+        } catch (ClassNotFoundException e) {
+            throw new IOException("the SQLite JDBC driver is not on the class path");
+        }
+        return DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+    }
+
+    // Writing
+
+    private void writeShards(File directory, Data data, ClaimSnapshot snapshot) throws IOException {
+        Set<UUID> owners = new HashSet<>(snapshot.getOwners());
+        owners.addAll(data.trusted.keySet());
+        owners.addAll(data.permissions.keySet());
+        owners.addAll(data.visitorPermissions.keySet());
+        owners.addAll(data.members.keySet());
+        owners.addAll(data.homes.keySet());
+
+        directory.mkdirs();
+        List<IoTask> writes = new ArrayList<>(owners.size());
+        for (UUID owner : owners) {
+            writes.add(() -> {
+                OwnerShard shard = new OwnerShard(owner, snapshot.getClaims(owner), data.trustSnapshot(owner),
+                        data.homes.getOrDefault(owner, Collections.emptyMap()));
+                if (!shard.isEmpty()) {
+                    OwnerShardFile.write(new File(directory, owner + ".dat"), shard);
+                }
+            });
+        }
+        parallel(writes.toArray(new IoTask[0]));
+    }
+
+    /**
+     * SQLite takes one writer at a time, so this is a single transaction on
+     * one thread
+     */
+    private static void writeDatabase(File file, Data data, ClaimSnapshot snapshot) throws IOException, SQLException {
+        try (Connection connection = openDatabase(file)) {
+            SqliteStorage.createSchema(connection);
+            connection.setAutoCommit(false);
+
+            try (PreparedStatement claims = prepare(connection, SqliteStorage.UPSERT_CLAIM)) {
+                for (UUID owner : snapshot.getOwners()) {
+                    for (Map.Entry<String, long[]> world : snapshot.getClaims(owner).entrySet()) {
+                        for (long key : world.getValue()) {
+                            addRow(claims, world.getKey(), ChunkPosition.unpackX(key), ChunkPosition.unpackZ(key),
+                                    owner.toString());
+                        }
+                    }
+                }
+                claims.executeBatch();
+            }
+            try (PreparedStatement trusted = prepare(connection, SqliteStorage.INSERT_TRUSTED)) {
+                data.trusted.forEach((owner, players) -> players.forEach(player ->
+                        addRow(trusted, owner.toString(), player.toString())));
+                trusted.executeBatch();
+            }
+            try (PreparedStatement permissions = prepare(connection, SqliteStorage.UPSERT_TRUST_PERMISSIONS)) {
+                data.permissions.forEach((owner, players) -> players.forEach((player, set) ->
+                        addRow(permissions, owner.toString(), player.toString(), String.join(",", set))));
+                permissions.executeBatch();
+            }
+            try (PreparedStatement visitor = prepare(connection, SqliteStorage.UPSERT_VISITOR_PERMISSION)) {
+                data.visitorPermissions.forEach((owner, settings) -> settings.forEach((permission, enabled) ->
+                        addRow(visitor, owner.toString(), permission, enabled ? 1 : 0)));
+                visitor.executeBatch();
+            }
+            try (PreparedStatement members = prepare(connection, SqliteStorage.INSERT_MEMBER)) {
+                data.members.forEach((owner, players) -> players.forEach(member ->
+                        addRow(members, owner.toString(), member.toString())));
+                members.executeBatch();
+            }
+            try (PreparedStatement homes = prepare(connection, SqliteStorage.UPSERT_HOME)) {
+                data.homes.forEach((player, byName) -> byName.forEach((name, home) ->
+                        addRow(homes, player.toString(), name, home.getWorld(), home.getX(), home.getY(),
+                                home.getZ(), home.getYaw(), home.getPitch())));
+                homes.executeBatch();
+            }
+            connection.commit();
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+
+    private static PreparedStatement prepare(Connection connection, int statement) throws SQLException {
+        return connection.prepareStatement(SqliteStorage.STATEMENTS[statement]);
+    }
+
+    private static void addRow(PreparedStatement statement, Object... parameters) {
+        try {
+            for (int i = 0; i < parameters.length; i++) {
+                statement.setObject(i + 1, parameters[i]);
+            }
+            statement.addBatch();
+        } catch (SQLException e) {
+            throw new UncheckedIOException(new IOException(e.getMessage(), e));
+        }
+    }
+
+    /**
+     * Run the tasks on the pool and wait for all of them
+     *
+     * @throws IOException the first failure
+     */
+    private void parallel(IoTask... tasks) throws IOException {
+        List<CompletableFuture<Void>> futures = new ArrayList<>(tasks.length);
+        for (IoTask task : tasks) {
+            futures.add(CompletableFuture.runAsync(() -> {
+                try {
+                    task.run();
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }, pool));
+        }
+        try {
+            CompletableFuture.allOf(futures.toArray(CompletableFuture<?>[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof UncheckedIOException io)
+                throw io.getCause();
+            throw e;
+        }
+    }
+
+    private static int countValues(Map<?, ?> map) {
+        int count = 0;
+        for (Object value : map.values()) {
+            count += value instanceof Map<?, ?> inner ? inner.size() : ((Collection<?>) value).size();
+        }
+        return count;
+    }
+
+    @FunctionalInterface
+    private interface IoTask {
+        void run() throws IOException;
+    }
+
+    private static final class CollectingClaimSink implements StorageBackend.ClaimSink {
+        private final Map<String, long[]> claims;
+
+        CollectingClaimSink(Map<String, long[]> claims) {
+            this.claims = claims;
+        }
+
+        @Override
+        public void claim(String world, int x, int z, UUID owner) {
+            claims(world, owner, new long[] { ChunkPosition.pack(x, z) });
+        }
+
+        @Override
+        public void claims(String world, UUID owner, long[] keys) {
+            claims.merge(world, keys, (a, b) -> {
+                long[] merged = Arrays.copyOf(a, a.length + b.length);
+                System.arraycopy(b, 0, merged, a.length, b.length);
+                return merged;
+            });
+        }
+
+        @Override
+        public void unclaim(String world, int x, int z) {
+        }
+
+        @Override
+        public void unclaimAll(UUID owner) {
+        }
+    }
+
+    /**
+     * Everything read from a data folder. Claims are filled from one thread;
+     * trust and homes may be filled from several.
+     */
+    private static final class Data {
+        private final ClaimIndex claims = new ClaimIndex();
+        private int duplicates;
+        private final List<String> duplicateList = new ArrayList<>();
+
+        private final Map<UUID, Set<UUID>> trusted = new LinkedHashMap<>();
+        private final Map<UUID, Map<UUID, List<String>>> permissions = new LinkedHashMap<>();
+        private final Map<UUID, Map<String, Boolean>> visitorPermissions = new LinkedHashMap<>();
+        private final Map<UUID, Set<UUID>> members = new LinkedHashMap<>();
+        private final Map<UUID, Map<String, StoredHome>> homes = new LinkedHashMap<>();
+
+        StorageBackend.ClaimSink claimSink() {
+            return new StorageBackend.ClaimSink() {
+                @Override
+                public void claim(String world, int x, int z, UUID owner) {
+                    checkOwner(world, x, z, owner);
+                    claims.put(world, x, z, owner);
+                }
+
+                @Override
+                public void claims(String world, UUID owner, long[] keys) {
+                    for (long key : keys) {
+                        checkOwner(world, ChunkPosition.unpackX(key), ChunkPosition.unpackZ(key), owner);
+                    }
+                    claims.putAll(world, owner, keys);
+                }
+
+                @Override
+                public void unclaim(String world, int x, int z) {
+                    claims.remove(world, x, z);
+                }
+
+                @Override
+                public void unclaimAll(UUID owner) {
+                    claims.removeAll(owner);
+                }
+            };
+        }
+
+        private void checkOwner(String world, int x, int z, UUID owner) {
+            UUID existing = claims.getOwner(world, x, z);
+            if (existing == null || existing.equals(owner))
+                return;
+            duplicates++;
+            if (duplicateList.size() < LISTED_DUPLICATES) {
+                duplicateList.add(world + " " + x + "," + z + ": " + existing + ", then " + owner);
+            }
+        }
+
+        StorageBackend.TrustSink trustSink() {
+            return new StorageBackend.TrustSink() {
+                @Override
+                public void trusted(UUID owner, UUID player) {
+                    synchronized (trusted) {
+                        trusted.computeIfAbsent(owner, k -> new LinkedHashSet<>()).add(player);
+                    }
+                }
+
+                @Override
+                public void trustPermissions(UUID owner, UUID player, Set<String> set) {
+                    synchronized (permissions) {
+                        permissions.computeIfAbsent(owner, k -> new LinkedHashMap<>()).put(player, new ArrayList<>(set));
+                    }
+                }
+
+                @Override
+                public void visitorPermission(UUID owner, String permission, boolean enabled) {
+                    synchronized (visitorPermissions) {
+                        visitorPermissions.computeIfAbsent(owner, k -> new LinkedHashMap<>()).put(permission, enabled);
+                    }
+                }
+
+                @Override
+                public void member(UUID owner, UUID member) {
+                    synchronized (members) {
+                        members.computeIfAbsent(owner, k -> new LinkedHashSet<>()).add(member);
+                    }
+                }
+            };
+        }
+
+        StorageBackend.HomeSink homeSink() {
+            return (player, name, home) -> {
+                synchronized (homes) {
+                    homes.computeIfAbsent(player, k -> new LinkedHashMap<>()).put(name, home);
+                }
+            };
+        }
+
+        TrustSnapshot trustSnapshot() {
+            return new TrustSnapshot(toLists(trusted), permissions, visitorPermissions, toLists(members));
+        }
+
+        /**
+         * Trust data of one owner, keyed by that owner only, for a shard
+         */
+        TrustSnapshot trustSnapshot(UUID owner) {
+            return new TrustSnapshot(
+                    Collections.singletonMap(owner, new ArrayList<>(trusted.getOrDefault(owner, Collections.emptySet()))),
+                    Collections.singletonMap(owner, permissions.getOrDefault(owner, Collections.emptyMap())),
+                    Collections.singletonMap(owner, visitorPermissions.getOrDefault(owner, Collections.emptyMap())),
+                    Collections.singletonMap(owner, new ArrayList<>(members.getOrDefault(owner, Collections.emptySet()))));
+        }
+
+        private static Map<UUID, List<UUID>> toLists(Map<UUID, Set<UUID>> sets) {
+            Map<UUID, List<UUID>> lists = new LinkedHashMap<>(sets.size() * 2);
+            sets.forEach((owner, players) -> lists.put(owner, new ArrayList<>(players)));
+            return lists;
+        }
+    }
+}
@@ -0,0 +1,572 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only binary log of claim changes, kept next to claims.yml.
+ *
+ * claims.yml is the last full snapshot and the journal holds every change
+ * made since. Changes are queued from the main thread and written by a single
+ * background thread in framed batches ({@code [length][crc32][records]}), so
+ * claiming a chunk costs a few bytes of I/O instead of a rewrite of every
+ * claim on the server. On load the journal is replayed on top of the
+ * snapshot; a torn or corrupt batch at the tail is dropped. Once the journal
+ * holds enough records it is compacted: a new snapshot is written and the
+ * journal is truncated.
+ *
+ * Every record sets or clears chunks outright, so replaying records that the
+ * snapshot already contains is harmless. A crash between writing the
+ * snapshot and truncating the journal therefore needs no recovery step.
+ */
+public class ClaimJournal {
+    private static final int MAGIC = 0x4C434A31; // "LCJ1"
+    private static final int HEADER_SIZE = 4;
+    private static final int FRAME_HEADER_SIZE = 8;
+    private static final int MAX_FRAME_SIZE = 64 << 20;
+
+    // Record types; worlds and owners are defined once per file and referenced by index.
+    // COMPACT only ever lives in the queue.
+    private static final byte COMPACT = 0;
+    private static final byte DEFINE_WORLD = 1;
+    private static final byte DEFINE_OWNER = 2;
+    private static final byte CLAIM = 3;
+    private static final byte UNCLAIM = 4;
+    private static final byte UNCLAIM_ALL = 5;
+
+    private final LandClaimPlugin plugin;
+    private final File file;
+    private final ExecutorService writer;
+    private final Queue<Entry> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    private final AtomicInteger recordCount = new AtomicInteger();
+    private volatile boolean writeFailed;
+
+    // Writer-thread state
+    private FileChannel channel;
+    private final Map<String, Integer> worldIndex = new HashMap<>();
+    private final Map<UUID, Integer> ownerIndex = new HashMap<>();
+
+    public ClaimJournal(LandClaimPlugin plugin, File file) {
+        this.plugin = plugin;
+        this.file = file;
+        this.writer = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LandClaim-Journal");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /**
+     * Queue a claim record. Safe to call from any thread; never blocks on I/O.
+     */
+    public void logClaim(String world, int x, int z, UUID owner) {
+        enqueue(new Entry(CLAIM, world, x, z, owner));
+    }
+
+    public void logUnclaim(String world, int x, int z) {
+        enqueue(new Entry(UNCLAIM, world, x, z, null));
+    }
+
+    public void logUnclaimAll(UUID owner) {
+        enqueue(new Entry(UNCLAIM_ALL, null, 0, 0, owner));
+    }
+
+    /**
+     * Number of records in the journal, including queued ones
+     */
+    public int getRecordCount() {
+        return recordCount.get();
+    }
+
+    /**
+     * True once the journal is long enough to compact, or after a failed
+     * write left changes that only a new snapshot can persist.
+     */
+    public boolean needsCompaction(int threshold) {
+        return writeFailed || recordCount.get() >= threshold;
+    }
+
+    /**
+     * Read the journal and hand every record to {@code target} in order, on
+     * the calling thread. Queued records are written first. A damaged tail is
+     * cut off so later appends start at a clean frame boundary.
+     *
+     * @return the number of records replayed
+     */
+    public int replay(StorageBackend.ClaimSink target) {
+        List<Entry> entries;
+        try {
+            entries = writer.submit(() -> {
+                drain();
+                return readAll();
+            }).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return 0;
+        } catch (ExecutionException e) {
+            plugin.getLogger().severe("Could not read claims.journal: " + e.getCause().getMessage());
+            return 0;
+        }
+
+        apply(entries, target);
+        return entries.size();
+    }
+
+    /**
+     * Replay a journal file without a running plugin, for offline tools. The
+     * file is only read: a damaged tail is skipped, not cut off.
+     *
+     * @return the number of records replayed
+     * @throws IOException if the file cannot be read or has an unknown format
+     */
+    public static int read(File file, StorageBackend.ClaimSink target) throws IOException {
+        if (!file.exists())
+            return 0;
+
+        List<Entry> entries = new ArrayList<>();
+        try (FileChannel in = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = in.size();
+            if (size == 0)
+                return 0;
+            if (size < HEADER_SIZE || readHeader(in) != MAGIC)
+                throw new IOException("unknown format");
+            readFrames(in, new ArrayList<>(), new ArrayList<>(), entries);
+        }
+        apply(entries, target);
+        return entries.size();
+    }
+
+    private static void apply(List<Entry> entries, StorageBackend.ClaimSink target) {
+        for (Entry entry : entries) {
+            switch (entry.type) {
+                case CLAIM -> target.claim(entry.world, entry.x, entry.z, entry.owner);
+                case UNCLAIM -> target.unclaim(entry.world, entry.x, entry.z);
+                case UNCLAIM_ALL -> target.unclaimAll(entry.owner);
+                default -> {
+                }
+            }
+        }
+    }
+
+    /**
+     * Replace the snapshot and truncate the journal. The snapshot must have
+     * been captured by the thread that logs claim changes, right before this
+     * call: records queued earlier are written first, {@code writeSnapshot}
+     * then runs on the journal thread, and records queued later go into the
+     * fresh journal. The future yields the size of the new snapshot.
+     */
+    public CompletableFuture<Long> compact(DataSnapshot writeSnapshot) {
+        Entry marker = new Entry(COMPACT, null, 0, 0, null);
+        marker.snapshot = writeSnapshot;
+        marker.done = new CompletableFuture<>();
+        pending.add(marker);
+        scheduleDrain();
+        return marker.done;
+    }
+
+    /**
+     * Block until every queued record is on disk.
+     */
+    public void flush() {
+        try {
+            writer.submit(this::drain).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException e) {
+            plugin.getLogger().severe("Could not flush claims.journal: " + e.getCause().getMessage());
+        }
+    }
+
+    /**
+     * Flush and stop the writer thread.
+     */
+    public void close() {
+        flush();
+        writer.execute(this::closeChannel);
+        writer.shutdown();
+        try {
+            if (!writer.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for claims.journal to close");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void enqueue(Entry entry) {
+        pending.add(entry);
+        recordCount.incrementAndGet();
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        // One drain task at a time; it picks up everything queued until it runs
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                writer.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+                plugin.getLogger().severe("Claim change logged after claims.journal was closed");
+            }
+        }
+    }
+
+    // Everything below runs on the writer thread
+
+    private void drain() {
+        drainScheduled.set(false);
+        if (pending.isEmpty())
+            return;
+
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        Entry entry = null;
+        int unwritten = 0;
+        try {
+            // Open before encoding: opening rebuilds the world and owner tables from disk
+            channel();
+            while ((entry = pending.poll()) != null) {
+                if (entry.type != COMPACT) {
+                    encode(entry, out);
+                    unwritten++;
+                    continue;
+                }
+
+                // Everything before the marker is part of the snapshot
+                if (bytes.size() > 0) {
+                    writeFrame(bytes.toByteArray());
+                    bytes.reset();
+                    unwritten = 0;
+                }
+                writeSnapshot(entry);
+            }
+            if (bytes.size() > 0) {
+                writeFrame(bytes.toByteArray());
+            }
+        } catch (IOException e) {
+            writeFailed = true;
+            unwritten += failQueued(entry, e);
+            recover();
+            // The dropped records are still in the claim index; writeFailed makes the
+            // next compaction put them into the snapshot instead of retrying them here
+            plugin.getLogger().severe("Could not write claims.journal: " + e.getMessage() + "; " + unwritten
+                    + " claim changes will be saved with the next snapshot");
+            if (!pending.isEmpty()) {
+                scheduleDrain();
+            }
+        }
+    }
+
+    /**
+     * After a failed write, fail the compaction that was being written and
+     * every one still queued, so nobody waits on them, and drop the queued
+     * records
+     *
+     * @return the number of records dropped
+     */
+    private int failQueued(Entry current, IOException cause) {
+        if (current != null && current.type == COMPACT) {
+            current.done.completeExceptionally(cause);
+        }
+        int dropped = 0;
+        Entry entry;
+        while ((entry = pending.poll()) != null) {
+            if (entry.type == COMPACT) {
+                entry.done.completeExceptionally(cause);
+            } else {
+                dropped++;
+            }
+        }
+        return dropped;
+    }
+
+    private void writeSnapshot(Entry marker) {
+        try {
+            long bytes = marker.snapshot.write();
+            truncate();
+            writeFailed = false;
+            marker.done.complete(bytes);
+        } catch (Exception e) {
+            // Journal is left intact; the old snapshot plus the journal is still complete
+            plugin.getLogger().severe("Could not compact claims.journal: " + e.getMessage());
+            marker.done.completeExceptionally(e);
+        }
+    }
+
+    /**
+     * After a failed write, cut any torn frame and rebuild the tables from
+     * disk so that later frames only reference definitions that exist.
+     */
+    private void recover() {
+        try {
+            readAll();
+        } catch (IOException e) {
+            closeChannel();
+        }
+    }
+
+    private void encode(Entry entry, DataOutputStream out) throws IOException {
+        switch (entry.type) {
+            case CLAIM -> {
+                int world = defineWorld(entry.world, out);
+                int owner = defineOwner(entry.owner, out);
+                out.writeByte(CLAIM);
+                out.writeInt(world);
+                out.writeInt(entry.x);
+                out.writeInt(entry.z);
+                out.writeInt(owner);
+            }
+            case UNCLAIM -> {
+                int world = defineWorld(entry.world, out);
+                out.writeByte(UNCLAIM);
+                out.writeInt(world);
+                out.writeInt(entry.x);
+                out.writeInt(entry.z);
+            }
+            case UNCLAIM_ALL -> {
+                int owner = defineOwner(entry.owner, out);
+                out.writeByte(UNCLAIM_ALL);
+                out.writeInt(owner);
+            }
+            default -> throw new IllegalStateException("Unknown journal record " + entry.type);
+        }
+    }
+
+    private int defineWorld(String world, DataOutputStream out) throws IOException {
+        Integer index = worldIndex.get(world);
+        if (index != null)
+            return index;
+        index = worldIndex.size();
+        worldIndex.put(world, index);
+        byte[] name = world.getBytes(StandardCharsets.UTF_8);
+        out.writeByte(DEFINE_WORLD);
+        out.writeShort(name.length);
+        out.write(name);
+        return index;
+    }
+
+    private int defineOwner(UUID owner, DataOutputStream out) throws IOException {
+        Integer index = ownerIndex.get(owner);
+        if (index != null)
+            return index;
+        index = ownerIndex.size();
+        ownerIndex.put(owner, index);
+        out.writeByte(DEFINE_OWNER);
+        out.writeLong(owner.getMostSignificantBits());
+        out.writeLong(owner.getLeastSignificantBits());
+        return index;
+    }
+
+    private void writeFrame(byte[] payload) throws IOException {
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+        ByteBuffer frame = ByteBuffer.allocate(FRAME_HEADER_SIZE + payload.length);
+        frame.putInt(payload.length).putInt((int) crc.getValue()).put(payload).flip();
+
+        FileChannel out = channel();
+        while (frame.hasRemaining()) {
+            out.write(frame);
+        }
+        out.force(false);
+    }
+
+    private FileChannel channel() throws IOException {
+        if (channel == null) {
+            // First use without a replay: continue whatever is on disk
+            readAll();
+        }
+        return channel;
+    }
+
+    /**
+     * Read every intact frame, then leave the channel positioned after the
+     * last one with the world and owner tables rebuilt for further appends.
+     */
+    private List<Entry> readAll() throws IOException {
+        closeChannel();
+        worldIndex.clear();
+        ownerIndex.clear();
+        file.getParentFile().mkdirs();
+        channel = FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+
+        List<Entry> entries = new ArrayList<>();
+        long size = channel.size();
+        if (size < HEADER_SIZE || readHeader(channel) != MAGIC) {
+            if (size > 0) {
+                preserveUnreadable();
+            }
+            truncate();
+            return entries;
+        }
+
+        List<String> worlds = new ArrayList<>();
+        List<UUID> owners = new ArrayList<>();
+        long position = readFrames(channel, worlds, owners, entries);
+
+        if (position < size) {
+            plugin.getLogger().warning("Discarding " + (size - position)
+                    + " bytes of incomplete or damaged data at the end of claims.journal");
+            channel.truncate(position);
+        }
+        channel.position(position);
+
+        for (int i = 0; i < worlds.size(); i++) {
+            worldIndex.put(worlds.get(i), i);
+        }
+        for (int i = 0; i < owners.size(); i++) {
+            ownerIndex.put(owners.get(i), i);
+        }
+        recordCount.set(entries.size() + pending.size());
+        return entries;
+    }
+
+    /**
+     * Decode every intact frame after the header
+     *
+     * @return the position after the last intact frame
+     */
+    private static long readFrames(FileChannel in, List<String> worlds, List<UUID> owners, List<Entry> entries)
+            throws IOException {
+        long size = in.size();
+        long position = HEADER_SIZE;
+        ByteBuffer frameHeader = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+        while (position + FRAME_HEADER_SIZE <= size) {
+            frameHeader.clear();
+            readFully(in, frameHeader, position);
+            int length = frameHeader.getInt(0);
+            int checksum = frameHeader.getInt(4);
+            if (length <= 0 || length > MAX_FRAME_SIZE || position + FRAME_HEADER_SIZE + length > size)
+                break;
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(in, payload, position + FRAME_HEADER_SIZE);
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum)
+                break;
+            payload.flip();
+
+            int before = entries.size();
+            int worldsBefore = worlds.size();
+            int ownersBefore = owners.size();
+            if (!decodeFrame(payload, worlds, owners, entries)) {
+                // Checksum matched but the content is unusable: drop the whole frame
+                entries.subList(before, entries.size()).clear();
+                worlds.subList(worldsBefore, worlds.size()).clear();
+                owners.subList(ownersBefore, owners.size()).clear();
+                break;
+            }
+            position += FRAME_HEADER_SIZE + length;
+        }
+        return position;
+    }
+
+    private static boolean decodeFrame(ByteBuffer in, List<String> worlds, List<UUID> owners, List<Entry> entries) {
+        try {
+            while (in.hasRemaining()) {
+                byte type = in.get();
+                switch (type) {
+                    case DEFINE_WORLD -> {
+                        byte[] name = new byte[in.getShort() & 0xFFFF];
+                        in.get(name);
+                        worlds.add(new String(name, StandardCharsets.UTF_8));
+                    }
+                    case DEFINE_OWNER -> owners.add(new UUID(in.getLong(), in.getLong()));
+                    case CLAIM -> entries.add(new Entry(CLAIM, worlds.get(in.getInt()), in.getInt(), in.getInt(),
+                            owners.get(in.getInt())));
+                    case UNCLAIM -> entries.add(new Entry(UNCLAIM, worlds.get(in.getInt()), in.getInt(),
+                            in.getInt(), null));
+                    case UNCLAIM_ALL -> entries.add(new Entry(UNCLAIM_ALL, null, 0, 0, owners.get(in.getInt())));
+                    default -> {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } catch (RuntimeException e) {
+            // Buffer underflow or an index that was never defined
+            return false;
+        }
+    }
+
+    private static int readHeader(FileChannel in) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+        readFully(in, header, 0);
+        return header.getInt(0);
+    }
+
+    private static void readFully(FileChannel in, ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (in.read(buffer, position + buffer.position()) < 0)
+                throw new IOException("Unexpected end of claims.journal");
+        }
+    }
+
+    private void preserveUnreadable() {
+        File copy = new File(file.getParentFile(), file.getName() + ".unreadable");
+        try {
+            Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            plugin.getLogger().severe("claims.journal has an unknown format; moved aside to " + copy.getName());
+        } catch (IOException e) {
+            plugin.getLogger().severe("claims.journal has an unknown format and could not be backed up: "
+                    + e.getMessage());
+        }
+    }
+
+    private void truncate() throws IOException {
+        FileChannel out = channel();
+        out.truncate(0);
+        out.write(ByteBuffer.allocate(HEADER_SIZE).putInt(0, MAGIC), 0);
+        out.position(HEADER_SIZE);
+        out.force(false);
+        worldIndex.clear();
+        ownerIndex.clear();
+        recordCount.set(pending.size());
+    }
+
+    private void closeChannel() {
+        if (channel == null)
+            return;
+        try {
+            channel.close();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Could not close claims.journal: " + e.getMessage());
+        }
+        channel = null;
+    }
+
+    private static final class Entry {
+        private final byte type;
+        private final String world;
+        private final int x;
+        private final int z;
+        private final UUID owner;
+        private DataSnapshot snapshot; // COMPACT only
+        private CompletableFuture<Long> done;
+
+        Entry(byte type, String world, int x, int z, UUID owner) {
+            this.type = type;
+            this.world = world;
+            this.x = x;
+            this.z = z;
+            this.owner = owner;
+        }
+    }
+}
@@ -0,0 +1,269 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import org.ayosynk.landClaimPlugin.index.ClaimSnapshot;
+import org.ayosynk.landClaimPlugin.index.LongIntHashMap;
+import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.ayosynk.landClaimPlugin.utils.AtomicFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * Binary claim snapshot (claims.dat), an alternative to claims.yml that loads
+ * without parsing.
+ *
+ * Layout, big-endian:
+ * <pre>
+ * header   magic "LCS1", version, world count, owner count, record count (5 ints)
+ * worlds   per world: u16 length + UTF-8 name
+ * owners   per owner: UUID as two longs
+ * records  per claim: world id, chunk x, chunk z, owner index (4 ints)
+ * trailer  CRC32 of everything above
+ * </pre>
+ * Records are grouped by world and sorted in Morton (Z-order) within it, so
+ * neighbouring chunks are stored together. The loader maps the file,
+ * resolves names through the two tables (no String or UUID is created per
+ * claim) and hands each owner's chunks in a world to the sink as one array,
+ * so the index can be built in bulk.
+ */
+public final class ClaimSnapshotFile {
+    private static final int MAGIC = 0x4C435331; // "LCS1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+    private static final int RECORD_SIZE = 16;
+    private static final int BUFFER_SIZE = 1 << 20;
+
+    private ClaimSnapshotFile() {
+    }
+
+    /**
+     * Read every claim into {@code sink}, one
+     * {@link StorageBackend.ClaimSink#claims} call per owner and world.
+     *
+     * @return the number of claims read
+     * @throws IOException if the file is truncated, corrupt or of an unknown version
+     */
+    public static int read(File file, StorageBackend.ClaimSink sink) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_SIZE + 4 || length > Integer.MAX_VALUE)
+                throw new IOException("unexpected size " + length);
+
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            int end = (int) length - 4;
+            CRC32 crc = new CRC32();
+            ByteBuffer body = buffer.duplicate();
+            body.limit(end);
+            crc.update(body);
+            if ((int) crc.getValue() != buffer.getInt(end))
+                throw new IOException("checksum mismatch");
+
+            if (buffer.getInt() != MAGIC)
+                throw new IOException("not a claim snapshot");
+            int version = buffer.getInt();
+            if (version != VERSION)
+                throw new IOException("unsupported version " + version);
+            int worldCount = buffer.getInt();
+            int ownerCount = buffer.getInt();
+            int recordCount = buffer.getInt();
+
+            String[] worlds = new String[worldCount];
+            for (int i = 0; i < worldCount; i++) {
+                byte[] name = new byte[buffer.getShort() & 0xFFFF];
+                buffer.get(name);
+                worlds[i] = new String(name, StandardCharsets.UTF_8);
+            }
+            UUID[] owners = new UUID[ownerCount];
+            for (int i = 0; i < ownerCount; i++) {
+                owners[i] = new UUID(buffer.getLong(), buffer.getLong());
+            }
+            if (buffer.position() + (long) recordCount * RECORD_SIZE != end)
+                throw new IOException("record count does not match file size");
+
+            // Group by world and owner so the index can insert each group in bulk
+            int recordStart = buffer.position();
+            LongIntHashMap groupSizes = new LongIntHashMap(0);
+            for (int i = 0; i < recordCount; i++) {
+                int record = recordStart + i * RECORD_SIZE;
+                int world = buffer.getInt(record);
+                int owner = buffer.getInt(record + 12);
+                if (world < 0 || world >= worldCount || owner < 0 || owner >= ownerCount)
+                    throw new IOException("record " + i + " references a missing world or owner");
+                long group = groupKey(world, owner);
+                groupSizes.put(group, groupSizes.get(group) + 1);
+            }
+
+            LongIntHashMap groupIndex = new LongIntHashMap(groupSizes.size(), -1);
+            List<long[]> groups = new ArrayList<>(groupSizes.size());
+            groupSizes.forEach((group, size) -> {
+                groupIndex.put(group, groups.size());
+                groups.add(new long[size]);
+            });
+            int[] filled = new int[groups.size()];
+            for (int i = 0; i < recordCount; i++) {
+                int record = recordStart + i * RECORD_SIZE;
+                int group = groupIndex.get(groupKey(buffer.getInt(record), buffer.getInt(record + 12)));
+                groups.get(group)[filled[group]++] = ChunkPosition.pack(buffer.getInt(record + 4),
+                        buffer.getInt(record + 8));
+            }
+
+            groupIndex.forEach((group, index) -> sink.claims(worlds[(int) (group >>> 32)], owners[(int) group],
+                    groups.get(index)));
+            return recordCount;
+        }
+    }
+
+    private static long groupKey(int world, int owner) {
+        return ((long) world << 32) | (owner & 0xFFFFFFFFL);
+    }
+
+    /**
+     * Write a snapshot atomically (see {@link AtomicFiles}). Runs off the main
+     * thread; only the snapshot is read.
+     */
+    public static long write(File file, ClaimSnapshot snapshot) throws IOException {
+        // Intern worlds and owners, and collect each world's chunks with their owner
+        List<String> worlds = new ArrayList<>();
+        Map<String, Integer> worldIds = new HashMap<>();
+        List<LongIntHashMap> worldChunks = new ArrayList<>();
+        UUID[] owners = snapshot.getOwners().toArray(new UUID[0]);
+        for (int ownerIndex = 0; ownerIndex < owners.length; ownerIndex++) {
+            for (Map.Entry<String, long[]> entry : snapshot.getClaims(owners[ownerIndex]).entrySet()) {
+                Integer worldId = worldIds.get(entry.getKey());
+                if (worldId == null) {
+                    worldId = worlds.size();
+                    worldIds.put(entry.getKey(), worldId);
+                    worlds.add(entry.getKey());
+                    worldChunks.add(new LongIntHashMap(-1));
+                }
+                LongIntHashMap chunks = worldChunks.get(worldId);
+                for (long key : entry.getValue()) {
+                    chunks.put(key, ownerIndex);
+                }
+            }
+        }
+
+        int recordCount = 0;
+        for (LongIntHashMap chunks : worldChunks) {
+            recordCount += chunks.size();
+        }
+        int total = recordCount;
+
+        return AtomicFiles.write(file, channel -> {
+            Output out = new Output(channel);
+            out.ensure(HEADER_SIZE);
+            out.buffer.putInt(MAGIC).putInt(VERSION).putInt(worlds.size()).putInt(owners.length).putInt(total);
+            for (String world : worlds) {
+                byte[] name = world.getBytes(StandardCharsets.UTF_8);
+                out.ensure(2 + name.length);
+                out.buffer.putShort((short) name.length).put(name);
+            }
+            for (UUID owner : owners) {
+                out.ensure(16);
+                out.buffer.putLong(owner.getMostSignificantBits()).putLong(owner.getLeastSignificantBits());
+            }
+
+            for (int worldId = 0; worldId < worlds.size(); worldId++) {
+                LongIntHashMap chunks = worldChunks.get(worldId);
+                for (long morton : sortedMortonKeys(chunks)) {
+                    int x = mortonX(morton);
+                    int z = mortonZ(morton);
+                    out.ensure(RECORD_SIZE);
+                    out.buffer.putInt(worldId).putInt(x).putInt(z).putInt(chunks.get(ChunkPosition.pack(x, z)));
+                }
+            }
+            out.finish();
+        });
+    }
+
+    private static long[] sortedMortonKeys(LongIntHashMap chunks) {
+        long[] keys = new long[chunks.size()];
+        int[] count = { 0 };
+        chunks.forEach((key, owner) -> keys[count[0]++] = morton(ChunkPosition.unpackX(key),
+                ChunkPosition.unpackZ(key)) ^ Long.MIN_VALUE);
+        // Flipping the sign bit makes the signed sort match unsigned Morton order
+        Arrays.sort(keys);
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] ^= Long.MIN_VALUE;
+        }
+        return keys;
+    }
+
+    // Coordinates are offset by 2^31 so negative chunks sort before positive ones
+
+    static long morton(int x, int z) {
+        return spread(x ^ Integer.MIN_VALUE) | (spread(z ^ Integer.MIN_VALUE) << 1);
+    }
+
+    static int mortonX(long morton) {
+        return compact(morton) ^ Integer.MIN_VALUE;
+    }
+
+    static int mortonZ(long morton) {
+        return compact(morton >>> 1) ^ Integer.MIN_VALUE;
+    }
+
+    private static long spread(int value) {
+        long v = value & 0xFFFFFFFFL;
+        v = (v | (v << 16)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v << 8)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v << 4)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v << 2)) & 0x3333333333333333L;
+        v = (v | (v << 1)) & 0x5555555555555555L;
+        return v;
+    }
+
+    private static int compact(long value) {
+        long v = value & 0x5555555555555555L;
+        v = (v | (v >>> 1)) & 0x3333333333333333L;
+        v = (v | (v >>> 2)) & 0x0F0F0F0F0F0F0F0FL;
+        v = (v | (v >>> 4)) & 0x00FF00FF00FF00FFL;
+        v = (v | (v >>> 8)) & 0x0000FFFF0000FFFFL;
+        v = (v | (v >>> 16)) & 0x00000000FFFFFFFFL;
+        return (int) v;
+    }
+
+    /**
+     * Buffered channel output that keeps a running CRC
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_SIZE);
+        private final CRC32 crc = new CRC32();
+
+        Output(FileChannel channel) {
+            this.channel = channel;
+        }
+
+        void ensure(int bytes) throws IOException {
+            if (buffer.remaining() < bytes) {
+                drain();
+            }
+        }
+
+        void finish() throws IOException {
+            drain();
+            buffer.putInt((int) crc.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+
+        private void drain() throws IOException {
+            buffer.flip();
+            crc.update(buffer.duplicate());
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+    }
+}
@@ -0,0 +1,16 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import java.io.IOException;
+
+/**
+ * Immutable copy of a store's state, captured on the main thread and written
+ * to disk from a background thread. Implementations must not reach back into
+ * live manager state or the Bukkit API from {@link #write()}.
+ */
+@FunctionalInterface
+public interface DataSnapshot {
+    /**
+     * @return the number of bytes written, for the save metrics
+     */
+    long write() throws IOException;
+}
@@ -0,0 +1,69 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Immutable copy of everything stored under one player: their claims, the
+ * trust, permission and member entries of those claims, and their homes.
+ */
+public final class OwnerShard {
+    private final UUID owner;
+    private final Map<String, long[]> claims;
+    private final TrustSnapshot trust;
+    private final Map<String, StoredHome> homes;
+
+    public OwnerShard(UUID owner, Map<String, long[]> claims, TrustSnapshot trust, Map<String, StoredHome> homes) {
+        this.owner = owner;
+        this.claims = claims;
+        this.trust = trust;
+        this.homes = homes;
+    }
+
+    public UUID getOwner() {
+        return owner;
+    }
+
+    /**
+     * World name to packed chunk keys. The arrays must not be modified.
+     */
+    public Map<String, long[]> getClaims() {
+        return Collections.unmodifiableMap(claims);
+    }
+
+    /**
+     * Trust data keyed by this owner only
+     */
+    public TrustSnapshot getTrust() {
+        return trust;
+    }
+
+    public Map<String, StoredHome> getHomes() {
+        return Collections.unmodifiableMap(homes);
+    }
+
+    /**
+     * True when there is nothing to store, so the shard file can be deleted
+     */
+    public boolean isEmpty() {
+        for (long[] keys : claims.values()) {
+            if (keys.length > 0)
+                return false;
+        }
+        return homes.isEmpty()
+                && isNullOrEmpty(trust.getTrusted().get(owner))
+                && isNullOrEmpty(trust.getPermissions().get(owner))
+                && isNullOrEmpty(trust.getVisitorPermissions().get(owner))
+                && isNullOrEmpty(trust.getMembers().get(owner));
+    }
+
+    private static boolean isNullOrEmpty(Collection<?> values) {
+        return values == null || values.isEmpty();
+    }
+
+    private static boolean isNullOrEmpty(Map<?, ?> values) {
+        return values == null || values.isEmpty();
+    }
+}
@@ -0,0 +1,224 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import org.ayosynk.landClaimPlugin.utils.AtomicFiles;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.zip.CRC32;
+
+/**
+ * One player's shard file (data/&lt;uuid&gt;.dat) for {@link ShardedStorage}.
+ *
+ * Layout, big-endian:
+ * <pre>
+ * header   magic "LCO1", version, claims length, trust length, homes length (5 ints)
+ * claims   world count; per world: name, chunk count, packed chunk keys (longs)
+ * trust    trusted players; permissions per trusted player; visitor
+ *          permissions (name, enabled); members
+ * homes    home count; per home: name, world, x, y, z, yaw, pitch
+ * trailer  CRC32 of everything above
+ * </pre>
+ * Strings are written with {@link DataOutput#writeUTF}, UUIDs as two longs
+ * and lists as a count followed by the entries. The section lengths let a
+ * reader skip straight to the part it needs.
+ */
+public final class OwnerShardFile {
+    private static final int MAGIC = 0x4C434F31; // "LCO1"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 20;
+
+    private OwnerShardFile() {
+    }
+
+    /**
+     * Read the sections of a shard whose sink is not null. {@code owner}
+     * comes from the file name.
+     *
+     * @throws IOException if the file is truncated, corrupt or of an unknown version
+     */
+    public static void read(File file, UUID owner, StorageBackend.ClaimSink claimSink,
+            StorageBackend.TrustSink trustSink, StorageBackend.HomeSink homeSink) throws IOException {
+        byte[] data = Files.readAllBytes(file.toPath());
+        if (data.length < HEADER_SIZE + 4)
+            throw new IOException("unexpected size " + data.length);
+
+        int end = data.length - 4;
+        CRC32 crc = new CRC32();
+        crc.update(data, 0, end);
+        ByteBuffer buffer = ByteBuffer.wrap(data);
+        if ((int) crc.getValue() != buffer.getInt(end))
+            throw new IOException("checksum mismatch");
+
+        if (buffer.getInt() != MAGIC)
+            throw new IOException("not a claim data shard");
+        int version = buffer.getInt();
+        if (version != VERSION)
+            throw new IOException("unsupported version " + version);
+        int claimsLength = buffer.getInt();
+        int trustLength = buffer.getInt();
+        int homesLength = buffer.getInt();
+        if (claimsLength < 0 || trustLength < 0 || homesLength < 0
+                || (long) HEADER_SIZE + claimsLength + trustLength + homesLength != end)
+            throw new IOException("section lengths do not match file size");
+
+        int offset = HEADER_SIZE;
+        if (claimSink != null) {
+            readClaims(section(data, offset, claimsLength), owner, claimSink);
+        }
+        offset += claimsLength;
+        if (trustSink != null) {
+            readTrust(section(data, offset, trustLength), owner, trustSink);
+        }
+        offset += trustLength;
+        if (homeSink != null) {
+            readHomes(section(data, offset, homesLength), owner, homeSink);
+        }
+    }
+
+    private static DataInputStream section(byte[] data, int offset, int length) {
+        return new DataInputStream(new ByteArrayInputStream(data, offset, length));
+    }
+
+    private static void readClaims(DataInputStream in, UUID owner, StorageBackend.ClaimSink sink)
+            throws IOException {
+        int worlds = count(in);
+        for (int i = 0; i < worlds; i++) {
+            String world = in.readUTF();
+            long[] keys = new long[count(in)];
+            for (int j = 0; j < keys.length; j++) {
+                keys[j] = in.readLong();
+            }
+            sink.claims(world, owner, keys);
+        }
+    }
+
+    private static void readTrust(DataInputStream in, UUID owner, StorageBackend.TrustSink sink)
+            throws IOException {
+        int trusted = count(in);
+        for (int i = 0; i < trusted; i++) {
+            sink.trusted(owner, readUuid(in));
+        }
+        int permissionEntries = count(in);
+        for (int i = 0; i < permissionEntries; i++) {
+            UUID player = readUuid(in);
+            int size = count(in);
+            Set<String> permissions = new HashSet<>(size * 2);
+            for (int j = 0; j < size; j++) {
+                permissions.add(in.readUTF());
+            }
+            sink.trustPermissions(owner, player, permissions);
+        }
+        int visitor = count(in);
+        for (int i = 0; i < visitor; i++) {
+            sink.visitorPermission(owner, in.readUTF(), in.readBoolean());
+        }
+        int members = count(in);
+        for (int i = 0; i < members; i++) {
+            sink.member(owner, readUuid(in));
+        }
+    }
+
+    private static void readHomes(DataInputStream in, UUID owner, StorageBackend.HomeSink sink)
+            throws IOException {
+        int homes = count(in);
+        for (int i = 0; i < homes; i++) {
+            String name = in.readUTF();
+            sink.home(owner, name, new StoredHome(in.readUTF(), in.readDouble(), in.readDouble(),
+                    in.readDouble(), in.readFloat(), in.readFloat()));
+        }
+    }
+
+    private static int count(DataInputStream in) throws IOException {
+        int count = in.readInt();
+        if (count < 0 || count > in.available())
+            throw new IOException("invalid entry count " + count);
+        return count;
+    }
+
+    private static UUID readUuid(DataInputStream in) throws IOException {
+        return new UUID(in.readLong(), in.readLong());
+    }
+
+    /**
+     * Write a shard atomically (see {@link AtomicFiles}). Runs off the main
+     * thread; only the shard is read.
+     */
+    public static long write(File file, OwnerShard shard) throws IOException {
+        UUID owner = shard.getOwner();
+        TrustSnapshot trust = shard.getTrust();
+
+        ByteArrayOutputStream claimsBytes = new ByteArrayOutputStream();
+        DataOutputStream claims = new DataOutputStream(claimsBytes);
+        claims.writeInt(shard.getClaims().size());
+        for (Map.Entry<String, long[]> world : shard.getClaims().entrySet()) {
+            claims.writeUTF(world.getKey());
+            claims.writeInt(world.getValue().length);
+            for (long key : world.getValue()) {
+                claims.writeLong(key);
+            }
+        }
+
+        ByteArrayOutputStream trustBytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(trustBytes);
+        writeUuids(out, trust.getTrusted().get(owner));
+        Map<UUID, List<String>> permissions = trust.getPermissions().getOrDefault(owner, Collections.emptyMap());
+        out.writeInt(permissions.size());
+        for (Map.Entry<UUID, List<String>> entry : permissions.entrySet()) {
+            writeUuid(out, entry.getKey());
+            out.writeInt(entry.getValue().size());
+            for (String permission : entry.getValue()) {
+                out.writeUTF(permission);
+            }
+        }
+        Map<String, Boolean> visitor = trust.getVisitorPermissions().getOrDefault(owner, Collections.emptyMap());
+        out.writeInt(visitor.size());
+        for (Map.Entry<String, Boolean> entry : visitor.entrySet()) {
+            out.writeUTF(entry.getKey());
+            out.writeBoolean(entry.getValue());
+        }
+        writeUuids(out, trust.getMembers().get(owner));
+
+        ByteArrayOutputStream homesBytes = new ByteArrayOutputStream();
+        DataOutputStream homes = new DataOutputStream(homesBytes);
+        homes.writeInt(shard.getHomes().size());
+        for (Map.Entry<String, StoredHome> entry : shard.getHomes().entrySet()) {
+            StoredHome home = entry.getValue();
+            homes.writeUTF(entry.getKey());
+            homes.writeUTF(home.getWorld());
+            homes.writeDouble(home.getX());
+            homes.writeDouble(home.getY());
+            homes.writeDouble(home.getZ());
+            homes.writeFloat(home.getYaw());
+            homes.writeFloat(home.getPitch());
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_SIZE + claimsBytes.size() + trustBytes.size()
+                + homesBytes.size() + 4);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(claimsBytes.size()).putInt(trustBytes.size())
+                .putInt(homesBytes.size());
+        buffer.put(claimsBytes.toByteArray()).put(trustBytes.toByteArray()).put(homesBytes.toByteArray());
+        CRC32 crc = new CRC32();
+        crc.update(buffer.array(), 0, buffer.position());
+        buffer.putInt((int) crc.getValue());
+
+        return AtomicFiles.write(file, buffer.array());
+    }
+
+    private static void writeUuids(DataOutputStream out, List<UUID> ids) throws IOException {
+        if (ids == null) {
+            out.writeInt(0);
+            return;
+        }
+        out.writeInt(ids.size());
+        for (UUID id : ids) {
+            writeUuid(out, id);
+        }
+    }
+
+    private static void writeUuid(DataOutputStream out, UUID id) throws IOException {
+        out.writeLong(id.getMostSignificantBits());
+        out.writeLong(id.getLeastSignificantBits());
+    }
+}
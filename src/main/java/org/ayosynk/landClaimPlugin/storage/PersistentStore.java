@@ -0,0 +1,49 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Something {@code SaveManager} flushes on its schedule: a storage backend
+ * or the per-player settings. The pending figures decide when a flush is
+ * due before the interval is up, and show up in {@code /claim admin storage}.
+ */
+public interface PersistentStore {
+    /**
+     * Short name for logs and config, e.g. "yaml"
+     */
+    String getName();
+
+    /**
+     * Changes reported but not yet handed to a write
+     */
+    int getPendingChanges();
+
+    /**
+     * Rough size of the pending changes in bytes
+     */
+    long getPendingBytes();
+
+    /**
+     * Periodic hook, called on the main thread by {@code SaveManager}
+     */
+    void autoSave();
+
+    /**
+     * Capture every change reported so far on the calling (main) thread and
+     * start writing it. The future completes once everything is durable, so
+     * stores can be flushed side by side.
+     */
+    CompletableFuture<Void> saveAllAsync();
+
+    /**
+     * Make every change reported so far durable, and wait for it
+     */
+    default void saveAll() {
+        try {
+            saveAllAsync().join();
+        } catch (CompletionException e) {
+            // Already logged and counted by the store
+        }
+    }
+}
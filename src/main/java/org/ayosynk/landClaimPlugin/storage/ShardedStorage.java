@@ -0,0 +1,378 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.index.LongHashSet;
+import org.ayosynk.landClaimPlugin.managers.SaveManager;
+import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.ayosynk.landClaimPlugin.utils.AtomicFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * One file per player under data/: their claims, the trust, permission and
+ * member entries of those claims, and their homes (see {@link OwnerShardFile}).
+ *
+ * Every change marks its owner dirty. The autosave captures only the dirty
+ * owners on the main thread and rewrites their shards on the save thread, so
+ * the I/O of a save grows with the number of players who changed something,
+ * not with the total amount of data on the server.
+ *
+ * A new store is filled from the YAML files in a staging directory that is
+ * renamed to data/ once every shard is written.
+ */
+public class ShardedStorage implements StorageBackend {
+    private static final String EXTENSION = ".dat";
+    // Rough size of a dirty owner's shard, for the pending-size estimate
+    private static final int SHARD_SIZE = 256;
+
+    private final LandClaimPlugin plugin;
+    private final File directory;
+    private final File staging;
+    private final Set<UUID> dirtyOwners = ConcurrentHashMap.newKeySet();
+    private final Set<UUID> unreadable = ConcurrentHashMap.newKeySet();
+
+    private boolean created;
+    // Filled by StorageMigrator on a new store, before the managers exist
+    private Map<UUID, StagedShard> staged;
+
+    public ShardedStorage(LandClaimPlugin plugin, File directory) {
+        this.plugin = plugin;
+        this.directory = directory;
+        this.staging = new File(directory.getParentFile(), directory.getName() + ".migrating");
+    }
+
+    @Override
+    public String getName() {
+        return "sharded";
+    }
+
+    @Override
+    public void open() throws IOException {
+        // Only a missing directory counts as new; an emptied one must not pull old YAML data back in
+        created = !directory.exists();
+        if (created) {
+            // Left behind by a migration that did not finish
+            deleteStaging();
+            if (!staging.mkdirs())
+                throw new IOException("could not create " + staging.getPath());
+            staged = new HashMap<>();
+        }
+    }
+
+    private void deleteStaging() throws IOException {
+        File[] files = staging.listFiles();
+        if (files == null)
+            return;
+        for (File file : files) {
+            Files.deleteIfExists(file.toPath());
+        }
+        Files.deleteIfExists(staging.toPath());
+    }
+
+    @Override
+    public boolean isNew() {
+        return created;
+    }
+
+    // Loading: each task reads only its own section of every shard
+
+    @Override
+    public void loadClaims(ClaimSink sink) {
+        waitForWrites();
+        long start = System.nanoTime();
+        int shards = readShards(sink, null, null);
+        plugin.getLogger().info(String.format("Loaded claims from %d shards in %.1f ms", shards,
+                (System.nanoTime() - start) / 1e6));
+    }
+
+    @Override
+    public void loadTrust(TrustSink sink) {
+        waitForWrites();
+        readShards(null, sink, null);
+    }
+
+    @Override
+    public void loadHomes(HomeSink sink) {
+        waitForWrites();
+        readShards(null, null, sink);
+    }
+
+    private void waitForWrites() {
+        SaveManager saveManager = plugin.getSaveManager();
+        if (saveManager != null) {
+            saveManager.flush();
+        }
+    }
+
+    private int readShards(ClaimSink claims, TrustSink trust, HomeSink homes) {
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(EXTENSION));
+        if (files == null)
+            return 0;
+
+        int read = 0;
+        for (File file : files) {
+            String name = file.getName();
+            UUID owner;
+            try {
+                owner = UUID.fromString(name.substring(0, name.length() - EXTENSION.length()));
+            } catch (IllegalArgumentException e) {
+                if (claims != null) {
+                    plugin.getLogger().warning("Skipping " + name + " in " + directory.getName()
+                            + ": not a player UUID");
+                }
+                continue;
+            }
+
+            try {
+                OwnerShardFile.read(file, owner, claims, trust, homes);
+                read++;
+            } catch (NoSuchFileException e) {
+                // Moved aside by another load task
+            } catch (IOException e) {
+                // Claims, trust and homes load in parallel; report and move a bad shard once
+                if (unreadable.add(owner)) {
+                    plugin.getLogger().severe("Could not read " + directory.getName() + "/" + name + " ("
+                            + e.getMessage() + "), skipping this player's data");
+                    moveAside(file);
+                }
+            }
+        }
+        return read;
+    }
+
+    private void moveAside(File file) {
+        File copy = new File(file.getParentFile(), file.getName() + ".unreadable");
+        try {
+            Files.move(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            plugin.getLogger().severe("Moved " + file.getName() + " aside to " + copy.getName());
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not move " + file.getName() + " aside: " + e.getMessage());
+        }
+    }
+
+    // Changes
+
+    @Override
+    public void claimAdded(String world, int x, int z, UUID owner) {
+        dirtyOwners.add(owner);
+        if (staged != null) {
+            stage(owner).claims.computeIfAbsent(world, k -> new LongHashSet()).add(ChunkPosition.pack(x, z));
+        }
+    }
+
+    @Override
+    public void claimRemoved(String world, int x, int z, UUID owner) {
+        dirtyOwners.add(owner);
+        if (staged != null) {
+            LongHashSet chunks = stage(owner).claims.get(world);
+            if (chunks != null) {
+                chunks.remove(ChunkPosition.pack(x, z));
+            }
+        }
+    }
+
+    @Override
+    public void claimsCleared(UUID owner) {
+        dirtyOwners.add(owner);
+        if (staged != null) {
+            stage(owner).claims.clear();
+        }
+    }
+
+    @Override
+    public void trustChanged(UUID owner, UUID player, boolean trusted) {
+        dirtyOwners.add(owner);
+        if (staged != null) {
+            if (trusted) {
+                stage(owner).trusted.add(player);
+            } else {
+                stage(owner).trusted.remove(player);
+            }
+        }
+    }
+
+    @Override
+    public void trustPermissionsChanged(UUID owner, UUID player, Set<String> permissions) {
+        dirtyOwners.add(owner);
+        if (staged != null) {
+            stage(owner).permissions.put(player, new ArrayList<>(permissions));
+        }
+    }
+
+    @Override
+    public void visitorPermissionChanged(UUID owner, String permission, boolean enabled) {
+        dirtyOwners.add(owner);
+        if (staged != null) {
+            stage(owner).visitorPermissions.put(permission, enabled);
+        }
+    }
+
+    @Override
+    public void memberChanged(UUID owner, UUID member, boolean isMember) {
+        dirtyOwners.add(owner);
+        if (staged != null) {
+            if (isMember) {
+                stage(owner).members.add(member);
+            } else {
+                stage(owner).members.remove(member);
+            }
+        }
+    }
+
+    @Override
+    public void flushTrust() {
+        // Only the owners who changed something are rewritten, so a flush is cheap
+        autoSave();
+    }
+
+    @Override
+    public void homeSet(UUID player, String name, StoredHome home) {
+        dirtyOwners.add(player);
+        if (staged != null) {
+            stage(player).homes.put(name, home);
+        }
+    }
+
+    @Override
+    public void homeDeleted(UUID player, String name) {
+        dirtyOwners.add(player);
+        if (staged != null) {
+            stage(player).homes.remove(name);
+        }
+    }
+
+    private StagedShard stage(UUID owner) {
+        return staged.computeIfAbsent(owner, k -> new StagedShard());
+    }
+
+    // Saving
+
+    /**
+     * Owners whose shard needs rewriting
+     */
+    @Override
+    public int getPendingChanges() {
+        return dirtyOwners.size();
+    }
+
+    @Override
+    public long getPendingBytes() {
+        return (long) dirtyOwners.size() * SHARD_SIZE;
+    }
+
+    @Override
+    public void autoSave() {
+        saveDirty();
+    }
+
+    private CompletableFuture<Void> saveDirty() {
+        SaveManager saveManager = plugin.getSaveManager();
+        if (dirtyOwners.isEmpty() || saveManager == null || staged != null) {
+            // While the migrator fills the store, saveAll writes the staged data
+            return CompletableFuture.completedFuture(null);
+        }
+
+        return saveManager.save(this, "Player data shards", () -> {
+            List<OwnerShard> shards = new ArrayList<>();
+            for (Iterator<UUID> it = dirtyOwners.iterator(); it.hasNext();) {
+                UUID owner = it.next();
+                it.remove();
+                shards.add(new OwnerShard(owner, plugin.getClaimManager().snapshotClaims(owner),
+                        plugin.getTrustManager().captureSnapshot(owner),
+                        plugin.getHomeManager().captureSnapshot(owner)));
+            }
+            return () -> writeShards(directory, shards);
+        });
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAllAsync() {
+        if (staged != null) {
+            List<OwnerShard> shards = new ArrayList<>(staged.size());
+            for (Map.Entry<UUID, StagedShard> entry : staged.entrySet()) {
+                shards.add(entry.getValue().toShard(entry.getKey()));
+            }
+            staged = null;
+            dirtyOwners.clear();
+            try {
+                writeShards(staging, shards);
+            } catch (IOException e) {
+                // Fails the migration; the staging directory is discarded on the next start
+                return CompletableFuture.failedFuture(e);
+            }
+            return CompletableFuture.completedFuture(null);
+        }
+        return saveDirty();
+    }
+
+    @Override
+    public void completeMigration() throws IOException {
+        AtomicFiles.rename(staging, directory);
+    }
+
+    @Override
+    public void close() {
+    }
+
+    /**
+     * Runs on the save thread. A shard that fails to write marks its owner
+     * dirty again so the next autosave retries it.
+     */
+    private long writeShards(File target, List<OwnerShard> shards) throws IOException {
+        IOException failure = null;
+        int failed = 0;
+        long bytes = 0;
+        for (OwnerShard shard : shards) {
+            File file = new File(target, shard.getOwner() + EXTENSION);
+            try {
+                if (shard.isEmpty()) {
+                    Files.deleteIfExists(file.toPath());
+                } else {
+                    bytes += OwnerShardFile.write(file, shard);
+                }
+            } catch (IOException e) {
+                dirtyOwners.add(shard.getOwner());
+                failure = e;
+                failed++;
+            }
+        }
+        if (failure != null)
+            throw new IOException(failed + " of " + shards.size() + " shards failed, last error: "
+                    + failure.getMessage(), failure);
+        return bytes;
+    }
+
+    /**
+     * Mutable shard contents while a new store is being filled
+     */
+    private static final class StagedShard {
+        private final Map<String, LongHashSet> claims = new HashMap<>();
+        private final Set<UUID> trusted = new LinkedHashSet<>();
+        private final Map<UUID, List<String>> permissions = new HashMap<>();
+        private final Map<String, Boolean> visitorPermissions = new HashMap<>();
+        private final Set<UUID> members = new LinkedHashSet<>();
+        private final Map<String, StoredHome> homes = new LinkedHashMap<>();
+
+        OwnerShard toShard(UUID owner) {
+            Map<String, long[]> claimKeys = new HashMap<>(claims.size() * 2);
+            for (Map.Entry<String, LongHashSet> world : claims.entrySet()) {
+                long[] keys = new long[world.getValue().size()];
+                world.getValue().copyTo(keys, 0);
+                claimKeys.put(world.getKey(), keys);
+            }
+            TrustSnapshot trust = new TrustSnapshot(
+                    Collections.singletonMap(owner, new ArrayList<>(trusted)),
+                    Collections.singletonMap(owner, permissions),
+                    Collections.singletonMap(owner, visitorPermissions),
+                    Collections.singletonMap(owner, new ArrayList<>(members)));
+            return new OwnerShard(owner, claimKeys, trust, homes);
+        }
+    }
+}
@@ -0,0 +1,546 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.managers.SaveManager;
+import org.ayosynk.landClaimPlugin.utils.AtomicFiles;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.sql.*;
+import java.util.*;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Local SQLite database (landclaim.db) with one row per claim, trusted
+ * player, permission set, visitor permission, member and home.
+ *
+ * Changes are queued as row operations from the main thread and applied by a
+ * single database thread. Each drain runs in one transaction, and runs of
+ * the same statement are sent as a JDBC batch, so a burst of claims costs
+ * one commit rather than one per row while the order of changes is kept.
+ * A transaction that keeps failing is finally written row by row, so one
+ * bad row cannot hold back every later change.
+ * Claims are keyed by (world, x, z), which doubles as the lookup index.
+ *
+ * A new database is filled from the YAML files under a temporary name and
+ * renamed to landclaim.db once every row is committed.
+ *
+ * Uses the SQLite JDBC driver that ships with the server.
+ */
+public class SqliteStorage implements StorageBackend {
+    private static final String[] SCHEMA = {
+            "CREATE TABLE IF NOT EXISTS claims (world TEXT NOT NULL, x INTEGER NOT NULL, z INTEGER NOT NULL,"
+                    + " owner TEXT NOT NULL, PRIMARY KEY (world, x, z)) WITHOUT ROWID",
+            "CREATE INDEX IF NOT EXISTS claims_owner ON claims (owner)",
+            "CREATE TABLE IF NOT EXISTS trusted (owner TEXT NOT NULL, player TEXT NOT NULL,"
+                    + " PRIMARY KEY (owner, player)) WITHOUT ROWID",
+            "CREATE TABLE IF NOT EXISTS trust_permissions (owner TEXT NOT NULL, player TEXT NOT NULL,"
+                    + " permissions TEXT NOT NULL, PRIMARY KEY (owner, player)) WITHOUT ROWID",
+            "CREATE TABLE IF NOT EXISTS visitor_permissions (owner TEXT NOT NULL, permission TEXT NOT NULL,"
+                    + " enabled INTEGER NOT NULL, PRIMARY KEY (owner, permission)) WITHOUT ROWID",
+            "CREATE TABLE IF NOT EXISTS members (owner TEXT NOT NULL, member TEXT NOT NULL,"
+                    + " PRIMARY KEY (owner, member)) WITHOUT ROWID",
+            "CREATE TABLE IF NOT EXISTS homes (player TEXT NOT NULL, name TEXT NOT NULL, world TEXT NOT NULL,"
+                    + " x REAL NOT NULL, y REAL NOT NULL, z REAL NOT NULL, yaw REAL NOT NULL, pitch REAL NOT NULL,"
+                    + " PRIMARY KEY (player, name)) WITHOUT ROWID"
+    };
+
+    // Statement ids index into STATEMENTS
+    static final int UPSERT_CLAIM = 0;
+    static final int DELETE_CLAIM = 1;
+    static final int DELETE_OWNER_CLAIMS = 2;
+    static final int INSERT_TRUSTED = 3;
+    static final int DELETE_TRUSTED = 4;
+    static final int UPSERT_TRUST_PERMISSIONS = 5;
+    static final int UPSERT_VISITOR_PERMISSION = 6;
+    static final int INSERT_MEMBER = 7;
+    static final int DELETE_MEMBER = 8;
+    static final int UPSERT_HOME = 9;
+    static final int DELETE_HOME = 10;
+    // Failed transactions in a row before the rows are written one by one
+    private static final int MAX_ATTEMPTS = 3;
+
+    static final String[] STATEMENTS = {
+            "INSERT OR REPLACE INTO claims (world, x, z, owner) VALUES (?, ?, ?, ?)",
+            "DELETE FROM claims WHERE world = ? AND x = ? AND z = ?",
+            "DELETE FROM claims WHERE owner = ?",
+            "INSERT OR IGNORE INTO trusted (owner, player) VALUES (?, ?)",
+            "DELETE FROM trusted WHERE owner = ? AND player = ?",
+            "INSERT OR REPLACE INTO trust_permissions (owner, player, permissions) VALUES (?, ?, ?)",
+            "INSERT OR REPLACE INTO visitor_permissions (owner, permission, enabled) VALUES (?, ?, ?)",
+            "INSERT OR IGNORE INTO members (owner, member) VALUES (?, ?)",
+            "DELETE FROM members WHERE owner = ? AND member = ?",
+            "INSERT OR REPLACE INTO homes (player, name, world, x, y, z, yaw, pitch) VALUES (?, ?, ?, ?, ?, ?, ?, ?)",
+            "DELETE FROM homes WHERE player = ? AND name = ?"
+    };
+
+    private final LandClaimPlugin plugin;
+    private final File file;
+    private final File staging;
+    private final ExecutorService worker;
+    private final Queue<Operation> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean drainScheduled = new AtomicBoolean(false);
+    // Queued or waiting for retry
+    private final AtomicInteger pendingChanges = new AtomicInteger();
+    private final AtomicLong pendingBytes = new AtomicLong();
+
+    private Connection connection;
+    private boolean created;
+
+    // Database-thread state
+    private PreparedStatement[] statements;
+    private final List<Operation> retry = new ArrayList<>();
+    private volatile boolean retryPending;
+    private int failedAttempts;
+
+    public SqliteStorage(LandClaimPlugin plugin, File file) {
+        this.plugin = plugin;
+        this.file = file;
+        this.staging = new File(file.getParentFile(), file.getName() + ".migrating");
+        this.worker = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "LandClaim-SQLite");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    @Override
+    public String getName() {
+        return "sqlite";
+    }
+
+    @Override
+    public void open() throws IOException {
+        created = !file.exists();
+        file.getParentFile().mkdirs();
+        if (created) {
+            // Left behind by a migration that did not finish
+            deleteStaging();
+            connect(staging);
+        } else {
+            connect(file);
+        }
+    }
+
+    private void connect(File database) throws IOException {
+        try {
+            Class.forName("org.sqlite.JDBC");
+            connection = DriverManager.getConnection("jdbc:sqlite:" + database.getAbsolutePath());
+            createSchema(connection);
+            statements = new PreparedStatement[STATEMENTS.length];
+            for (int i = 0; i < STATEMENTS.length; i++) {
+                statements[i] = connection.prepareStatement(STATEMENTS[i]);
+            }
+            connection.setAutoCommit(false);
+        } catch (ClassNotFoundException | SQLException e) {
+            throw new IOException("Could not open " + database.getName() + ": " + e.getMessage(), e);
+        }
+    }
+
+    private void deleteStaging() throws IOException {
+        for (String suffix : new String[] { "", "-wal", "-shm" }) {
+            Files.deleteIfExists(new File(staging.getPath() + suffix).toPath());
+        }
+    }
+
+    /**
+     * Called once the migrator's rows are committed and nothing is queued.
+     * Closing checkpoints the write-ahead log into the file, which is then
+     * renamed into place and reopened.
+     */
+    @Override
+    public void completeMigration() throws IOException {
+        synchronized (connection) {
+            try {
+                connection.close();
+            } catch (SQLException e) {
+                throw new IOException("Could not close " + staging.getName() + ": " + e.getMessage(), e);
+            }
+        }
+        AtomicFiles.rename(staging, file);
+        connect(file);
+    }
+
+    @Override
+    public boolean isNew() {
+        return created;
+    }
+
+    // Loading runs on the calling thread once queued changes are committed
+
+    @Override
+    public void loadClaims(ClaimSink sink) throws IOException {
+        flush();
+        load(connection -> readClaims(connection, sink, this::skipRow));
+    }
+
+    @Override
+    public void loadTrust(TrustSink sink) throws IOException {
+        flush();
+        load(connection -> readTrust(connection, sink, this::skipRow));
+    }
+
+    @Override
+    public void loadHomes(HomeSink sink) throws IOException {
+        flush();
+        load(connection -> readHomes(connection, sink, this::skipRow));
+    }
+
+    private void load(SqlReader reader) throws IOException {
+        // The connection is shared with the database thread
+        synchronized (connection) {
+            try {
+                reader.read(connection);
+                connection.commit();
+            } catch (SQLException e) {
+                throw new IOException("Could not read " + file.getName() + ": " + e.getMessage(), e);
+            }
+        }
+    }
+
+    private void skipRow(String error) {
+        plugin.getLogger().warning("Skipping invalid row in " + file.getName() + ": " + error);
+    }
+
+    // Schema and queries, shared with ClaimDataTool which has no plugin instance
+
+    static void createSchema(Connection connection) throws SQLException {
+        try (Statement statement = connection.createStatement()) {
+            statement.execute("PRAGMA journal_mode=WAL");
+            statement.execute("PRAGMA synchronous=NORMAL");
+            for (String sql : SCHEMA) {
+                statement.execute(sql);
+            }
+        }
+    }
+
+    static void readClaims(Connection connection, ClaimSink sink, Consumer<String> skipped) throws SQLException {
+        query(connection, "SELECT world, x, z, owner FROM claims", skipped, row -> sink.claim(row.getString(1),
+                row.getInt(2), row.getInt(3), UUID.fromString(row.getString(4))));
+    }
+
+    static void readTrust(Connection connection, TrustSink sink, Consumer<String> skipped) throws SQLException {
+        query(connection, "SELECT owner, player FROM trusted", skipped,
+                row -> sink.trusted(UUID.fromString(row.getString(1)), UUID.fromString(row.getString(2))));
+        query(connection, "SELECT owner, player, permissions FROM trust_permissions", skipped,
+                row -> sink.trustPermissions(UUID.fromString(row.getString(1)), UUID.fromString(row.getString(2)),
+                        splitPermissions(row.getString(3))));
+        query(connection, "SELECT owner, permission, enabled FROM visitor_permissions", skipped,
+                row -> sink.visitorPermission(UUID.fromString(row.getString(1)), row.getString(2),
+                        row.getInt(3) != 0));
+        query(connection, "SELECT owner, member FROM members", skipped,
+                row -> sink.member(UUID.fromString(row.getString(1)), UUID.fromString(row.getString(2))));
+    }
+
+    static void readHomes(Connection connection, HomeSink sink, Consumer<String> skipped) throws SQLException {
+        query(connection, "SELECT player, name, world, x, y, z, yaw, pitch FROM homes", skipped,
+                row -> sink.home(UUID.fromString(row.getString(1)), row.getString(2),
+                        new StoredHome(row.getString(3), row.getDouble(4), row.getDouble(5), row.getDouble(6),
+                                row.getFloat(7), row.getFloat(8))));
+    }
+
+    private static void query(Connection connection, String sql, Consumer<String> skipped, RowHandler handler)
+            throws SQLException {
+        try (Statement statement = connection.createStatement();
+                ResultSet row = statement.executeQuery(sql)) {
+            while (row.next()) {
+                try {
+                    handler.accept(row);
+                } catch (IllegalArgumentException e) {
+                    skipped.accept(e.getMessage());
+                }
+            }
+        }
+    }
+
+    // Changes
+
+    @Override
+    public void claimAdded(String world, int x, int z, UUID owner) {
+        enqueue(UPSERT_CLAIM, world, x, z, owner.toString());
+    }
+
+    @Override
+    public void claimRemoved(String world, int x, int z, UUID owner) {
+        enqueue(DELETE_CLAIM, world, x, z);
+    }
+
+    @Override
+    public void claimsCleared(UUID owner) {
+        enqueue(DELETE_OWNER_CLAIMS, owner.toString());
+    }
+
+    @Override
+    public void trustChanged(UUID owner, UUID player, boolean trusted) {
+        enqueue(trusted ? INSERT_TRUSTED : DELETE_TRUSTED, owner.toString(), player.toString());
+    }
+
+    @Override
+    public void trustPermissionsChanged(UUID owner, UUID player, Set<String> permissions) {
+        enqueue(UPSERT_TRUST_PERMISSIONS, owner.toString(), player.toString(), String.join(",", permissions));
+    }
+
+    @Override
+    public void visitorPermissionChanged(UUID owner, String permission, boolean enabled) {
+        enqueue(UPSERT_VISITOR_PERMISSION, owner.toString(), permission, enabled ? 1 : 0);
+    }
+
+    @Override
+    public void memberChanged(UUID owner, UUID member, boolean isMember) {
+        enqueue(isMember ? INSERT_MEMBER : DELETE_MEMBER, owner.toString(), member.toString());
+    }
+
+    @Override
+    public void flushTrust() {
+        // Rows are already queued; make sure a drain is on its way
+        scheduleDrain();
+    }
+
+    @Override
+    public void homeSet(UUID player, String name, StoredHome home) {
+        enqueue(UPSERT_HOME, player.toString(), name, home.getWorld(), home.getX(), home.getY(), home.getZ(),
+                home.getYaw(), home.getPitch());
+    }
+
+    @Override
+    public void homeDeleted(UUID player, String name) {
+        enqueue(DELETE_HOME, player.toString(), name);
+    }
+
+    // Lifecycle
+
+    @Override
+    public int getPendingChanges() {
+        return pendingChanges.get();
+    }
+
+    @Override
+    public long getPendingBytes() {
+        return pendingBytes.get();
+    }
+
+    @Override
+    public void autoSave() {
+        // Retry rows a failed transaction left behind
+        if (!pending.isEmpty() || retryPending) {
+            scheduleDrain();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAllAsync() {
+        try {
+            return CompletableFuture.runAsync(this::drain, worker);
+        } catch (RejectedExecutionException e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
+
+    @Override
+    public void close() {
+        flush();
+        worker.shutdown();
+        try {
+            if (!worker.awaitTermination(10, TimeUnit.SECONDS)) {
+                plugin.getLogger().warning("Timed out waiting for " + file.getName() + " writes to finish");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        try {
+            if (connection != null) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            plugin.getLogger().warning("Could not close " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * Block until every queued change is committed (or has failed and been
+     * kept for retry).
+     */
+    public void flush() {
+        try {
+            worker.submit(this::drain).get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | RejectedExecutionException e) {
+            plugin.getLogger().severe("Could not flush " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void enqueue(int statement, Object... parameters) {
+        Operation operation = new Operation(statement, parameters);
+        pendingChanges.incrementAndGet();
+        pendingBytes.addAndGet(operation.size);
+        pending.add(operation);
+        scheduleDrain();
+    }
+
+    private void scheduleDrain() {
+        if (drainScheduled.compareAndSet(false, true)) {
+            try {
+                worker.execute(this::drain);
+            } catch (RejectedExecutionException e) {
+                drainScheduled.set(false);
+                plugin.getLogger().severe("Change reported after " + file.getName() + " was closed");
+            }
+        }
+    }
+
+    // Runs on the database thread
+
+    private void drain() {
+        drainScheduled.set(false);
+        List<Operation> batch = new ArrayList<>(retry);
+        retry.clear();
+        Operation operation;
+        while ((operation = pending.poll()) != null) {
+            batch.add(operation);
+        }
+        if (batch.isEmpty())
+            return;
+
+        retryPending = false;
+        synchronized (connection) {
+            write(batch);
+        }
+    }
+
+    private void write(List<Operation> batch) {
+        long start = System.nanoTime();
+        long bytes = 0;
+        for (Operation op : batch) {
+            bytes += op.size;
+        }
+        SaveManager saveManager = plugin.getSaveManager();
+        try {
+            int current = -1;
+            for (Operation op : batch) {
+                // Consecutive rows for the same statement go out as one JDBC batch
+                if (op.statement != current) {
+                    if (current >= 0) {
+                        statements[current].executeBatch();
+                    }
+                    current = op.statement;
+                }
+                PreparedStatement statement = statements[current];
+                for (int i = 0; i < op.parameters.length; i++) {
+                    statement.setObject(i + 1, op.parameters[i]);
+                }
+                statement.addBatch();
+            }
+            statements[current].executeBatch();
+            connection.commit();
+            failedAttempts = 0;
+            pendingChanges.addAndGet(-batch.size());
+            pendingBytes.addAndGet(-bytes);
+            if (saveManager != null) {
+                saveManager.recordFlush(this, System.nanoTime() - start, bytes);
+            }
+        } catch (SQLException e) {
+            rollback();
+            if (saveManager != null) {
+                saveManager.recordFailure(this, e.getMessage());
+            }
+            if (++failedAttempts < MAX_ATTEMPTS) {
+                plugin.getLogger().severe("Could not write " + batch.size() + " changes to " + file.getName()
+                        + ", will retry: " + e.getMessage());
+                retry.addAll(batch);
+                retryPending = true;
+                return;
+            }
+            plugin.getLogger().severe("Could not write " + batch.size() + " changes to " + file.getName()
+                    + " after " + failedAttempts + " attempts, writing them one at a time: " + e.getMessage());
+            failedAttempts = 0;
+            writeEach(batch);
+        }
+    }
+
+    /**
+     * Commit each row on its own, dropping the ones that fail
+     */
+    private void writeEach(List<Operation> batch) {
+        long start = System.nanoTime();
+        long bytes = 0;
+        int dropped = 0;
+        for (Operation op : batch) {
+            try {
+                PreparedStatement statement = statements[op.statement];
+                for (int i = 0; i < op.parameters.length; i++) {
+                    statement.setObject(i + 1, op.parameters[i]);
+                }
+                statement.executeUpdate();
+                connection.commit();
+                bytes += op.size;
+            } catch (SQLException e) {
+                rollback();
+                dropped++;
+                plugin.getLogger().severe("Dropping change to " + file.getName() + ": " + STATEMENTS[op.statement]
+                        + " with " + Arrays.toString(op.parameters) + ": " + e.getMessage());
+            }
+            pendingChanges.decrementAndGet();
+            pendingBytes.addAndGet(-op.size);
+        }
+
+        SaveManager saveManager = plugin.getSaveManager();
+        if (saveManager != null) {
+            saveManager.recordFlush(this, System.nanoTime() - start, bytes);
+            if (dropped > 0) {
+                saveManager.recordFailure(this, "dropped " + dropped + " changes that could not be written");
+            }
+        }
+    }
+
+    private void rollback() {
+        try {
+            for (PreparedStatement statement : statements) {
+                statement.clearBatch();
+            }
+            connection.rollback();
+        } catch (SQLException e) {
+            plugin.getLogger().severe("Rollback failed: " + e.getMessage());
+        }
+    }
+
+    private static Set<String> splitPermissions(String permissions) {
+        Set<String> set = new HashSet<>();
+        if (permissions.isEmpty())
+            return set;
+        Collections.addAll(set, permissions.split(","));
+        return set;
+    }
+
+    @FunctionalInterface
+    private interface RowHandler {
+        void accept(ResultSet row) throws SQLException;
+    }
+
+    @FunctionalInterface
+    private interface SqlReader {
+        void read(Connection connection) throws SQLException;
+    }
+
+    private static final class Operation {
+        private final int statement;
+        private final Object[] parameters;
+        // Rough size of the row data, for the metrics
+        private final int size;
+
+        Operation(int statement, Object[] parameters) {
+            this.statement = statement;
+            this.parameters = parameters;
+            int size = 0;
+            for (Object parameter : parameters) {
+                size += parameter instanceof String text ? text.length() : 8;
+            }
+            this.size = size;
+        }
+    }
+}
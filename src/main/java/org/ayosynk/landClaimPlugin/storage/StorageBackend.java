@@ -0,0 +1,114 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Persistence for claims, trust data and homes.
+ *
+ * The managers keep the live state in memory and report every change here
+ * as it happens; a backend decides how to make it durable (journal plus
+ * periodic snapshots for YAML, row-level upserts for SQLite). Change methods
+ * are called on the main thread and must not block on I/O. Loading happens
+ * once at startup and on reload, and streams records into a sink. Saving
+ * is scheduled by {@code SaveManager} through {@link PersistentStore}.
+ */
+public interface StorageBackend extends PersistentStore {
+    void open() throws IOException;
+
+    /**
+     * True when {@link #open()} created an empty store, which is then filled
+     * from the YAML files once
+     */
+    default boolean isNew() {
+        return false;
+    }
+
+    /**
+     * Make a store filled by {@code StorageMigrator} the live one. Until
+     * then a new store is written aside, so a migration that fails or is cut
+     * short is started over on the next start.
+     */
+    default void completeMigration() throws IOException {
+    }
+
+    // Loading
+
+    void loadClaims(ClaimSink sink) throws IOException;
+
+    void loadTrust(TrustSink sink) throws IOException;
+
+    void loadHomes(HomeSink sink) throws IOException;
+
+    // Claims
+
+    void claimAdded(String world, int x, int z, UUID owner);
+
+    void claimRemoved(String world, int x, int z, UUID owner);
+
+    void claimsCleared(UUID owner);
+
+    // Trust, permissions and members
+
+    void trustChanged(UUID owner, UUID player, boolean trusted);
+
+    /**
+     * Full permission set of a trusted player after a change
+     */
+    void trustPermissionsChanged(UUID owner, UUID player, Set<String> permissions);
+
+    void visitorPermissionChanged(UUID owner, String permission, boolean enabled);
+
+    void memberChanged(UUID owner, UUID member, boolean isMember);
+
+    /**
+     * Persist trust changes now instead of on the next autosave
+     */
+    void flushTrust();
+
+    // Homes
+
+    void homeSet(UUID player, String name, StoredHome home);
+
+    void homeDeleted(UUID player, String name);
+
+    // Lifecycle
+
+    void close();
+
+    interface ClaimSink {
+        void claim(String world, int x, int z, UUID owner);
+
+        /**
+         * Every chunk of one owner in one world, as packed keys (see
+         * {@link ChunkPosition#pack(int, int)}). Sinks that can insert in bulk
+         * override this.
+         */
+        default void claims(String world, UUID owner, long[] keys) {
+            for (long key : keys) {
+                claim(world, ChunkPosition.unpackX(key), ChunkPosition.unpackZ(key), owner);
+            }
+        }
+
+        void unclaim(String world, int x, int z);
+
+        void unclaimAll(UUID owner);
+    }
+
+    interface TrustSink {
+        void trusted(UUID owner, UUID player);
+
+        void trustPermissions(UUID owner, UUID player, Set<String> permissions);
+
+        void visitorPermission(UUID owner, String permission, boolean enabled);
+
+        void member(UUID owner, UUID member);
+    }
+
+    interface HomeSink {
+        void home(UUID player, String name, StoredHome home);
+    }
+}
@@ -0,0 +1,99 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.index.ClaimIndex;
+
+import java.io.IOException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.CompletionException;
+
+/**
+ * Copies everything one backend holds into another by replaying the source's
+ * load stream as change calls on the target. Claims are resolved in an index
+ * first, so journal replays reach the target as their end result. The source
+ * is only read, and the target only goes live once everything is written.
+ */
+public class StorageMigrator {
+    private final LandClaimPlugin plugin;
+
+    private int claims;
+    private int trustEntries;
+    private int homes;
+
+    public StorageMigrator(LandClaimPlugin plugin) {
+        this.plugin = plugin;
+    }
+
+    public void migrate(StorageBackend source, StorageBackend target) throws IOException {
+        long start = System.nanoTime();
+        plugin.getLogger().info("Copying " + source.getName() + " data into " + target.getName() + " storage...");
+
+        // Resolve the source's replayed changes first, so the target only sees final claims
+        ClaimIndex index = new ClaimIndex();
+        source.loadClaims(new StorageBackend.ClaimSink() {
+            @Override
+            public void claim(String world, int x, int z, UUID owner) {
+                index.put(world, x, z, owner);
+            }
+
+            @Override
+            public void claims(String world, UUID owner, long[] keys) {
+                index.putAll(world, owner, keys);
+            }
+
+            @Override
+            public void unclaim(String world, int x, int z) {
+                index.remove(world, x, z);
+            }
+
+            @Override
+            public void unclaimAll(UUID owner) {
+                index.removeAll(owner);
+            }
+        });
+        index.snapshot().forEach((owner, world, x, z) -> target.claimAdded(world, x, z, owner));
+        claims = index.size();
+
+        source.loadTrust(new StorageBackend.TrustSink() {
+            @Override
+            public void trusted(UUID owner, UUID player) {
+                target.trustChanged(owner, player, true);
+                trustEntries++;
+            }
+
+            @Override
+            public void trustPermissions(UUID owner, UUID player, Set<String> permissions) {
+                target.trustPermissionsChanged(owner, player, permissions);
+            }
+
+            @Override
+            public void visitorPermission(UUID owner, String permission, boolean enabled) {
+                target.visitorPermissionChanged(owner, permission, enabled);
+            }
+
+            @Override
+            public void member(UUID owner, UUID member) {
+                target.memberChanged(owner, member, true);
+            }
+        });
+
+        source.loadHomes((player, name, home) -> {
+            target.homeSet(player, name, home);
+            homes++;
+        });
+
+        try {
+            target.saveAllAsync().join();
+        } catch (CompletionException e) {
+            Throwable cause = e.getCause();
+            throw new IOException("could not write the copied data: " + cause.getMessage(), cause);
+        }
+        // A backend that keeps failed writes for a retry reports them as pending
+        if (target.getPendingChanges() > 0)
+            throw new IOException(target.getPendingChanges() + " copied changes could not be written");
+        target.completeMigration();
+        plugin.getLogger().info(String.format("Copied %d claims, %d trusted players and %d homes in %.1f ms",
+                claims, trustEntries, homes, (System.nanoTime() - start) / 1e6));
+    }
+}
@@ -0,0 +1,38 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import java.util.*;
+
+/**
+ * Immutable copy of all trust data: trusted players, their permissions,
+ * visitor permissions and members, each keyed by claim owner.
+ */
+public final class TrustSnapshot {
+    private final Map<UUID, List<UUID>> trusted;
+    private final Map<UUID, Map<UUID, List<String>>> permissions;
+    private final Map<UUID, Map<String, Boolean>> visitorPermissions;
+    private final Map<UUID, List<UUID>> members;
+
+    public TrustSnapshot(Map<UUID, List<UUID>> trusted, Map<UUID, Map<UUID, List<String>>> permissions,
+            Map<UUID, Map<String, Boolean>> visitorPermissions, Map<UUID, List<UUID>> members) {
+        this.trusted = trusted;
+        this.permissions = permissions;
+        this.visitorPermissions = visitorPermissions;
+        this.members = members;
+    }
+
+    public Map<UUID, List<UUID>> getTrusted() {
+        return Collections.unmodifiableMap(trusted);
+    }
+
+    public Map<UUID, Map<UUID, List<String>>> getPermissions() {
+        return Collections.unmodifiableMap(permissions);
+    }
+
+    public Map<UUID, Map<String, Boolean>> getVisitorPermissions() {
+        return Collections.unmodifiableMap(visitorPermissions);
+    }
+
+    public Map<UUID, List<UUID>> getMembers() {
+        return Collections.unmodifiableMap(members);
+    }
+}
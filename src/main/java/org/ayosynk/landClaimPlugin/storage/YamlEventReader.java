@@ -0,0 +1,456 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.yaml.snakeyaml.LoaderOptions;
+import org.yaml.snakeyaml.Yaml;
+import org.yaml.snakeyaml.error.YAMLException;
+import org.yaml.snakeyaml.events.*;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.logging.Logger;
+
+/**
+ * Reads claims.yml, trust.yml and homes.yml from SnakeYAML's event stream.
+ *
+ * {@code YamlConfiguration} builds the whole document as nested sections
+ * before the first entry can be used. Here every scalar goes to the sink as
+ * soon as it is parsed, so a load holds little more than the data being
+ * filled. Only the layout {@link YamlStorage} writes is understood; other
+ * keys are skipped, as the section-based loader skipped them.
+ */
+final class YamlEventReader {
+    private final Iterator<Event> events;
+    private final Logger logger;
+    private Event peeked;
+
+    private YamlEventReader(Reader reader, Logger logger) {
+        LoaderOptions options = new LoaderOptions();
+        // claims.yml on a large server is well past SnakeYAML's default 3 MB limit
+        options.setCodePointLimit(Integer.MAX_VALUE);
+        this.events = new Yaml(options).parse(reader).iterator();
+        this.logger = logger;
+    }
+
+    /**
+     * Stream claims.yml into {@code sink}, one bulk call per owner and world.
+     *
+     * @return the number of chunk entries read
+     * @throws IOException if the file cannot be read or is not valid YAML;
+     *                     entries before the error have been passed on
+     */
+    static int readClaims(File file, StorageBackend.ClaimSink sink, Logger logger) throws IOException {
+        if (!file.exists())
+            return 0;
+
+        try (Reader in = open(file)) {
+            YamlEventReader yaml = new YamlEventReader(in, logger);
+            if (!yaml.enterDocument())
+                return 0;
+
+            int count = 0;
+            // Reused for every owner; one owner's chunks are held at a time
+            Map<String, KeyBuffer> worlds = new HashMap<>();
+            String key;
+            while ((key = yaml.nextKey()) != null) {
+                if (!key.equals("claims") || !yaml.enterMapping()) {
+                    yaml.skipValue();
+                    continue;
+                }
+
+                String ownerStr;
+                while ((ownerStr = yaml.nextKey()) != null) {
+                    UUID owner = parseUuid(ownerStr);
+                    if (owner == null) {
+                        logger.warning("Skipping invalid player UUID: " + ownerStr);
+                        yaml.skipValue();
+                        continue;
+                    }
+                    if (!yaml.enterSequence()) {
+                        yaml.skipValue();
+                        continue;
+                    }
+
+                    String entry;
+                    while ((entry = yaml.nextItem()) != null) {
+                        if (addChunk(entry, worlds, logger)) {
+                            count++;
+                        }
+                    }
+                    for (Map.Entry<String, KeyBuffer> world : worlds.entrySet()) {
+                        KeyBuffer buffer = world.getValue();
+                        if (buffer.size > 0) {
+                            sink.claims(world.getKey(), owner, Arrays.copyOf(buffer.keys, buffer.size));
+                            buffer.size = 0;
+                        }
+                    }
+                }
+            }
+            return count;
+        } catch (YAMLException | NoSuchElementException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    private static boolean addChunk(String entry, Map<String, KeyBuffer> worlds, Logger logger) {
+        int first = entry.indexOf(',');
+        int second = first < 0 ? -1 : entry.indexOf(',', first + 1);
+        if (second < 0 || entry.indexOf(',', second + 1) >= 0) {
+            logger.warning("Skipping invalid chunk entry: " + entry);
+            return false;
+        }
+
+        int x;
+        int z;
+        try {
+            x = Integer.parseInt(entry, first + 1, second, 10);
+            z = Integer.parseInt(entry, second + 1, entry.length(), 10);
+        } catch (NumberFormatException e) {
+            logger.warning("Skipping chunk entry with invalid coordinates: " + entry);
+            return false;
+        }
+        worlds.computeIfAbsent(entry.substring(0, first), k -> new KeyBuffer()).add(ChunkPosition.pack(x, z));
+        return true;
+    }
+
+    /**
+     * Stream trust.yml into {@code sink}
+     *
+     * @throws IOException if the file cannot be read or is not valid YAML;
+     *                     entries before the error have been passed on
+     */
+    static void readTrust(File file, StorageBackend.TrustSink sink, Logger logger) throws IOException {
+        if (!file.exists())
+            return;
+
+        try (Reader in = open(file)) {
+            YamlEventReader yaml = new YamlEventReader(in, logger);
+            if (!yaml.enterDocument())
+                return;
+
+            String key;
+            while ((key = yaml.nextKey()) != null) {
+                switch (key) {
+                    case "trust" -> yaml.readOwnerLists("trust", sink::trusted);
+                    case "members" -> yaml.readOwnerLists("member", sink::member);
+                    case "permissions" -> yaml.readPermissions(sink);
+                    default -> yaml.skipValue();
+                }
+            }
+        } catch (YAMLException | NoSuchElementException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Stream homes.yml into {@code sink}
+     *
+     * @throws IOException if the file cannot be read or is not valid YAML;
+     *                     entries before the error have been passed on
+     */
+    static void readHomes(File file, StorageBackend.HomeSink sink, Logger logger) throws IOException {
+        if (!file.exists())
+            return;
+
+        try (Reader in = open(file)) {
+            YamlEventReader yaml = new YamlEventReader(in, logger);
+            if (!yaml.enterDocument())
+                return;
+
+            String key;
+            while ((key = yaml.nextKey()) != null) {
+                if (!key.equals("homes") || !yaml.enterMapping()) {
+                    yaml.skipValue();
+                    continue;
+                }
+
+                String playerStr;
+                while ((playerStr = yaml.nextKey()) != null) {
+                    UUID player = parseUuid(playerStr);
+                    if (player == null || !yaml.enterMapping()) {
+                        logger.warning("Skipping invalid UUID in homes.yml: " + playerStr);
+                        yaml.skipValue();
+                        continue;
+                    }
+
+                    String name;
+                    while ((name = yaml.nextKey()) != null) {
+                        StoredHome home = yaml.readHome();
+                        if (home != null) {
+                            sink.home(player, name, home);
+                        }
+                    }
+                }
+            }
+        } catch (YAMLException | NoSuchElementException e) {
+            throw new IOException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * {@code {world, x, y, z, yaw, pitch}}; null for an entry without a world
+     */
+    private StoredHome readHome() {
+        if (!enterMapping()) {
+            skipValue();
+            return null;
+        }
+
+        String world = null;
+        double[] values = new double[5];
+        boolean valid = true;
+        String field;
+        while ((field = nextKey()) != null) {
+            String value = nextScalar();
+            int slot = switch (field) {
+                case "x" -> 0;
+                case "y" -> 1;
+                case "z" -> 2;
+                case "yaw" -> 3;
+                case "pitch" -> 4;
+                default -> -1;
+            };
+            if (field.equals("world")) {
+                world = value;
+            } else if (slot >= 0 && value != null) {
+                try {
+                    values[slot] = Double.parseDouble(value);
+                } catch (NumberFormatException e) {
+                    valid = false;
+                }
+            }
+        }
+        if (world == null || !valid)
+            return null;
+        return new StoredHome(world, values[0], values[1], values[2], (float) values[3], (float) values[4]);
+    }
+
+    /**
+     * {@code owner: [player, ...]} entries, as in the trust and members sections
+     */
+    private void readOwnerLists(String kind, PlayerEntry entry) {
+        if (!enterMapping()) {
+            skipValue();
+            return;
+        }
+
+        String ownerStr;
+        while ((ownerStr = nextKey()) != null) {
+            UUID owner = parseUuid(ownerStr);
+            if (owner == null || !enterSequence()) {
+                logger.warning("Skipping invalid " + kind + " entry: " + ownerStr);
+                skipValue();
+                continue;
+            }
+
+            String playerStr;
+            while ((playerStr = nextItem()) != null) {
+                UUID player = parseUuid(playerStr);
+                if (player == null) {
+                    logger.warning("Skipping invalid " + kind + " entry: " + ownerStr + " -> " + playerStr);
+                    continue;
+                }
+                entry.accept(owner, player);
+            }
+        }
+    }
+
+    /**
+     * {@code owner: {trust: {player: [permission, ...]}, visitor: {permission: enabled}}}
+     */
+    private void readPermissions(StorageBackend.TrustSink sink) {
+        if (!enterMapping()) {
+            skipValue();
+            return;
+        }
+
+        String ownerStr;
+        while ((ownerStr = nextKey()) != null) {
+            UUID owner = parseUuid(ownerStr);
+            if (owner == null || !enterMapping()) {
+                logger.warning("Skipping invalid permission entry: " + ownerStr);
+                skipValue();
+                continue;
+            }
+
+            String section;
+            while ((section = nextKey()) != null) {
+                if (section.equals("trust") && enterMapping()) {
+                    String playerStr;
+                    while ((playerStr = nextKey()) != null) {
+                        UUID player = parseUuid(playerStr);
+                        Set<String> permissions = new HashSet<>();
+                        if (enterSequence()) {
+                            String permission;
+                            while ((permission = nextItem()) != null) {
+                                permissions.add(permission);
+                            }
+                        } else {
+                            skipValue();
+                        }
+                        if (player == null) {
+                            logger.warning("Skipping invalid permission entry: " + ownerStr + " -> " + playerStr);
+                            continue;
+                        }
+                        sink.trustPermissions(owner, player, permissions);
+                    }
+                } else if (section.equals("visitor") && enterMapping()) {
+                    String permission;
+                    while ((permission = nextKey()) != null) {
+                        String value = nextScalar();
+                        if (value != null) {
+                            sink.visitorPermission(owner, permission, parseBoolean(value));
+                        }
+                    }
+                } else {
+                    skipValue();
+                }
+            }
+        }
+    }
+
+    // Event cursor
+
+    private static Reader open(File file) throws IOException {
+        return new BufferedReader(new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8), 1 << 16);
+    }
+
+    private Event peek() {
+        if (peeked == null) {
+            peeked = events.next();
+        }
+        return peeked;
+    }
+
+    private Event next() {
+        Event event = peek();
+        peeked = null;
+        return event;
+    }
+
+    /**
+     * Move into the root mapping. False for an empty file or a root that is
+     * not a mapping.
+     */
+    private boolean enterDocument() {
+        next(); // stream start
+        if (peek() instanceof StreamEndEvent)
+            return false;
+        next(); // document start
+        return enterMapping();
+    }
+
+    private boolean enterMapping() {
+        if (!(peek() instanceof MappingStartEvent))
+            return false;
+        next();
+        return true;
+    }
+
+    private boolean enterSequence() {
+        if (!(peek() instanceof SequenceStartEvent))
+            return false;
+        next();
+        return true;
+    }
+
+    /**
+     * The next key of the current mapping, or null at its end. Non-scalar
+     * keys are skipped with their values.
+     */
+    private String nextKey() {
+        while (true) {
+            Event event = peek();
+            if (event instanceof MappingEndEvent) {
+                next();
+                return null;
+            }
+            if (event instanceof ScalarEvent scalar) {
+                next();
+                return scalar.getValue();
+            }
+            skipValue();
+            skipValue();
+        }
+    }
+
+    /**
+     * The next scalar item of the current sequence, or null at its end.
+     * Nested collections are skipped.
+     */
+    private String nextItem() {
+        while (true) {
+            Event event = peek();
+            if (event instanceof SequenceEndEvent) {
+                next();
+                return null;
+            }
+            if (event instanceof ScalarEvent scalar) {
+                next();
+                return scalar.getValue();
+            }
+            skipValue();
+        }
+    }
+
+    /**
+     * A scalar value, or null (having skipped it) if the value is a collection
+     */
+    private String nextScalar() {
+        if (peek() instanceof ScalarEvent scalar) {
+            next();
+            return scalar.getValue();
+        }
+        skipValue();
+        return null;
+    }
+
+    /**
+     * Skip one node, including everything nested in it
+     */
+    private void skipValue() {
+        int depth = 0;
+        do {
+            Event event = next();
+            if (event instanceof MappingStartEvent || event instanceof SequenceStartEvent) {
+                depth++;
+            } else if (event instanceof MappingEndEvent || event instanceof SequenceEndEvent) {
+                depth--;
+            }
+        } while (depth > 0);
+    }
+
+    private static UUID parseUuid(String value) {
+        try {
+            return UUID.fromString(value);
+        } catch (IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    private static boolean parseBoolean(String value) {
+        // YAML 1.1 booleans, as the configuration API reads them
+        return value.equalsIgnoreCase("true") || value.equalsIgnoreCase("yes") || value.equalsIgnoreCase("on");
+    }
+
+    @FunctionalInterface
+    private interface PlayerEntry {
+        void accept(UUID owner, UUID player);
+    }
+
+    /**
+     * Growable array of packed chunk keys
+     */
+    private static final class KeyBuffer {
+        private long[] keys = new long[16];
+        private int size;
+
+        void add(long key) {
+            if (size == keys.length) {
+                keys = Arrays.copyOf(keys, size * 2);
+            }
+            keys[size++] = key;
+        }
+    }
+}
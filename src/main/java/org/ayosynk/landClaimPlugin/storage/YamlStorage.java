@@ -0,0 +1,427 @@
+package org.ayosynk.landClaimPlugin.storage;
+
+import org.ayosynk.landClaimPlugin.LandClaimPlugin;
+import org.ayosynk.landClaimPlugin.index.ClaimSnapshot;
+import org.ayosynk.landClaimPlugin.managers.ConfigManager;
+import org.ayosynk.landClaimPlugin.managers.SaveManager;
+import org.ayosynk.landClaimPlugin.models.ChunkPosition;
+import org.ayosynk.landClaimPlugin.utils.AtomicFiles;
+import org.yaml.snakeyaml.DumperOptions;
+import org.yaml.snakeyaml.Yaml;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.channels.Channels;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The default backend: claims.yml, trust.yml and homes.yml.
+ *
+ * Claim changes go to {@link ClaimJournal} as they happen and are folded
+ * into claims.yml once the journal is long enough, or into the binary
+ * claims.dat ({@link ClaimSnapshotFile}) when claim-snapshot-format is binary. Trust and home changes
+ * are counted; the next autosave captures a snapshot on the main thread and
+ * rewrites the file on a save thread.
+ */
+public class YamlStorage implements StorageBackend {
+    private final LandClaimPlugin plugin;
+    private final ConfigManager configManager;
+    private final ClaimJournal journal;
+    private final File homesFile;
+    private final File binaryFile;
+
+    // Rough size of one trust or home change, for the pending-size estimate
+    private static final int CHANGE_SIZE = 64;
+
+    // Changes since the file was last captured
+    private final AtomicInteger trustChanges = new AtomicInteger();
+    private final AtomicInteger homeChanges = new AtomicInteger();
+
+    public YamlStorage(LandClaimPlugin plugin, ConfigManager configManager) {
+        this.plugin = plugin;
+        this.configManager = configManager;
+        this.journal = new ClaimJournal(plugin, new File(plugin.getDataFolder(), "claims.journal"));
+        this.homesFile = new File(plugin.getDataFolder(), "homes.yml");
+        this.binaryFile = new File(plugin.getDataFolder(), "claims.dat");
+    }
+
+    @Override
+    public String getName() {
+        return "yaml";
+    }
+
+    @Override
+    public void open() throws IOException {
+        if (!homesFile.exists()) {
+            homesFile.getParentFile().mkdirs();
+            homesFile.createNewFile();
+        }
+    }
+
+    @Override
+    public void loadClaims(ClaimSink sink) {
+        // Let a pending compaction finish so snapshot and journal match
+        journal.flush();
+
+        // The journal continues whichever snapshot was written last, so after
+        // switching formats the older file is ignored until it is rewritten
+        long start = System.nanoTime();
+        boolean loaded = false;
+        if (binaryFile.exists() && binaryFile.lastModified() >= configManager.getClaimsFile().lastModified()) {
+            try {
+                int count = ClaimSnapshotFile.read(binaryFile, sink);
+                plugin.getLogger().info(String.format("Loaded %d claims from %s in %.1f ms", count,
+                        binaryFile.getName(), (System.nanoTime() - start) / 1e6));
+                loaded = true;
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not read " + binaryFile.getName() + " (" + e.getMessage()
+                        + "), falling back to claims.yml");
+                moveAside(binaryFile);
+            }
+        }
+        if (!loaded) {
+            File file = configManager.getClaimsFile();
+            try {
+                int count = YamlEventReader.readClaims(file, sink, plugin.getLogger());
+                plugin.getLogger().info(String.format("Loaded %d claims from %s in %.1f ms", count,
+                        file.getName(), (System.nanoTime() - start) / 1e6));
+            } catch (IOException e) {
+                plugin.getLogger().severe("Could not read " + file.getName() + " (" + e.getMessage()
+                        + "), claims after the error are missing");
+                keepCopy(file);
+            }
+        }
+
+        int replayed = journal.replay(sink);
+        if (replayed > 0) {
+            plugin.getLogger().info("Replayed " + replayed + " claim changes from claims.journal");
+        }
+    }
+
+    /**
+     * Keep a damaged file that will be rewritten by the next save
+     */
+    private void keepCopy(File file) {
+        File copy = new File(file.getParentFile(), file.getName() + ".unreadable");
+        try {
+            Files.copy(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            plugin.getLogger().severe("Copied " + file.getName() + " to " + copy.getName());
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not copy " + file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private void moveAside(File file) {
+        File copy = new File(file.getParentFile(), file.getName() + ".unreadable");
+        try {
+            Files.move(file.toPath(), copy.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            plugin.getLogger().severe("Moved " + file.getName() + " aside to " + copy.getName());
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not move " + file.getName() + " aside: " + e.getMessage());
+        }
+    }
+
+    @Override
+    public void loadTrust(TrustSink sink) {
+        // Queued trust.yml writes land first so the reload sees them
+        SaveManager saveManager = plugin.getSaveManager();
+        if (saveManager != null) {
+            saveManager.flush();
+        }
+        File file = configManager.getTrustFile();
+        try {
+            YamlEventReader.readTrust(file, sink, plugin.getLogger());
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not read " + file.getName() + " (" + e.getMessage()
+                    + "), trust entries after the error are missing");
+            keepCopy(file);
+        }
+    }
+
+    @Override
+    public void loadHomes(HomeSink sink) {
+        try {
+            YamlEventReader.readHomes(homesFile, sink, plugin.getLogger());
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not read " + homesFile.getName() + " (" + e.getMessage()
+                    + "), homes after the error are missing");
+            keepCopy(homesFile);
+        }
+    }
+
+    @Override
+    public void claimAdded(String world, int x, int z, UUID owner) {
+        journal.logClaim(world, x, z, owner);
+    }
+
+    @Override
+    public void claimRemoved(String world, int x, int z, UUID owner) {
+        journal.logUnclaim(world, x, z);
+    }
+
+    @Override
+    public void claimsCleared(UUID owner) {
+        journal.logUnclaimAll(owner);
+    }
+
+    @Override
+    public void trustChanged(UUID owner, UUID player, boolean trusted) {
+        trustChanges.incrementAndGet();
+    }
+
+    @Override
+    public void trustPermissionsChanged(UUID owner, UUID player, Set<String> permissions) {
+        trustChanges.incrementAndGet();
+    }
+
+    @Override
+    public void visitorPermissionChanged(UUID owner, String permission, boolean enabled) {
+        trustChanges.incrementAndGet();
+    }
+
+    @Override
+    public void memberChanged(UUID owner, UUID member, boolean isMember) {
+        trustChanges.incrementAndGet();
+    }
+
+    @Override
+    public void flushTrust() {
+        // Nothing to do if an autosave already picked the changes up
+        saveTrust();
+    }
+
+    @Override
+    public void homeSet(UUID player, String name, StoredHome home) {
+        homeChanges.incrementAndGet();
+    }
+
+    @Override
+    public void homeDeleted(UUID player, String name) {
+        homeChanges.incrementAndGet();
+    }
+
+    /**
+     * Trust and home changes not yet captured. Claim changes are durable in
+     * the journal as soon as they are written, so they do not count.
+     */
+    @Override
+    public int getPendingChanges() {
+        return trustChanges.get() + homeChanges.get();
+    }
+
+    @Override
+    public long getPendingBytes() {
+        return (long) getPendingChanges() * CHANGE_SIZE;
+    }
+
+    @Override
+    public void autoSave() {
+        saveTrust();
+        saveHomes();
+        if (journal.needsCompaction(configManager.getJournalCompactThreshold())) {
+            compactClaims();
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> saveAllAsync() {
+        CompletableFuture<Void> trust = saveTrust();
+        CompletableFuture<Void> homes = saveHomes();
+        // Compaction runs on the journal thread, next to the other two. Also after a
+        // failed write, whose dropped records are no longer counted
+        CompletableFuture<Void> claims = journal.needsCompaction(1)
+                ? compactClaims()
+                : CompletableFuture.completedFuture(null);
+        return CompletableFuture.allOf(trust, homes, claims);
+    }
+
+    @Override
+    public void close() {
+        journal.close();
+    }
+
+    private CompletableFuture<Void> saveTrust() {
+        return save("Trust data", trustChanges, () -> {
+            TrustSnapshot snapshot = plugin.getTrustManager().captureSnapshot();
+            File file = configManager.getTrustFile();
+            return () -> writeTrustFile(file, snapshot);
+        });
+    }
+
+    private CompletableFuture<Void> saveHomes() {
+        return save("Homes", homeChanges, () -> {
+            Map<UUID, Map<String, StoredHome>> snapshot = plugin.getHomeManager().captureSnapshot();
+            return () -> writeHomesFile(homesFile, snapshot);
+        });
+    }
+
+    /**
+     * Save if {@code changes} is non-zero. A failed write puts its changes
+     * back so the next autosave tries again.
+     */
+    private CompletableFuture<Void> save(String name, AtomicInteger changes, Supplier<DataSnapshot> capture) {
+        int count = changes.getAndSet(0);
+        if (count == 0)
+            return CompletableFuture.completedFuture(null);
+
+        SaveManager saveManager = plugin.getSaveManager();
+        if (saveManager != null) {
+            CompletableFuture<Void> result = saveManager.save(this, name, capture);
+            result.whenComplete((ignored, error) -> {
+                if (error != null) {
+                    changes.addAndGet(count);
+                }
+            });
+            return result;
+        }
+
+        // Not running yet (startup): write in place
+        try {
+            capture.get().write();
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not save " + name.toLowerCase() + ": " + e.getMessage());
+            changes.addAndGet(count);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Fold the journal into a new claims.yml. Only the snapshot is captured on
+     * the calling (main) thread; YAML building and the write happen on the
+     * journal thread.
+     */
+    private CompletableFuture<Void> compactClaims() {
+        long start = System.nanoTime();
+        ClaimSnapshot snapshot = plugin.getClaimManager().snapshotClaims();
+        long captureNanos = System.nanoTime() - start;
+        CompletableFuture<Long> result;
+        if (configManager.useBinaryClaimSnapshot()) {
+            result = journal.compact(() -> ClaimSnapshotFile.write(binaryFile, snapshot));
+        } else {
+            File file = configManager.getClaimsFile();
+            result = journal.compact(() -> writeClaimsFile(file, snapshot));
+        }
+        SaveManager saveManager = plugin.getSaveManager();
+        if (saveManager != null) {
+            result.whenComplete((bytes, error) -> {
+                if (error != null) {
+                    saveManager.recordFailure(this, error.getMessage());
+                    return;
+                }
+                long totalNanos = System.nanoTime() - start;
+                saveManager.recordFlush(this, totalNanos, bytes);
+                saveManager.logSaved("Claims", captureNanos, totalNanos, bytes);
+            });
+        }
+        return result.thenApply(bytes -> null);
+    }
+
+    // Writers below run off the main thread and only touch snapshot data. They
+    // use SnakeYAML directly, with the layout YamlConfiguration produces, so
+    // offline tools can write the same files without a server.
+
+    static long writeClaimsFile(File file, ClaimSnapshot snapshot) throws IOException {
+        Map<String, Object> claimsSection = new LinkedHashMap<>();
+        StringBuilder builder = new StringBuilder(32);
+        for (UUID ownerId : snapshot.getOwners()) {
+            List<String> chunkStrings = new ArrayList<>();
+            for (Map.Entry<String, long[]> world : snapshot.getClaims(ownerId).entrySet()) {
+                for (long key : world.getValue()) {
+                    builder.setLength(0);
+                    builder.append(world.getKey()).append(',').append(ChunkPosition.unpackX(key))
+                            .append(',').append(ChunkPosition.unpackZ(key));
+                    chunkStrings.add(builder.toString());
+                }
+            }
+            claimsSection.put(ownerId.toString(), chunkStrings);
+        }
+
+        return writeYaml(file, Collections.singletonMap("claims", claimsSection));
+    }
+
+    static long writeTrustFile(File file, TrustSnapshot snapshot) throws IOException {
+        Map<String, Object> trustSection = new LinkedHashMap<>();
+        for (Map.Entry<UUID, List<UUID>> entry : snapshot.getTrusted().entrySet()) {
+            trustSection.put(entry.getKey().toString(), toStrings(entry.getValue()));
+        }
+
+        Map<String, Map<String, Object>> permissionsSection = new LinkedHashMap<>();
+        for (Map.Entry<UUID, Map<UUID, List<String>>> ownerEntry : snapshot.getPermissions().entrySet()) {
+            Map<String, Object> ownerTrustSection = new LinkedHashMap<>();
+            for (Map.Entry<UUID, List<String>> trustEntry : ownerEntry.getValue().entrySet()) {
+                ownerTrustSection.put(trustEntry.getKey().toString(), new ArrayList<>(trustEntry.getValue()));
+            }
+            permissionsSection.computeIfAbsent(ownerEntry.getKey().toString(), k -> new LinkedHashMap<>())
+                    .put("trust", ownerTrustSection);
+        }
+
+        for (Map.Entry<UUID, Map<String, Boolean>> ownerEntry : snapshot.getVisitorPermissions().entrySet()) {
+            permissionsSection.computeIfAbsent(ownerEntry.getKey().toString(), k -> new LinkedHashMap<>())
+                    .put("visitor", new LinkedHashMap<>(ownerEntry.getValue()));
+        }
+
+        Map<String, Object> membersSection = new LinkedHashMap<>();
+        for (Map.Entry<UUID, List<UUID>> entry : snapshot.getMembers().entrySet()) {
+            membersSection.put(entry.getKey().toString(), toStrings(entry.getValue()));
+        }
+
+        Map<String, Object> root = new LinkedHashMap<>();
+        root.put("trust", trustSection);
+        root.put("permissions", permissionsSection);
+        root.put("members", membersSection);
+        return writeYaml(file, root);
+    }
+
+    static long writeHomesFile(File file, Map<UUID, Map<String, StoredHome>> homes) throws IOException {
+        Map<String, Object> playersSection = new LinkedHashMap<>();
+
+        for (Map.Entry<UUID, Map<String, StoredHome>> entry : homes.entrySet()) {
+            Map<String, Object> playerSection = new LinkedHashMap<>();
+
+            for (Map.Entry<String, StoredHome> homeEntry : entry.getValue().entrySet()) {
+                Map<String, Object> homeData = new LinkedHashMap<>();
+                StoredHome home = homeEntry.getValue();
+
+                homeData.put("world", home.getWorld());
+                homeData.put("x", home.getX());
+                homeData.put("y", home.getY());
+                homeData.put("z", home.getZ());
+                homeData.put("yaw", home.getYaw());
+                homeData.put("pitch", home.getPitch());
+                playerSection.put(homeEntry.getKey(), homeData);
+            }
+            playersSection.put(entry.getKey().toString(), playerSection);
+        }
+
+        return writeYaml(file, Collections.singletonMap("homes", playersSection));
+    }
+
+    private static long writeYaml(File file, Map<String, ?> root) throws IOException {
+        DumperOptions options = new DumperOptions();
+        options.setIndent(2);
+        options.setDefaultFlowStyle(DumperOptions.FlowStyle.BLOCK);
+        options.setSplitLines(false);
+        Yaml yaml = new Yaml(options);
+        return AtomicFiles.write(file, channel -> {
+            Writer out = new BufferedWriter(Channels.newWriter(channel, StandardCharsets.UTF_8), 1 << 16);
+            yaml.dump(root, out);
+            out.flush();
+        });
+    }
+
+    private static List<String> toStrings(List<UUID> ids) {
+        List<String> strings = new ArrayList<>(ids.size());
+        for (UUID id : ids) {
+            strings.add(id.toString());
+        }
+        return strings;
+    }
+}
@@ -0,0 +1,83 @@
+package org.ayosynk.landClaimPlugin.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Crash-safe file replacement: the new content is written to a temporary file
+ * in the same directory, forced to disk and renamed over the target. Readers
+ * (and a restart after a crash) see either the old file or the new one, never
+ * a truncated mix.
+ */
+public final class AtomicFiles {
+    private AtomicFiles() {
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public static long write(File target, String content) throws IOException {
+        return write(target, content.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * @return the number of bytes written
+     */
+    public static long write(File target, byte[] content) throws IOException {
+        return write(target, channel -> {
+            ByteBuffer buffer = ByteBuffer.wrap(content);
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        });
+    }
+
+    /**
+     * Stream the content into the temporary file instead of building it in
+     * memory first
+     *
+     * @return the number of bytes written
+     */
+    public static long write(File target, ContentWriter writer) throws IOException {
+        File directory = target.getAbsoluteFile().getParentFile();
+        directory.mkdirs();
+        File temp = new File(directory, target.getName() + ".tmp");
+
+        long size;
+        try (FileChannel channel = FileChannel.open(temp.toPath(), StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING)) {
+            writer.write(channel);
+            channel.force(true);
+            size = channel.size();
+        }
+
+        rename(temp, target);
+        return size;
+    }
+
+    /**
+     * Move a finished file or directory into place, atomically where the
+     * filesystem allows
+     */
+    public static void rename(File source, File target) throws IOException {
+        try {
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            // Some filesystems (e.g. certain network mounts) only offer a plain replace
+            Files.move(source.toPath(), target.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    @FunctionalInterface
+    public interface ContentWriter {
+        void write(FileChannel channel) throws IOException;
+    }
+}